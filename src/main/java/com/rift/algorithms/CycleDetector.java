@@ -1,44 +1,58 @@
 package com.rift.algorithms;
 
 import com.rift.model.*;
+import com.rift.repository.LiveGraph;
+import com.rift.repository.RingRegistry;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ForkJoinPool;
 
 @Service
 public class CycleDetector {
 
+    private static final int MIN_CYCLE_LENGTH = 3;
+    private static final int MAX_CYCLE_LENGTH = 5;
+
+    // When positive, only time-respecting cycles count: each hop no earlier
+    // than the previous one, all of them within this many hours
+    @Value("${rift.cycles.temporal-window-hours:0}")
+    private long temporalWindowHours;
+
     public void detectCycles(DetectionResult result) {
-        Map<String, Set<String>> graph = buildGraph(result.getAccounts());
-        Set<Set<String>> allCycles = findCycles(graph);
+        List<int[]> allCycles = findCycles(result);
 
-        // Filter cycles and remove overlaps
-        Set<Set<String>> uniqueCycles = new HashSet<>();
+        int accountCount = result.getIndexedAccounts().size();
 
-        for (Set<String> cycle : allCycles) {
-            if (cycle.size() >= 3 && cycle.size() <= 5) {
-                // Check if this cycle is already covered by a larger pattern
-                boolean isSubset = false;
-                for (Set<String> existing : uniqueCycles) {
-                    if (existing.containsAll(cycle)) {
-                        isSubset = true;
-                        break;
-                    }
-                }
-                if (!isSubset) {
-                    uniqueCycles.add(cycle);
-                }
+        // Filter cycles and remove overlaps: a cycle whose accounts all sit in
+        // an earlier one is already covered by that larger pattern
+        RingRegistry uniqueCycles = new RingRegistry(accountCount);
+        for (int[] path : allCycles) {
+            int[] members = RingRegistry.canonical(path);
+            if (!uniqueCycles.isCovered(members)) {
+                uniqueCycles.add(members);
             }
         }
 
+        // Rings already reported, so the same combination is only added once
+        RingRegistry existing = new RingRegistry(accountCount);
+        for (FraudRing ring : result.getRings().values()) {
+            existing.add(result.memberIds(ring));
+        }
+
         // Create rings
-        for (Set<String> cycle : uniqueCycles) {
+        for (int c = 0; c < uniqueCycles.size(); c++) {
+            int[] members = uniqueCycles.members(c);
             FraudRing ring = new FraudRing(null, "cycle");
-
-            for (String accountId : cycle) {
+            String[] names = new String[members.length];
+            for (int i = 0; i < members.length; i++) {
+                names[i] = result.getDictionary().name(members[i]);
+            }
+            Arrays.sort(names);
+            for (String accountId : names) {
                 Account account = result.getAccounts().get(accountId);
                 if (account != null) {
-                    account.getPatterns().add("cycle_length_" + cycle.size());
+                    account.getPatterns().add("cycle_length_" + names.length);
                     ring.addAccountWithScore(accountId, account.getSuspicionScore());
                 }
             }
@@ -46,61 +60,50 @@ public class CycleDetector {
             ring.calculateRiskScore();
 
             // Only add if this combination doesn't exist
-            String memberKey = ring.getMemberAccounts().stream()
-                    .sorted()
-                    .collect(Collectors.joining("-"));
-
-            boolean exists = false;
-            for (FraudRing existing : result.getRings().values()) {
-                String existingKey = existing.getMemberAccounts().stream()
-                        .sorted()
-                        .collect(Collectors.joining("-"));
-                if (existingKey.equals(memberKey)) {
-                    exists = true;
-                    break;
-                }
-            }
-
-            if (!exists) {
+            if (existing.indexOf(members) < 0) {
+                existing.add(members);
                 result.getRings().put(UUID.randomUUID().toString(), ring);
             }
         }
     }
 
-    private Map<String, Set<String>> buildGraph(Map<String, Account> accounts) {
-        Map<String, Set<String>> graph = new HashMap<>();
-        for (Account account : accounts.values()) {
-            graph.put(account.getAccountId(), new HashSet<>(account.getOutgoingTo()));
+    // Incremental counterpart of detectCycles for an intraday batch: adds the
+    // batch's account pairs to the result's live graph in row order and,
+    // right after each genuinely new pair, searches only the cycles that pair
+    // closes. Members of each new cycle get its cycle pattern. Returns the new
+    // cycles as sorted member ids, in the order they were found.
+    //
+    // Batches are searched without the temporal window; a full analysis
+    // applies it again.
+    public List<int[]> detectNewCycles(DetectionResult result, int[] senders, int[] receivers, int count) {
+        if (result.getLiveGraph() == null) {
+            result.setLiveGraph(new LiveGraph(result.getGraph()));
         }
-        return graph;
-    }
-
-    private Set<Set<String>> findCycles(Map<String, Set<String>> graph) {
-        Set<Set<String>> cycles = new HashSet<>();
-        Set<String> visited = new HashSet<>();
-
-        for (String node : graph.keySet()) {
-            findCyclesDFS(node, node, new ArrayList<>(), graph, cycles, visited);
+        LiveGraph graph = result.getLiveGraph();
+        EdgeCycleSearch search = new EdgeCycleSearch(graph, MIN_CYCLE_LENGTH, MAX_CYCLE_LENGTH);
+
+        List<int[]> cycles = new ArrayList<>();
+        for (int row = 0; row < count; row++) {
+            if (graph.addEdge(senders[row], receivers[row])) {
+                search.search(senders[row], receivers[row],
+                        (path, length) -> cycles.add(RingRegistry.canonical(Arrays.copyOf(path, length))));
+            }
         }
 
-        return cycles;
-    }
-
-    private void findCyclesDFS(String start, String current, List<String> path,
-                               Map<String, Set<String>> graph,
-                               Set<Set<String>> cycles, Set<String> visited) {
-        path.add(current);
-        visited.add(current);
-
-        for (String neighbor : graph.getOrDefault(current, new HashSet<>())) {
-            if (neighbor.equals(start) && path.size() >= 3) {
-                cycles.add(new TreeSet<>(path));
-            } else if (!visited.contains(neighbor) && path.size() < 5) {
-                findCyclesDFS(start, neighbor, path, graph, cycles, visited);
+        for (int[] cycle : cycles) {
+            for (int index : cycle) {
+                result.getAccount(index).getPatterns().add("cycle_length_" + cycle.length);
             }
         }
+        return cycles;
+    }
 
-        path.remove(path.size() - 1);
-        visited.remove(current);
+    // Every simple cycle of 3-5 accounts, once each, as its ordered path
+    // starting from the smallest account id. The search runs on the common
+    // fork-join pool; the order does not depend on the number of threads.
+    List<int[]> findCycles(DetectionResult result) {
+        long window = temporalWindowHours > 0 ? temporalWindowHours * 3600 : CycleEnumerator.UNTIMED;
+        return CycleEnumerator.findAll(result.getGraph(), MIN_CYCLE_LENGTH, MAX_CYCLE_LENGTH, window,
+                ForkJoinPool.commonPool());
     }
-}
\ No newline at end of file
+}
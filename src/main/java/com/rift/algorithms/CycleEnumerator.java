@@ -0,0 +1,277 @@
+package com.rift.algorithms;
+
+import com.rift.repository.GraphRepository;
+import com.rift.repository.StronglyConnectedComponents;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+// Enumerates every simple directed cycle of minLength .. maxLength accounts
+// exactly once. A cycle is reported from its smallest account id, walking its
+// edges in order, so path[0] is always the minimum of path[0 .. length - 1].
+//
+// Before searching from a start, a reverse BFS records how many hops each
+// larger account is from getting back to it. The DFS only steps onto an
+// account that can still close the cycle within maxLength, which is the
+// bounded-length counterpart of Johnson's blocking: dead ends are never
+// entered, however dense the hub they hang off.
+//
+// A cycle never leaves its strongly connected component, so searches skip
+// components too small to hold one and never step outside the start's.
+//
+// With a time window the cycles must also be time respecting: every hop
+// happens no earlier than the one before it, and the last hop at most window
+// seconds after the first. The search carries, per choice of first transfer,
+// the earliest moment the path can have reached the current account; each
+// next hop is a binary search in that edge's time index, and a branch ends as
+// soon as no first transfer can still make it within the window.
+//
+// Instances keep per-search scratch arrays and are not thread safe; findAll
+// gives each worker thread its own.
+public class CycleEnumerator {
+
+    @FunctionalInterface
+    public interface CycleConsumer {
+        // path is reused between calls; copy what needs to be kept
+        void accept(int[] path, int length);
+    }
+
+    private static final int UNREACHED = Integer.MAX_VALUE / 2;
+    // Window value for the plain, time-agnostic search
+    public static final long UNTIMED = -1;
+
+    private final GraphRepository graph;
+    private final StronglyConnectedComponents components;
+    private final int minLength;
+    private final int maxLength;
+    private final long window;
+
+    // Hops from an account back to the current start, UNREACHED if too far
+    private final int[] distance;
+    private final boolean[] onPath;
+    private final int[] path;
+    private final int[] queue;
+
+    // Timed search, per path length: for each still possible first transfer
+    // (ascending), its time and the earliest arrival at the path's last account
+    private final long[][] firstTimes;
+    private final long[][] arrivals;
+    private final int[] candidates;
+
+    public CycleEnumerator(GraphRepository graph, int minLength, int maxLength) {
+        this(graph, minLength, maxLength, UNTIMED);
+    }
+
+    // window is in seconds, UNTIMED for the plain search
+    public CycleEnumerator(GraphRepository graph, int minLength, int maxLength, long window) {
+        this.graph = graph;
+        this.components = graph.components();
+        this.minLength = minLength;
+        this.maxLength = maxLength;
+        this.window = window;
+        this.firstTimes = new long[maxLength + 1][16];
+        this.arrivals = new long[maxLength + 1][16];
+        this.candidates = new int[maxLength + 1];
+        this.distance = new int[graph.accountCount()];
+        this.onPath = new boolean[graph.accountCount()];
+        this.path = new int[maxLength];
+        this.queue = new int[graph.accountCount()];
+        Arrays.fill(distance, UNREACHED);
+    }
+
+    // Every cycle, ordered by smallest account id
+    public void enumerate(CycleConsumer consumer) {
+        for (int start = 0; start < graph.accountCount(); start++) {
+            enumerateFrom(start, consumer);
+        }
+    }
+
+    // Every cycle, searched in parallel on pool and returned in the same order
+    // as enumerate(). Starts are the unit of work: each one's cycles land in
+    // its own slot, and every worker thread keeps its own enumerator (path,
+    // on-path flags, distances), so nothing is shared while searching.
+    public static List<int[]> findAll(GraphRepository graph, int minLength, int maxLength, ForkJoinPool pool) {
+        return findAll(graph, minLength, maxLength, UNTIMED, pool);
+    }
+
+    public static List<int[]> findAll(GraphRepository graph, int minLength, int maxLength, long window,
+                                      ForkJoinPool pool) {
+        StronglyConnectedComponents components = graph.components();
+        int[] starts = IntStream.range(0, graph.accountCount())
+                .filter(v -> components.size(components.componentOf(v)) >= minLength)
+                .toArray();
+
+        int[][][] cyclesByStart = new int[starts.length][][];
+        Map<Thread, CycleEnumerator> enumerators = new ConcurrentHashMap<>();
+        pool.invoke(new StartTask(starts, 0, starts.length, cyclesByStart, () -> enumerators.computeIfAbsent(
+                Thread.currentThread(), thread -> new CycleEnumerator(graph, minLength, maxLength, window))));
+
+        List<int[]> cycles = new ArrayList<>();
+        for (int[][] found : cyclesByStart) {
+            cycles.addAll(Arrays.asList(found));
+        }
+        return cycles;
+    }
+
+    // The cycles whose smallest account id is start
+    public void enumerateFrom(int start, CycleConsumer consumer) {
+        if (components.size(components.componentOf(start)) < minLength) return;
+
+        int reached = markDistances(start);
+        path[0] = start;
+        onPath[start] = true;
+        if (window == UNTIMED) {
+            search(start, 1, consumer);
+        } else {
+            searchTimed(start, 1, consumer);
+        }
+        onPath[start] = false;
+
+        for (int i = 0; i < reached; i++) {
+            distance[queue[i]] = UNREACHED;
+        }
+    }
+
+    // Reverse BFS from start over accounts above it, up to maxLength - 1 hops.
+    // Returns how many accounts were marked; they are queue[0 .. reached - 1].
+    private int markDistances(int start) {
+        int head = 0, tail = 0;
+        for (int slot = graph.inStart(start); slot < graph.inEnd(start); slot++) {
+            int source = graph.source(slot);
+            if (source > start && distance[source] == UNREACHED && components.connected(source, start)) {
+                distance[source] = 1;
+                queue[tail++] = source;
+            }
+        }
+        while (head < tail) {
+            int v = queue[head++];
+            if (distance[v] + 1 >= maxLength) continue;
+            for (int slot = graph.inStart(v); slot < graph.inEnd(v); slot++) {
+                int source = graph.source(slot);
+                if (source > start && distance[source] == UNREACHED && components.connected(source, start)) {
+                    distance[source] = distance[v] + 1;
+                    queue[tail++] = source;
+                }
+            }
+        }
+        return tail;
+    }
+
+    private static class StartTask extends RecursiveAction {
+
+        // Starts per leaf; small, because one hub can cost more than thousands of leaves
+        private static final int LEAF_SIZE = 8;
+
+        private final int[] starts;
+        private final int lo;
+        private final int hi;
+        private final int[][][] cyclesByStart;
+        private final Supplier<CycleEnumerator> enumerators;
+
+        StartTask(int[] starts, int lo, int hi, int[][][] cyclesByStart, Supplier<CycleEnumerator> enumerators) {
+            this.starts = starts;
+            this.lo = lo;
+            this.hi = hi;
+            this.cyclesByStart = cyclesByStart;
+            this.enumerators = enumerators;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo > LEAF_SIZE) {
+                int mid = (lo + hi) >>> 1;
+                invokeAll(new StartTask(starts, lo, mid, cyclesByStart, enumerators),
+                        new StartTask(starts, mid, hi, cyclesByStart, enumerators));
+                return;
+            }
+
+            CycleEnumerator enumerator = enumerators.get();
+            List<int[]> found = new ArrayList<>();
+            for (int i = lo; i < hi; i++) {
+                enumerator.enumerateFrom(starts[i], (path, length) -> found.add(Arrays.copyOf(path, length)));
+                cyclesByStart[i] = found.toArray(new int[0][]);
+                found.clear();
+            }
+        }
+    }
+
+    private void search(int current, int length, CycleConsumer consumer) {
+        int start = path[0];
+        for (int e = graph.outStart(current); e < graph.outEnd(current); e++) {
+            int next = graph.target(e);
+            if (next == start) {
+                if (length >= minLength) {
+                    consumer.accept(path, length);
+                }
+            } else if (next > start && !onPath[next] && length + distance[next] <= maxLength) {
+                path[length] = next;
+                onPath[next] = true;
+                search(next, length + 1, consumer);
+                onPath[next] = false;
+            }
+        }
+    }
+
+    private void searchTimed(int current, int length, CycleConsumer consumer) {
+        int start = path[0];
+        for (int e = graph.outStart(current); e < graph.outEnd(current); e++) {
+            int next = graph.target(e);
+            boolean closes = next == start && length >= minLength;
+            boolean extending = next > start && !onPath[next] && length + distance[next] <= maxLength;
+            if (!closes && !extending) continue;
+            if (!advance(e, length)) continue;
+
+            if (closes) {
+                consumer.accept(path, length);
+            } else {
+                path[length] = next;
+                onPath[next] = true;
+                searchTimed(next, length + 1, consumer);
+                onPath[next] = false;
+            }
+        }
+    }
+
+    // Takes edge as hop number length of the path and records which first
+    // transfers survive it, at index length. Returns false if none do.
+    private boolean advance(int edge, int length) {
+        int count = 0;
+        if (length == 1) {
+            // First hop: every transfer on the edge opens its own window
+            for (int p = graph.timeStart(edge); p < graph.timeEnd(edge); p++) {
+                count = keep(length, count, graph.time(p), graph.time(p));
+            }
+        } else {
+            long[] first = firstTimes[length - 1];
+            long[] arrival = arrivals[length - 1];
+            for (int i = 0; i < candidates[length - 1]; i++) {
+                int p = graph.firstTimeAtOrAfter(edge, arrival[i]);
+                if (p < graph.timeEnd(edge) && graph.time(p) - first[i] <= window) {
+                    count = keep(length, count, first[i], graph.time(p));
+                }
+            }
+        }
+        candidates[length] = count;
+        return count > 0;
+    }
+
+    // Arrivals never decrease as the first transfer gets later, so a candidate
+    // arriving at the same moment as the previous one replaces it: the later
+    // first transfer leaves more of the window
+    private int keep(int length, int count, long first, long arrival) {
+        if (count > 0 && arrivals[length][count - 1] == arrival) {
+            firstTimes[length][count - 1] = first;
+            return count;
+        }
+        if (count == firstTimes[length].length) {
+            firstTimes[length] = Arrays.copyOf(firstTimes[length], count * 2);
+            arrivals[length] = Arrays.copyOf(arrivals[length], count * 2);
+        }
+        firstTimes[length][count] = first;
+        arrivals[length][count] = arrival;
+        return count + 1;
+    }
+}
@@ -0,0 +1,172 @@
+package com.rift.algorithms;
+
+import com.rift.algorithms.CycleEnumerator.CycleConsumer;
+import com.rift.repository.LiveGraph;
+import java.util.Arrays;
+
+// Finds the simple cycles of minLength .. maxLength accounts that run through
+// one edge u -> v: the paths from v back to u of minLength - 1 ..
+// maxLength - 1 hops. Meant to be run right after the edge is added, so the
+// cost depends on the neighbourhood of the edge, not on the graph's size.
+//
+// The search is bidirectional. Paths of up to ceil((maxLength - 1) / 2) hops
+// are walked forward from v and bucketed by their last account; paths of up
+// to the remaining hops are walked backward from u, and every account where
+// both meet joins the two halves. A path of h hops is only ever split after
+// its first ceil(h / 2) hops, so each cycle is reported once.
+//
+// Adding a batch edge by edge and searching after each one reports every new
+// cycle exactly once, from the last of its edges to be added.
+//
+// Instances keep scratch arrays and are not thread safe.
+public class EdgeCycleSearch {
+
+    private final LiveGraph graph;
+    private final int minLength;
+    private final int maxLength;
+    private final int forwardDepth;
+    private final int backwardDepth;
+
+    // Forward halves, bucketed by last account: head[m] is the first record
+    // ending at m, valid only while headStamp[m] == stamp. A record is
+    // (next, hops, accounts...) in a fixed width slot of records.
+    private int[] head = new int[0];
+    private int[] headStamp = new int[0];
+    private int stamp;
+    private int[] records = new int[256];
+    private int recordCount;
+    private final int recordWidth;
+
+    private final int[] forward;
+    private final int[] backward;
+    private final int[] path;
+
+    public EdgeCycleSearch(LiveGraph graph, int minLength, int maxLength) {
+        this.graph = graph;
+        this.minLength = minLength;
+        this.maxLength = maxLength;
+        this.forwardDepth = maxLength / 2;
+        this.backwardDepth = maxLength - 1 - forwardDepth;
+        this.recordWidth = forwardDepth + 3;
+        this.forward = new int[forwardDepth + 1];
+        this.backward = new int[backwardDepth + 1];
+        this.path = new int[maxLength];
+    }
+
+    // Reports every cycle through u -> v, as the path u, v, ... in edge order,
+    // and returns how many there were
+    public int search(int u, int v, CycleConsumer consumer) {
+        if (u == v || minLength > maxLength || maxLength < 3) return 0;
+        prepare();
+
+        forward[0] = v;
+        walkForward(u, 0);
+
+        backward[0] = u;
+        return walkBackward(v, 0, consumer);
+    }
+
+    private void prepare() {
+        int accounts = graph.accountCount();
+        if (head.length < accounts) {
+            head = Arrays.copyOf(head, Math.max(accounts, head.length * 2));
+            headStamp = Arrays.copyOf(headStamp, head.length);
+        }
+        if (++stamp == 0) {
+            Arrays.fill(headStamp, 0);
+            stamp = 1;
+        }
+        recordCount = 0;
+    }
+
+    // Records the forward half forward[0 .. hops] and extends it, never
+    // stepping onto u or back onto the path
+    private void walkForward(int u, int hops) {
+        int last = forward[hops];
+        if (hops > 0) {
+            record(last, hops);
+        }
+        if (hops == forwardDepth) return;
+
+        for (int i = 0; i < graph.outDegree(last); i++) {
+            int next = graph.outTarget(last, i);
+            if (next == u || contains(forward, hops, next)) continue;
+            forward[hops + 1] = next;
+            walkForward(u, hops + 1);
+        }
+    }
+
+    private void record(int last, int hops) {
+        if ((recordCount + 1) * recordWidth > records.length) {
+            records = Arrays.copyOf(records, records.length * 2);
+        }
+        int at = recordCount * recordWidth;
+        records[at] = headStamp[last] == stamp ? head[last] : -1;
+        records[at + 1] = hops;
+        System.arraycopy(forward, 0, records, at + 2, hops + 1);
+        head[last] = recordCount++;
+        headStamp[last] = stamp;
+    }
+
+    // backward[0 .. hops] runs from u back against the edges; backward[hops]
+    // is the meeting account m, with m -> backward[hops - 1] -> ... -> u
+    private int walkBackward(int v, int hops, CycleConsumer consumer) {
+        int found = 0;
+        int meet = backward[hops];
+        if (hops > 0 && headStamp[meet] == stamp) {
+            found += join(meet, hops, consumer);
+        }
+        if (hops == backwardDepth) return found;
+
+        for (int i = 0; i < graph.inDegree(meet); i++) {
+            int previous = graph.inSource(meet, i);
+            if (previous == v || contains(backward, hops, previous)) continue;
+            backward[hops + 1] = previous;
+            found += walkBackward(v, hops + 1, consumer);
+        }
+        return found;
+    }
+
+    // Joins the backward half of backwardHops with every forward half ending
+    // at meet whose hop count is the canonical split of the total
+    private int join(int meet, int backwardHops, CycleConsumer consumer) {
+        int found = 0;
+        for (int r = head[meet]; r >= 0; r = records[r * recordWidth]) {
+            int at = r * recordWidth;
+            int forwardHops = records[at + 1];
+            int hops = forwardHops + backwardHops;
+            int length = hops + 1;
+            if (length < minLength || length > maxLength || forwardHops != (hops + 1) / 2) continue;
+            if (!disjoint(at + 2, forwardHops, backwardHops)) continue;
+
+            // u, v .. meet, then back towards u
+            path[0] = backward[0];
+            System.arraycopy(records, at + 2, path, 1, forwardHops + 1);
+            for (int i = 1; i < backwardHops; i++) {
+                path[forwardHops + 1 + i] = backward[backwardHops - i];
+            }
+            consumer.accept(path, length);
+            found++;
+        }
+        return found;
+    }
+
+    // The forward half's accounts before meet against the backward half's
+    // accounts between meet and u
+    private boolean disjoint(int from, int forwardHops, int backwardHops) {
+        for (int i = 0; i < forwardHops; i++) {
+            int account = records[from + i];
+            for (int j = 1; j < backwardHops; j++) {
+                if (backward[j] == account) return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean contains(int[] accounts, int last, int account) {
+        for (int i = 0; i <= last; i++) {
+            if (accounts[i] == account) return true;
+        }
+        return false;
+    }
+}
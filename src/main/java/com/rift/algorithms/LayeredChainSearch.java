@@ -0,0 +1,180 @@
+package com.rift.algorithms;
+
+import com.rift.repository.GraphRepository;
+import com.rift.repository.RingRegistry;
+import com.rift.repository.ShellCandidates;
+import java.util.*;
+
+// Scores layering chains (money passed along a line of accounts) without
+// enumerating them. A dynamic program over hop depth keeps, for every account
+// and every chain length, only the highest risk chain ending there, so memory
+// is O(accounts x maxAccounts) however many paths a hub fans out into.
+//
+// A chain's risk is the sum of its accounts' scores plus, for each
+// intermediate, up to PASS_THROUGH_WEIGHT for forwarding what it received
+// (passThrough 1 means equal amounts in and out). The best chain into an
+// account extends the best chain of one of its senders; senders whose best
+// chain already visits the account are passed over, so kept chains are
+// simple. On acyclic graphs this is exact; through cycles the best simple
+// chain may occasionally be missed in favour of the runner-up.
+//
+// Only shell candidates may sit in the middle of a chain. Each depth is
+// filled by pushing from the candidates that ended a chain one hop shorter,
+// so past the first hop the work is bounded by the candidates' edges rather
+// than the graph's.
+//
+// Alongside, the number of walks of every length (through candidates) is
+// counted, an upper bound on the number of chains a path enumeration would
+// have had to materialize.
+public class LayeredChainSearch {
+
+    public record Chain(int[] accounts, double risk) {}
+
+    static final double PASS_THROUGH_WEIGHT = 50;
+
+    private final GraphRepository graph;
+    private final ShellCandidates intermediates;
+    private final double[] scores;
+    private final double[] passThrough;
+    private final int maxAccounts;
+
+    // best[d][v]: risk of the best chain of d hops ending at v, NaN if none;
+    // parent[d][v]: the account before v on it
+    private final double[][] best;
+    private final int[][] parent;
+    private final long[] walkCounts;
+
+    public LayeredChainSearch(GraphRepository graph, double[] scores, double[] passThrough, int maxAccounts) {
+        this(graph, scores, passThrough, maxAccounts, ShellCandidates.all(graph.accountCount()));
+    }
+
+    public LayeredChainSearch(GraphRepository graph, double[] scores, double[] passThrough, int maxAccounts,
+                              ShellCandidates intermediates) {
+        this.graph = graph;
+        this.intermediates = intermediates;
+        this.scores = scores;
+        this.passThrough = passThrough;
+        this.maxAccounts = maxAccounts;
+        this.best = new double[maxAccounts][];
+        this.parent = new int[maxAccounts][];
+        this.walkCounts = new long[maxAccounts];
+        run();
+    }
+
+    private void run() {
+        int n = graph.accountCount();
+        best[0] = Arrays.copyOf(scores, n);
+        parent[0] = new int[n];
+        Arrays.fill(parent[0], -1);
+
+        long[] walks = new long[n];
+        Arrays.fill(walks, 1);
+        walkCounts[0] = n;
+
+        for (int hops = 1; hops < maxAccounts; hops++) {
+            best[hops] = new double[n];
+            Arrays.fill(best[hops], Double.NaN);
+            parent[hops] = new int[n];
+            Arrays.fill(parent[hops], -1);
+            long[] nextWalks = new long[n];
+
+            // Any account can start a chain; later hops continue from candidates only
+            int sources = hops == 1 ? n : intermediates.size();
+            for (int i = 0; i < sources; i++) {
+                int u = hops == 1 ? i : intermediates.account(i);
+                if (!Double.isNaN(best[hops - 1][u])) {
+                    extendFrom(hops, u);
+                }
+                for (int e = graph.outStart(u); e < graph.outEnd(u); e++) {
+                    nextWalks[graph.target(e)] = saturatedAdd(nextWalks[graph.target(e)], walks[u]);
+                }
+            }
+
+            long total = 0;
+            for (int v = 0; v < n; v++) {
+                if (parent[hops][v] >= 0) best[hops][v] += scores[v];
+                total = saturatedAdd(total, nextWalks[v]);
+            }
+            walks = nextWalks;
+            walkCounts[hops] = total;
+        }
+    }
+
+    // Offers u's best chain of hops - 1, extended by one edge, to each of u's
+    // receivers. Senders are visited in ascending order and only a strictly
+    // better offer replaces the current one, so the lowest of equal senders
+    // wins and the result does not depend on edge order.
+    private void extendFrom(int hops, int u) {
+        double risk = best[hops - 1][u];
+        // u stops being the end of the chain and becomes an intermediate
+        if (hops > 1) risk += PASS_THROUGH_WEIGHT * passThrough[u];
+        for (int e = graph.outStart(u); e < graph.outEnd(u); e++) {
+            int v = graph.target(e);
+            if ((parent[hops][v] < 0 || risk > best[hops][v]) && !onChain(hops - 1, u, v)) {
+                best[hops][v] = risk;
+                parent[hops][v] = u;
+            }
+        }
+    }
+
+    private boolean onChain(int hops, int end, int account) {
+        for (int d = hops, v = end; d >= 0; v = parent[d--][v]) {
+            if (v == account) return true;
+        }
+        return false;
+    }
+
+    // Walks of exactly this many hops, saturating at Long.MAX_VALUE
+    public long walkCount(int hops) {
+        return walkCounts[hops];
+    }
+
+    // Risk of the best chain of this many hops ending at the account, NaN if none
+    public double risk(int hops, int account) {
+        return best[hops][account];
+    }
+
+    public int[] chain(int hops, int end) {
+        int[] chain = new int[hops + 1];
+        for (int d = hops, v = end; d >= 0; v = parent[d--][v]) {
+            chain[d] = v;
+        }
+        return chain;
+    }
+
+    // Up to limit chains of minAccounts .. maxAccounts accounts, highest risk
+    // first. Each account contributes its longest chain; a chain whose accounts
+    // all belong to one already taken is skipped, so only maximal ones remain.
+    public List<Chain> topChains(int minAccounts, int limit) {
+        int n = graph.accountCount();
+        int[] depth = new int[n];
+        List<Integer> ends = new ArrayList<>();
+        for (int v = 0; v < n; v++) {
+            for (int hops = maxAccounts - 1; hops >= minAccounts - 1; hops--) {
+                if (!Double.isNaN(best[hops][v])) {
+                    depth[v] = hops;
+                    ends.add(v);
+                    break;
+                }
+            }
+        }
+        ends.sort((a, b) -> Double.compare(best[depth[b]][b], best[depth[a]][a]));
+
+        List<Chain> chains = new ArrayList<>();
+        RingRegistry taken = new RingRegistry(n);
+        for (int end : ends) {
+            if (chains.size() == limit) break;
+            int[] chain = chain(depth[end], end);
+            int[] members = RingRegistry.canonical(chain);
+            if (taken.isCovered(members)) continue;
+            taken.add(members);
+            chains.add(new Chain(chain, best[depth[end]][end]));
+        }
+        return chains;
+    }
+
+    private static long saturatedAdd(long a, long b) {
+        long sum = a + b;
+        return sum < 0 ? Long.MAX_VALUE : sum;
+    }
+}
@@ -1,96 +1,85 @@
 package com.rift.algorithms;
 
 import com.rift.model.*;
+import com.rift.repository.ShellCandidates;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import java.util.*;
 
 @Service
 public class LayeredNetworkDetector {
 
-    public void detectLayeredNetworks(DetectionResult result) {
-        Set<Set<String>> uniqueLayers = new HashSet<>();
-        Set<String> processedAccounts = new HashSet<>();
+    // A layering chain needs at least one account in the middle
+    private static final int MIN_CHAIN_ACCOUNTS = 3;
+    private static final int MAX_CHAIN_ACCOUNTS = 5;
 
-        // Find all chains
-        for (Account account : result.getAccounts().values()) {
-            if (!processedAccounts.contains(account.getAccountId())) {
-                List<List<String>> chains = findTransactionChains(account, result, 2);
+    // Most layered rings reported per analysis, highest risk first
+    @Value("${rift.layering.max-chains:200}")
+    private int maxChains;
 
-                for (List<String> chain : chains) {
-                    if (chain.size() >= 2) {
-                        Set<String> layerSet = new TreeSet<>(chain);
-                        uniqueLayers.add(layerSet);
-                        processedAccounts.addAll(chain);
-                    }
-                }
-            }
-        }
+    // Which accounts may sit in the middle of a chain, see ShellCandidates
+    @Value("${rift.layering.shell.max-counterparties:4}")
+    private int shellMaxCounterparties;
+    @Value("${rift.layering.shell.min-pass-through:0.8}")
+    private double shellMinPassThrough;
+    @Value("${rift.layering.shell.max-holding-hours:72}")
+    private long shellMaxHoldingHours;
 
-        // Also include single accounts that are part of patterns
-        for (Account account : result.getAccounts().values()) {
-            if (!account.getPatterns().isEmpty() && !processedAccounts.contains(account.getAccountId())) {
-                Set<String> singleSet = new TreeSet<>();
-                singleSet.add(account.getAccountId());
-                uniqueLayers.add(singleSet);
-            }
+    public void detectLayeredNetworks(DetectionResult result) {
+        List<Account> accounts = result.getIndexedAccounts();
+        double[] scores = new double[accounts.size()];
+        double[] passThrough = new double[accounts.size()];
+        for (Account account : accounts) {
+            scores[account.getIndex()] = account.getSuspicionScore();
+            passThrough[account.getIndex()] = passThrough(account);
         }
 
+        ShellCandidates shells = ShellCandidates.build(result.getTransactionStore(), result.getGraph(),
+                shellMaxCounterparties, shellMinPassThrough, shellMaxHoldingHours * 3600);
+        LayeredChainSearch search = new LayeredChainSearch(result.getGraph(), scores, passThrough,
+                MAX_CHAIN_ACCOUNTS, shells);
+        List<LayeredChainSearch.Chain> chains = search.topChains(MIN_CHAIN_ACCOUNTS, maxChains);
+
         int ringCounter = result.getRings().size();
 
-        for (Set<String> layerSet : uniqueLayers) {
-            if (layerSet.size() >= 2) { // Only create rings for 2+ accounts
-                String ringId = "RING_" + String.format("%03d", ++ringCounter);
-                FraudRing ring = new FraudRing(ringId, "layered");
+        for (LayeredChainSearch.Chain chain : chains) {
+            String ringId = "RING_" + String.format("%03d", ++ringCounter);
+            FraudRing ring = new FraudRing(ringId, "layered");
 
-                for (String accountId : layerSet) {
-                    Account account = result.getAccounts().get(accountId);
-                    if (account != null) {
-                        if (!account.getPatterns().contains("layered_network")) {
-                            account.getPatterns().add("layered_network");
-                        }
-                        ring.addAccountWithScore(accountId, account.getSuspicionScore());
+            Set<String> layerSet = new TreeSet<>();
+            for (int index : chain.accounts()) {
+                layerSet.add(result.getDictionary().name(index));
+            }
+            for (String accountId : layerSet) {
+                Account account = result.getAccounts().get(accountId);
+                if (account != null) {
+                    if (!account.getPatterns().contains("layered_network")) {
+                        account.getPatterns().add("layered_network");
                     }
+                    ring.addAccountWithScore(accountId, account.getSuspicionScore());
                 }
-
-                ring.calculateRiskScore();
-                result.getRings().put(ringId, ring);
             }
-        }
-    }
-
-    private List<List<String>> findTransactionChains(Account start,
-                                                     DetectionResult result, int minLength) {
-        List<List<String>> chains = new ArrayList<>();
-        dfs(start.getAccountId(), new ArrayList<>(), chains, result, minLength,
-                new HashSet<>());
-        return chains;
-    }
-
-    private void dfs(String currentId, List<String> path,
-                     List<List<String>> chains, DetectionResult result,
-                     int minLength, Set<String> visited) {
-
-        if (visited.contains(currentId)) {
-            return;
-        }
-
-        path.add(currentId);
-        visited.add(currentId);
 
-        if (path.size() >= minLength) {
-            chains.add(new ArrayList<>(path));
+            ring.calculateRiskScore();
+            result.getRings().put(ringId, ring);
         }
 
-        Account current = result.getAccounts().get(currentId);
-        if (current != null && path.size() < 5) {
-            for (String nextId : current.getOutgoingTo()) {
-                if (!visited.contains(nextId)) {
-                    dfs(nextId, path, chains, result, minLength, visited);
-                }
-            }
+        List<Long> walks = new ArrayList<>();
+        for (int hops = MIN_CHAIN_ACCOUNTS - 1; hops < MAX_CHAIN_ACCOUNTS; hops++) {
+            walks.add(search.walkCount(hops));
         }
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("shell_candidates", shells.size());
+        summary.put("walks_by_hops", walks);
+        summary.put("chains_reported", chains.size());
+        result.getSummary().put("layered_chains", summary);
+    }
 
-        path.remove(path.size() - 1);
-        visited.remove(currentId);
+    // 1 when the account sent on exactly what it received, 0 when it only
+    // did one of the two
+    static double passThrough(Account account) {
+        double in = account.getTotalReceived();
+        double out = account.getTotalSent();
+        return in > 0 && out > 0 ? Math.min(in, out) / Math.max(in, out) : 0;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,122 @@
+package com.rift.algorithms;
+
+import com.rift.repository.GraphRepository;
+import com.rift.repository.StronglyConnectedComponents;
+import com.rift.repository.TransactionStore;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+// Round trips: a transfer A -> B answered by a transfer B -> A at most
+// windowHours whole hours later. Each transfer is paired with its first
+// answer, the earliest reverse transfer after it in (timestamp, row) order,
+// so there is at most one round trip per transfer and the latency is the
+// shortest one it has. A self transfer answers itself, with latency 0.
+//
+// The join is keyed by counterparty: for each edge A -> B the graph's pair
+// index finds B -> A, and both edges' time indexes are already sorted, so one
+// merge walk over the two pairs up every transfer with its answer. Accounts
+// are independent and joined in parallel; the result is in the same order
+// either way, by initiating account, edge and time.
+public final class RoundTripJoin {
+
+    private static final int[] NONE = new int[0];
+
+    private final GraphRepository graph;
+    // Time index positions of each round trip's transfer and answer
+    private final int[] positions;
+    private final int[] answers;
+
+    private RoundTripJoin(GraphRepository graph, int[] positions, int[] answers) {
+        this.graph = graph;
+        this.positions = positions;
+        this.answers = answers;
+    }
+
+    public static RoundTripJoin find(GraphRepository graph, int windowHours) {
+        return find(graph, windowHours, true);
+    }
+
+    static RoundTripJoin find(GraphRepository graph, int windowHours, boolean parallel) {
+        int[][] byAccount = new int[graph.accountCount()][];
+        IntStream accounts = IntStream.range(0, graph.accountCount());
+        (parallel ? accounts.parallel() : accounts)
+                .forEach(account -> byAccount[account] = join(graph, account, windowHours));
+
+        int total = 0;
+        for (int[] pairs : byAccount) total += pairs.length / 2;
+        int[] positions = new int[total];
+        int[] answers = new int[total];
+        int i = 0;
+        for (int[] pairs : byAccount) {
+            for (int p = 0; p < pairs.length; p += 2, i++) {
+                positions[i] = pairs[p];
+                answers[i] = pairs[p + 1];
+            }
+        }
+        return new RoundTripJoin(graph, positions, answers);
+    }
+
+    // The round trips account started, as (position, answer position) pairs
+    private static int[] join(GraphRepository graph, int account, int windowHours) {
+        // Only counterparties with edges both ways can round-trip, and those
+        // always share a strongly connected component
+        StronglyConnectedComponents components = graph.components();
+        if (components.size(components.componentOf(account)) < 2 && !graph.hasEdge(account, account)) {
+            return NONE;
+        }
+
+        int[] pairs = NONE;
+        int count = 0;
+        for (int e = graph.outStart(account); e < graph.outEnd(account); e++) {
+            int reverse = graph.edge(graph.target(e), account);
+            if (reverse < 0) continue;
+
+            int answer = graph.timeStart(reverse);
+            for (int p = graph.timeStart(e); p < graph.timeEnd(e); p++) {
+                long time = graph.time(p);
+                int row = graph.timeRow(p);
+                while (answer < graph.timeEnd(reverse) && (graph.time(answer) < time
+                        || graph.time(answer) == time && graph.timeRow(answer) < row)) {
+                    answer++;
+                }
+                if (answer == graph.timeEnd(reverse)) break;
+
+                if ((graph.time(answer) - time) / 3600 <= windowHours) {
+                    if (count == pairs.length) {
+                        pairs = Arrays.copyOf(pairs, Math.max(8, 2 * pairs.length));
+                    }
+                    pairs[count++] = p;
+                    pairs[count++] = answer;
+                }
+            }
+        }
+        return Arrays.copyOf(pairs, count);
+    }
+
+    public int size() {
+        return positions.length;
+    }
+
+    // The store rows of the i-th round trip's transfer and of its answer
+    public int row(int i) {
+        return graph.timeRow(positions[i]);
+    }
+
+    public int answerRow(int i) {
+        return graph.timeRow(answers[i]);
+    }
+
+    public long latencySeconds(int i) {
+        return graph.time(answers[i]) - graph.time(positions[i]);
+    }
+
+    // Per account, whether it sent or received either side of a round trip
+    public boolean[] accounts(TransactionStore store) {
+        boolean[] involved = new boolean[graph.accountCount()];
+        for (int i = 0; i < positions.length; i++) {
+            involved[store.sender(row(i))] = true;
+            involved[store.receiver(row(i))] = true;
+        }
+        return involved;
+    }
+}
@@ -1,37 +1,52 @@
 package com.rift.algorithms;
 
 import com.rift.model.*;
+import com.rift.repository.TransactionStore;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import java.time.LocalDateTime;
 import java.util.*;
 import java.util.stream.Collectors;
 
 @Service
 public class SmurfingDetector {
 
-    private static final int FAN_IN_THRESHOLD = 10;
-    private static final int FAN_OUT_THRESHOLD = 10;
-    private static final int TIME_WINDOW_HOURS = 72;
+    // Accounts with fewer received (sent) transactions are not checked
+    @Value("${rift.smurfing.fan-in-threshold:10}")
+    private int fanInThreshold;
+    @Value("${rift.smurfing.fan-out-threshold:10}")
+    private int fanOutThreshold;
+    // Length of the sliding window, at least 1; set through setWindowHours
+    private long windowHours;
+    // A burst is this many distinct counterparties within one window
+    @Value("${rift.smurfing.min-counterparties:5}")
+    private int minCounterparties;
+
+    @Value("${rift.smurfing.window-hours:72}")
+    void setWindowHours(long windowHours) {
+        if (windowHours < 1) {
+            throw new IllegalArgumentException("rift.smurfing.window-hours must be at least 1, got " + windowHours);
+        }
+        this.windowHours = windowHours;
+    }
 
     public void detectSmurfing(DetectionResult result) {
-        int ringCounter = result.getRings().size();
-
         // Detect fan-in patterns (multiple senders to one receiver)
-        detectFanInPatterns(result, ringCounter);
+        detectFanInPatterns(result);
 
         // Detect fan-out patterns (one sender to multiple receivers)
-        detectFanOutPatterns(result, ringCounter);
+        detectFanOutPatterns(result);
     }
 
-    private void detectFanInPatterns(DetectionResult result, int ringCounter) {
-        for (Account account : result.getAccounts().values()) {
-            if (account.getIncomingCount() >= FAN_IN_THRESHOLD) {
-                // Check temporal clustering
-                List<Transaction> incomingTxs = account.getTransactions().stream()
-                        .filter(tx -> tx.getReceiverId().equals(account.getAccountId()))
-                        .collect(Collectors.toList());
-
-                if (hasTemporalClustering(incomingTxs)) {
+    private void detectFanInPatterns(DetectionResult result) {
+        TransactionStore store = result.getTransactionStore();
+        int[] counts = new int[store.accountCount()];
+        int ringCounter = result.getRings().size();
+        for (Account account : result.getIndexedAccounts()) {
+            if (account.getIncomingCount() >= fanInThreshold) {
+                // A burst of distinct senders within one window
+                if (hasBurst(store, account.getIndex(), false, windowHours * 3600,
+                        minCounterparties, counts)) {
+                    int[] incomingTxs = rows(store, account, false);
                     String ringId = "RING_" + String.format("%03d", ++ringCounter);
                     FraudRing ring = new FraudRing(ringId, "smurfing_fan_in");
 
@@ -43,7 +58,7 @@ public class SmurfingDetector {
                             account.getSuspicionScore());
 
                     // Add top suspicious senders
-                    Set<String> suspiciousSenders = findSuspiciousSenders(incomingTxs);
+                    Set<String> suspiciousSenders = findSuspiciousSenders(store, incomingTxs, result);
                     for (String senderId : suspiciousSenders) {
                         Account sender = result.getAccounts().get(senderId);
                         if (sender != null) {
@@ -62,14 +77,15 @@ public class SmurfingDetector {
         }
     }
 
-    private void detectFanOutPatterns(DetectionResult result, int ringCounter) {
-        for (Account account : result.getAccounts().values()) {
-            if (account.getOutgoingCount() >= FAN_OUT_THRESHOLD) {
-                List<Transaction> outgoingTxs = account.getTransactions().stream()
-                        .filter(tx -> tx.getSenderId().equals(account.getAccountId()))
-                        .collect(Collectors.toList());
-
-                if (hasTemporalClustering(outgoingTxs)) {
+    private void detectFanOutPatterns(DetectionResult result) {
+        TransactionStore store = result.getTransactionStore();
+        int[] counts = new int[store.accountCount()];
+        int ringCounter = result.getRings().size();
+        for (Account account : result.getIndexedAccounts()) {
+            if (account.getOutgoingCount() >= fanOutThreshold) {
+                if (hasBurst(store, account.getIndex(), true, windowHours * 3600,
+                        minCounterparties, counts)) {
+                    int[] outgoingTxs = rows(store, account, true);
                     String ringId = "RING_" + String.format("%03d", ++ringCounter);
                     FraudRing ring = new FraudRing(ringId, "smurfing_fan_out");
 
@@ -81,8 +97,8 @@ public class SmurfingDetector {
                             account.getSuspicionScore());
 
                     // Add receivers
-                    Set<String> receivers = outgoingTxs.stream()
-                            .map(Transaction::getReceiverId)
+                    Set<String> receivers = Arrays.stream(outgoingTxs)
+                            .mapToObj(row -> result.getDictionary().name(store.receiver(row)))
                             .collect(Collectors.toSet());
 
                     for (String receiverId : receivers) {
@@ -103,40 +119,68 @@ public class SmurfingDetector {
         }
     }
 
-    private boolean hasTemporalClustering(List<Transaction> transactions) {
-        if (transactions.size() < 3) return false;
-
-        transactions.sort(Comparator.comparing(Transaction::getTimestamp));
-
-        // Check if transactions cluster within 72-hour windows
-        LocalDateTime windowStart = transactions.get(0).getTimestamp();
-        int txInWindow = 0;
+    // The account's sent (or received) rows, in time order
+    private int[] rows(TransactionStore store, Account account, boolean sent) {
+        int from = sent ? store.sentStart(account.getIndex()) : store.receivedStart(account.getIndex());
+        int to = sent ? store.sentEnd(account.getIndex()) : store.receivedEnd(account.getIndex());
+        int[] rows = new int[to - from];
+        for (int slot = from; slot < to; slot++) {
+            rows[slot - from] = store.timelineRow(slot);
+        }
+        return rows;
+    }
 
-        for (Transaction tx : transactions) {
-            if (tx.getTimestamp().isBefore(windowStart.plusHours(TIME_WINDOW_HOURS))) {
-                txInWindow++;
-            } else {
-                if (txInWindow >= 5) return true; // 5+ transactions in window
-                windowStart = tx.getTimestamp();
-                txInWindow = 1;
+    // Whether some window of windowSeconds holds transactions with at least
+    // minCounterparties distinct counterparties on one side of the account.
+    // One pass over that side's timeline: the window ends at each row in turn
+    // and its start follows behind. counts holds the window's tally per
+    // counterparty and is all zero again on return.
+    static boolean hasBurst(TransactionStore store, int account, boolean sent, long windowSeconds,
+                            int minCounterparties, int[] counts) {
+        int start = sent ? store.sentStart(account) : store.receivedStart(account);
+        int last = sent ? store.sentEnd(account) : store.receivedEnd(account);
+        int end = start;
+        int distinct = 0;
+        boolean found = false;
+        while (end < last && !found) {
+            int row = store.timelineRow(end);
+            long time = store.epochSecond(row);
+            // The row itself is only counted below, so it is never evicted
+            while (start < end && store.epochSecond(store.timelineRow(start)) <= time - windowSeconds) {
+                if (--counts[counterparty(store, store.timelineRow(start++), sent)] == 0) {
+                    distinct--;
+                }
             }
+            end++;
+            if (counts[counterparty(store, row, sent)]++ == 0) {
+                distinct++;
+            }
+            found = distinct >= minCounterparties;
+        }
+
+        for (int slot = start; slot < end; slot++) {
+            counts[counterparty(store, store.timelineRow(slot), sent)] = 0;
         }
+        return found;
+    }
 
-        return txInWindow >= 5;
+    private static int counterparty(TransactionStore store, int row, boolean sent) {
+        return sent ? store.receiver(row) : store.sender(row);
     }
 
-    private Set<String> findSuspiciousSenders(List<Transaction> transactions) {
+    private Set<String> findSuspiciousSenders(TransactionStore store, int[] transactions,
+                                              DetectionResult result) {
         // Find senders with small amounts (smurfing)
-        double avgAmount = transactions.stream()
-                .mapToDouble(Transaction::getAmount)
+        double avgAmount = Arrays.stream(transactions)
+                .mapToDouble(store::amount)
                 .average()
                 .orElse(0);
 
         double threshold = avgAmount * 0.3; // 30% of average
 
-        return transactions.stream()
-                .filter(tx -> tx.getAmount() < threshold)
-                .map(Transaction::getSenderId)
+        return Arrays.stream(transactions)
+                .filter(row -> store.amount(row) < threshold)
+                .mapToObj(row -> result.getDictionary().name(store.sender(row)))
                 .collect(Collectors.toSet());
     }
-}
\ No newline at end of file
+}
@@ -1,48 +1,88 @@
 package com.rift.algorithms;
 
 import com.rift.model.*;
+import com.rift.repository.TransactionStore;
+import com.rift.utils.TopK;
 import org.springframework.stereotype.Service;
-import java.time.LocalDateTime;
-import java.time.temporal.ChronoUnit;
 import java.util.*;
 
 @Service
 public class TemporalAnalyzer {
 
-    public void analyzeTemporalPatterns(DetectionResult result) {
-        for (Account account : result.getAccounts().values()) {
-            List<Transaction> txs = account.getTransactions();
-            if (txs.size() < 2) continue;
+    // A transfer answered the other way within this many whole hours is a round trip
+    private static final int ROUND_TRIP_HOURS = 24;
+    // Fastest round trips listed in the summary
+    private static final int ROUND_TRIPS_LISTED = 10;
 
-            txs.sort(Comparator.comparing(Transaction::getTimestamp));
+    public void analyzeTemporalPatterns(DetectionResult result) {
+        TransactionStore store = result.getTransactionStore();
+        RoundTripJoin roundTrips = RoundTripJoin.find(result.getGraph(), ROUND_TRIP_HOURS);
+        boolean[] roundTripping = roundTrips.accounts(store);
+        for (Account account : result.getIndexedAccounts()) {
+            // The account's rows are already in time order
+            int from = store.accountStart(account.getIndex());
+            int to = store.accountEnd(account.getIndex());
+            if (to - from < 2) continue;
 
             // Detect high velocity (many transactions in short time)
-            if (hasHighVelocity(txs)) {
+            if (hasHighVelocity(store, from, to)) {
                 account.getPatterns().add("high_velocity");
             }
 
             // Detect unusual timing (night transactions, weekends)
-            if (hasUnusualTiming(txs)) {
+            if (hasUnusualTiming(store, from, to)) {
                 account.getPatterns().add("unusual_timing");
             }
 
             // Detect rapid round-tripping
-            if (hasRoundTripping(txs, result)) {
+            if (roundTripping[account.getIndex()]) {
                 account.getPatterns().add("round_tripping");
             }
         }
+        result.getSummary().put("round_trips", summarize(roundTrips, roundTripping, result));
     }
 
-    private boolean hasHighVelocity(List<Transaction> txs) {
+    private Map<String, Object> summarize(RoundTripJoin roundTrips, boolean[] roundTripping,
+                                          DetectionResult result) {
+        TransactionStore store = result.getTransactionStore();
+        TopK fastest = new TopK(ROUND_TRIPS_LISTED);
+        for (int i = 0; i < roundTrips.size(); i++) {
+            fastest.offer(-roundTrips.latencySeconds(i), i);
+        }
+        List<Map<String, Object>> listed = new ArrayList<>();
+        for (int slot : fastest.slotsInOrder()) {
+            int i = fastest.id(slot);
+            Map<String, Object> trip = new LinkedHashMap<>();
+            trip.put("from", result.getDictionary().name(store.sender(roundTrips.row(i))));
+            trip.put("to", result.getDictionary().name(store.receiver(roundTrips.row(i))));
+            trip.put("transaction_id", store.transactionId(roundTrips.row(i)));
+            trip.put("answer_transaction_id", store.transactionId(roundTrips.answerRow(i)));
+            trip.put("latency_minutes", roundTrips.latencySeconds(i) / 60);
+            listed.add(trip);
+        }
+
+        int accounts = 0;
+        for (boolean involved : roundTripping) {
+            if (involved) accounts++;
+        }
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("pairs", roundTrips.size());
+        summary.put("accounts", accounts);
+        summary.put("fastest", listed);
+        return summary;
+    }
+
+    private boolean hasHighVelocity(TransactionStore store, int from, int to) {
         int rapidTxCount = 0;
-        LocalDateTime windowStart = txs.get(0).getTimestamp();
+        long windowStart = store.epochSecond(store.row(from));
 
-        for (Transaction tx : txs) {
-            if (ChronoUnit.MINUTES.between(windowStart, tx.getTimestamp()) <= 60) {
+        for (int slot = from; slot < to; slot++) {
+            long timestamp = store.epochSecond(store.row(slot));
+            if ((timestamp - windowStart) / 60 <= 60) {
                 rapidTxCount++;
                 if (rapidTxCount >= 5) return true;
             } else {
-                windowStart = tx.getTimestamp();
+                windowStart = timestamp;
                 rapidTxCount = 1;
             }
         }
@@ -50,13 +90,13 @@ public class TemporalAnalyzer {
         return false;
     }
 
-    private boolean hasUnusualTiming(List<Transaction> txs) {
+    private boolean hasUnusualTiming(TransactionStore store, int from, int to) {
         int nightTxCount = 0;
         int weekendTxCount = 0;
 
-        for (Transaction tx : txs) {
-            LocalDateTime timestamp = tx.getTimestamp();
-            int hour = timestamp.getHour();
+        for (int slot = from; slot < to; slot++) {
+            long timestamp = store.epochSecond(store.row(slot));
+            int hour = TransactionStore.hourOfDay(timestamp);
 
             // Night transactions (11 PM - 5 AM)
             if (hour >= 23 || hour <= 5) {
@@ -64,37 +104,14 @@ public class TemporalAnalyzer {
             }
 
             // Weekend transactions
-            if (timestamp.getDayOfWeek().getValue() >= 6) {
+            if (TransactionStore.dayOfWeek(timestamp) >= 6) {
                 weekendTxCount++;
             }
         }
 
-        double nightRatio = (double) nightTxCount / txs.size();
-        double weekendRatio = (double) weekendTxCount / txs.size();
+        double nightRatio = (double) nightTxCount / (to - from);
+        double weekendRatio = (double) weekendTxCount / (to - from);
 
         return nightRatio > 0.3 || weekendRatio > 0.5;
     }
-
-    private boolean hasRoundTripping(List<Transaction> txs, DetectionResult result) {
-        // Check if money returns to source quickly
-        for (int i = 0; i < txs.size() - 1; i++) {
-            Transaction tx1 = txs.get(i);
-            for (int j = i + 1; j < txs.size(); j++) {
-                Transaction tx2 = txs.get(j);
-
-                if (tx1.getSenderId().equals(tx2.getReceiverId()) &&
-                        tx1.getReceiverId().equals(tx2.getSenderId())) {
-
-                    long hoursBetween = ChronoUnit.HOURS.between(
-                            tx1.getTimestamp(), tx2.getTimestamp());
-
-                    if (hoursBetween <= 24) {
-                        return true;
-                    }
-                }
-            }
-        }
-
-        return false;
-    }
-}
\ No newline at end of file
+}
@@ -1,28 +1,31 @@
 package com.rift.analaysis;
 
 import com.rift.model.Account;
-import com.rift.model.Transaction;
+import com.rift.model.DetectionResult;
+import com.rift.repository.GraphRepository;
+import com.rift.repository.PathEngine.PathSet;
+import com.rift.utils.TopK;
 import org.springframework.stereotype.Component;
 import java.util.*;
-import java.util.stream.Collectors;
 
 @Component
 public class FlowAnalyzer {
 
-    public Map<String, Object> analyzeFlow(Map<String, Account> accounts) {
+    public Map<String, Object> analyzeFlow(DetectionResult result) {
+        Map<String, Account> accounts = result.getAccounts();
         Map<String, Object> analysis = new LinkedHashMap<>();
 
         // 1. Money Hubs (accounts with high flow)
-        List<Map<String, Object>> hubs = findMoneyHubs(accounts);
+        List<Map<String, Object>> hubs = findMoneyHubs(result);
 
         // 2. Suspicious Paths
-        List<Map<String, Object>> paths = findSuspiciousPaths(accounts);
+        List<Map<String, Object>> paths = findSuspiciousPaths(result);
 
         // 3. Flow Velocity
         Map<String, Double> velocity = calculateFlowVelocity(accounts);
 
         // 4. Network Statistics
-        Map<String, Object> networkStats = calculateNetworkStats(accounts);
+        Map<String, Object> networkStats = calculateNetworkStats(result);
 
         // 5. Money Laundering Risk Index
         double mlRiskIndex = calculateMLRiskIndex(accounts, hubs, paths);
@@ -37,34 +40,41 @@ public class FlowAnalyzer {
         return analysis;
     }
 
-    private List<Map<String, Object>> findMoneyHubs(Map<String, Account> accounts) {
-        List<Map<String, Object>> hubs = new ArrayList<>();
-
-        for (Account account : accounts.values()) {
+    private List<Map<String, Object>> findMoneyHubs(DetectionResult result) {
+        // Only the best scoring hubs are turned into maps
+        TopK top = new TopK(result.getOptions().topHubs());
+        for (Account account : result.getIndexedAccounts()) {
             double totalFlow = account.getTotalSent() + account.getTotalReceived();
-            int connections = account.getIncomingFrom().size() + account.getOutgoingTo().size();
+            int connections = connections(account, result);
 
             // Hub criteria: high flow or many connections
             if (totalFlow > 5000 || connections > 5) {
-                Map<String, Object> hub = new LinkedHashMap<>();
-                hub.put("account_id", account.getAccountId());
-                hub.put("total_flow", totalFlow);
-                hub.put("connections", connections);
-                hub.put("incoming", account.getTotalReceived());
-                hub.put("outgoing", account.getTotalSent());
-                hub.put("hub_score", calculateHubScore(totalFlow, connections));
-                hub.put("risk_level", getRiskLevel(totalFlow, connections));
-
-                hubs.add(hub);
+                top.offer(calculateHubScore(totalFlow, connections), account.getIndex());
             }
         }
 
-        return hubs.stream()
-                .sorted((a, b) -> Double.compare(
-                        (double) b.get("hub_score"),
-                        (double) a.get("hub_score")))
-                .limit(5)
-                .collect(Collectors.toList());
+        List<Map<String, Object>> hubs = new ArrayList<>();
+        for (int slot : top.slotsInOrder()) {
+            Account account = result.getAccount(top.id(slot));
+            double totalFlow = account.getTotalSent() + account.getTotalReceived();
+            int connections = connections(account, result);
+
+            Map<String, Object> hub = new LinkedHashMap<>();
+            hub.put("account_id", account.getAccountId());
+            hub.put("total_flow", totalFlow);
+            hub.put("connections", connections);
+            hub.put("incoming", account.getTotalReceived());
+            hub.put("outgoing", account.getTotalSent());
+            hub.put("hub_score", top.score(slot));
+            hub.put("risk_level", getRiskLevel(totalFlow, connections));
+
+            hubs.add(hub);
+        }
+        return hubs;
+    }
+
+    private int connections(Account account, DetectionResult result) {
+        return result.getGraph().inDegree(account.getIndex()) + result.getGraph().outDegree(account.getIndex());
     }
 
     private double calculateHubScore(double totalFlow, int connections) {
@@ -79,109 +89,52 @@ public class FlowAnalyzer {
         return "LOW";
     }
 
-    private List<Map<String, Object>> findSuspiciousPaths(Map<String, Account> accounts) {
+    private List<Map<String, Object>> findSuspiciousPaths(DetectionResult result) {
         List<Map<String, Object>> paths = new ArrayList<>();
 
-        // Find all paths of length 2-4
-        for (Account start : accounts.values()) {
-            List<List<String>> foundPaths = findPaths(start, accounts, 3);
-
-            for (List<String> path : foundPaths) {
-                if (isPathSuspicious(path, accounts)) {
-                    Map<String, Object> pathInfo = new LinkedHashMap<>();
-                    pathInfo.put("path", String.join(" → ", path));
-                    pathInfo.put("length", path.size());
-                    pathInfo.put("total_amount", calculatePathAmount(path, accounts));
-                    pathInfo.put("avg_risk", calculateAverageRisk(path, accounts));
-                    pathInfo.put("pattern", detectPathPattern(path));
-
-                    paths.add(pathInfo);
-                }
-            }
+        // Paths of 2-3 accounts through low activity intermediates, shared
+        // with the other analyzers; only the riskiest are turned into maps
+        PathSet candidates = result.getGraph().paths().paths(PathQueries.lowActivityPaths(result));
+        TopK top = candidates.top(result.getOptions().topPaths(), PathQueries.averageSuspicion(result));
+
+        for (int slot : top.slotsInOrder()) {
+            int[] path = candidates.path(top.id(slot));
+            Map<String, Object> pathInfo = new LinkedHashMap<>();
+            pathInfo.put("path", String.join(" → ", accountIds(path, result)));
+            pathInfo.put("length", path.length);
+            pathInfo.put("total_amount", calculatePathAmount(path, result));
+            pathInfo.put("avg_risk", top.score(slot));
+            pathInfo.put("pattern", detectPathPattern(path.length));
+
+            paths.add(pathInfo);
         }
 
-        return paths.stream()
-                .sorted((a, b) -> Double.compare(
-                        (double) b.get("avg_risk"),
-                        (double) a.get("avg_risk")))
-                .limit(10)
-                .collect(Collectors.toList());
-    }
-
-    private List<List<String>> findPaths(Account start, Map<String, Account> accounts, int maxLength) {
-        List<List<String>> paths = new ArrayList<>();
-        findPathsDFS(start.getAccountId(), new ArrayList<>(), paths, accounts, maxLength, new HashSet<>());
         return paths;
     }
 
-    private void findPathsDFS(String current, List<String> path, List<List<String>> paths,
-                              Map<String, Account> accounts, int maxLength, Set<String> visited) {
-        if (path.size() >= maxLength) return;
-        if (visited.contains(current)) return;
-
-        path.add(current);
-        visited.add(current);
-
-        if (path.size() >= 2) {
-            paths.add(new ArrayList<>(path));
-        }
-
-        Account account = accounts.get(current);
-        if (account != null) {
-            for (String next : account.getOutgoingTo()) {
-                findPathsDFS(next, path, paths, accounts, maxLength, visited);
-            }
-        }
-
-        path.remove(path.size() - 1);
-        visited.remove(current);
-    }
-
-    private boolean isPathSuspicious(List<String> path, Map<String, Account> accounts) {
-        // Check if path has intermediate accounts with low activity
-        for (int i = 1; i < path.size() - 1; i++) {
-            Account intermediate = accounts.get(path.get(i));
-            if (intermediate != null && intermediate.getTransactionCount() > 3) {
-                return false; // Too active to be suspicious
-            }
+    private List<String> accountIds(int[] path, DetectionResult result) {
+        List<String> ids = new ArrayList<>(path.length);
+        for (int index : path) {
+            ids.add(result.getDictionary().name(index));
         }
-        return true;
+        return ids;
     }
 
-    private double calculatePathAmount(List<String> path, Map<String, Account> accounts) {
+    private double calculatePathAmount(int[] path, DetectionResult result) {
+        GraphRepository graph = result.getGraph();
         double total = 0.0;
-        for (int i = 0; i < path.size() - 1; i++) {
-            Account from = accounts.get(path.get(i));
-            if (from != null) {
-
-                // 👇 FIX START
-                final String nextAccount = path.get(i + 1);
-                // 👆 FIX END
-
-                Optional<Transaction> tx = from.getTransactions().stream()
-                        .filter(t -> t.getReceiverId().equals(nextAccount))
-                        .findFirst();
-
-                if (tx.isPresent()) {
-                    total += tx.get().getAmount();
-                }
-            }
+        for (int i = 0; i < path.length - 1; i++) {
+            // Earliest transfer along this hop
+            total += graph.firstAmount(graph.edge(path[i], path[i + 1]));
         }
         return total;
     }
 
 
-    private double calculateAverageRisk(List<String> path, Map<String, Account> accounts) {
-        return path.stream()
-                .mapToDouble(id -> accounts.get(id).getSuspicionScore())
-                .average()
-                .orElse(0);
-    }
-
-    private String detectPathPattern(List<String> path) {
-        if (path.size() == 2) return "DIRECT_TRANSFER";
-        if (path.size() == 3) return "TWO_HOP_LAYER";
-        if (path.size() == 4) return "THREE_HOP_LAYER";
+    private String detectPathPattern(int length) {
+        if (length == 2) return "DIRECT_TRANSFER";
+        if (length == 3) return "TWO_HOP_LAYER";
+        if (length == 4) return "THREE_HOP_LAYER";
         return "MULTI_HOP";
     }
 
@@ -200,54 +153,54 @@ public class FlowAnalyzer {
         return velocity;
     }
 
-    private Map<String, Object> calculateNetworkStats(Map<String, Account> accounts) {
+    private Map<String, Object> calculateNetworkStats(DetectionResult result) {
+        Map<String, Account> accounts = result.getAccounts();
         Map<String, Object> stats = new LinkedHashMap<>();
 
         int totalNodes = accounts.size();
-        int totalEdges = accounts.values().stream()
-                .mapToInt(a -> a.getOutgoingTo().size())
-                .sum();
+        int totalEdges = result.getGraph().edgeCount();
 
         stats.put("total_nodes", totalNodes);
         stats.put("total_edges", totalEdges);
         stats.put("density", totalNodes > 1 ? (double) totalEdges / (totalNodes * (totalNodes - 1)) : 0);
         stats.put("avg_connections", totalNodes > 0 ? (double) totalEdges / totalNodes : 0);
-        stats.put("is_connected", isNetworkConnected(accounts));
+        stats.put("is_connected", isNetworkConnected(result));
 
         return stats;
     }
 
-    private boolean isNetworkConnected(Map<String, Account> accounts) {
+    private boolean isNetworkConnected(DetectionResult result) {
+        List<Account> accounts = result.getIndexedAccounts();
         if (accounts.isEmpty()) return false;
 
-        Set<String> visited = new HashSet<>();
-        Queue<String> queue = new LinkedList<>();
-
-        String start = accounts.keySet().iterator().next();
-        queue.add(start);
-        visited.add(start);
-
-        while (!queue.isEmpty()) {
-            String current = queue.poll();
-            Account account = accounts.get(current);
-
-            if (account != null) {
-                for (String next : account.getOutgoingTo()) {
-                    if (!visited.contains(next)) {
-                        visited.add(next);
-                        queue.add(next);
-                    }
+        boolean[] visited = new boolean[accounts.size()];
+        int[] queue = new int[accounts.size()];
+        int head = 0;
+        int tail = 0;
+
+        queue[tail++] = 0;
+        visited[0] = true;
+
+        GraphRepository graph = result.getGraph();
+        while (head < tail) {
+            int current = queue[head++];
+            for (int e = graph.outStart(current); e < graph.outEnd(current); e++) {
+                int next = graph.target(e);
+                if (!visited[next]) {
+                    visited[next] = true;
+                    queue[tail++] = next;
                 }
-                for (String next : account.getIncomingFrom()) {
-                    if (!visited.contains(next)) {
-                        visited.add(next);
-                        queue.add(next);
-                    }
+            }
+            for (int slot = graph.inStart(current); slot < graph.inEnd(current); slot++) {
+                int next = graph.source(slot);
+                if (!visited[next]) {
+                    visited[next] = true;
+                    queue[tail++] = next;
                 }
             }
         }
 
-        return visited.size() == accounts.size();
+        return tail == accounts.size();
     }
 
     private double calculateTotalFlow(Map<String, Account> accounts) {
@@ -1,22 +1,25 @@
 package com.rift.analaysis;
 
 import com.rift.model.Account;
-import com.rift.model.Transaction;
+import com.rift.model.DetectionResult;
+import com.rift.repository.GraphRepository;
+import com.rift.repository.PathEngine.PathSet;
+import com.rift.utils.TopK;
 import org.springframework.stereotype.Component;
 import java.util.*;
-import java.util.stream.Collectors;
 
 @Component
 public class NetworkFlowAnalyzer {
 
-    public Map<String, Object> analyzeFlow(Map<String, Account> accounts) {
+    public Map<String, Object> analyzeFlow(DetectionResult result) {
+        Map<String, Account> accounts = result.getAccounts();
         Map<String, Object> flowAnalysis = new LinkedHashMap<>();
 
         // Find money hubs
-        List<Map<String, Object>> hubs = findMoneyHubs(accounts);
+        List<Map<String, Object>> hubs = findMoneyHubs(result);
 
         // Find flow paths
-        List<Map<String, Object>> paths = findSuspiciousPaths(accounts);
+        List<Map<String, Object>> paths = findSuspiciousPaths(result);
 
         // Calculate flow velocity
         Map<String, Double> velocity = calculateFlowVelocity(accounts);
@@ -24,131 +27,84 @@ public class NetworkFlowAnalyzer {
         flowAnalysis.put("money_hubs", hubs);
         flowAnalysis.put("suspicious_paths", paths);
         flowAnalysis.put("flow_velocity", velocity);
-        flowAnalysis.put("network_density", calculateNetworkDensity(accounts));
+        flowAnalysis.put("network_density", calculateNetworkDensity(result));
 
         return flowAnalysis;
     }
 
-    private List<Map<String, Object>> findMoneyHubs(Map<String, Account> accounts) {
-        List<Map<String, Object>> hubs = new ArrayList<>();
-
-        for (Account account : accounts.values()) {
+    // The biggest hubs by total flow
+    private List<Map<String, Object>> findMoneyHubs(DetectionResult result) {
+        TopK top = new TopK(result.getOptions().topHubs());
+        for (Account account : result.getIndexedAccounts()) {
             double totalFlow = account.getTotalSent() + account.getTotalReceived();
-            int connectionCount = account.getIncomingFrom().size() + account.getOutgoingTo().size();
-
-            if (totalFlow > 10000 || connectionCount > 10) {
-                Map<String, Object> hub = new LinkedHashMap<>();
-                hub.put("account_id", account.getAccountId());
-                hub.put("total_flow", totalFlow);
-                hub.put("connections", connectionCount);
-                hub.put("incoming_ratio", (double) account.getIncomingCount() /
-                        (account.getIncomingCount() + account.getOutgoingCount()));
-                hub.put("suspicion_score", account.getSuspicionScore());
-
-                hubs.add(hub);
+            if (totalFlow > 10000 || connections(account, result) > 10) {
+                top.offer(totalFlow, account.getIndex());
             }
         }
 
-        return hubs;
-    }
-
-    private List<Map<String, Object>> findSuspiciousPaths(Map<String, Account> accounts) {
-        List<Map<String, Object>> paths = new ArrayList<>();
-
-        // Find all paths of length 3-4
-        for (Account start : accounts.values()) {
-            List<List<String>> foundPaths = findPaths(start, accounts, 3);
-
-            for (List<String> path : foundPaths) {
-                if (isPathSuspicious(path, accounts)) {
-                    Map<String, Object> pathInfo = new LinkedHashMap<>();
-                    pathInfo.put("path", path);
-                    pathInfo.put("length", path.size());
-                    pathInfo.put("total_amount", calculatePathAmount(path, accounts));
-                    pathInfo.put("risk_score", calculatePathRisk(path, accounts));
-
-                    paths.add(pathInfo);
-                }
-            }
+        List<Map<String, Object>> hubs = new ArrayList<>();
+        for (int slot : top.slotsInOrder()) {
+            Account account = result.getAccount(top.id(slot));
+            Map<String, Object> hub = new LinkedHashMap<>();
+            hub.put("account_id", account.getAccountId());
+            hub.put("total_flow", top.score(slot));
+            hub.put("connections", connections(account, result));
+            hub.put("incoming_ratio", (double) account.getIncomingCount() /
+                    (account.getIncomingCount() + account.getOutgoingCount()));
+            hub.put("suspicion_score", account.getSuspicionScore());
+
+            hubs.add(hub);
         }
 
-        return paths;
+        return hubs;
     }
 
-    private List<List<String>> findPaths(Account start, Map<String, Account> accounts, int maxLength) {
-        List<List<String>> paths = new ArrayList<>();
-        findPathsDFS(start.getAccountId(), new ArrayList<>(), paths, accounts, maxLength, new HashSet<>());
-        return paths;
+    private int connections(Account account, DetectionResult result) {
+        return result.getGraph().inDegree(account.getIndex()) + result.getGraph().outDegree(account.getIndex());
     }
 
-    private void findPathsDFS(String current, List<String> path, List<List<String>> paths,
-                              Map<String, Account> accounts, int maxLength, Set<String> visited) {
-        if (path.size() >= maxLength) return;
-        if (visited.contains(current)) return;
+    // The riskiest paths, by mean suspicion score of their accounts
+    private List<Map<String, Object>> findSuspiciousPaths(DetectionResult result) {
+        List<Map<String, Object>> paths = new ArrayList<>();
 
-        path.add(current);
-        visited.add(current);
+        // Paths of 2-3 accounts through low activity intermediates, shared
+        // with the other analyzers; only the riskiest are turned into maps
+        PathSet candidates = result.getGraph().paths().paths(PathQueries.lowActivityPaths(result));
+        TopK top = candidates.top(result.getOptions().topPaths(), PathQueries.averageSuspicion(result));
 
-        if (path.size() >= 2) {
-            paths.add(new ArrayList<>(path));
-        }
+        for (int slot : top.slotsInOrder()) {
+            int[] path = candidates.path(top.id(slot));
+            Map<String, Object> pathInfo = new LinkedHashMap<>();
+            pathInfo.put("path", accountIds(path, result));
+            pathInfo.put("length", path.length);
+            pathInfo.put("total_amount", calculatePathAmount(path, result));
+            pathInfo.put("risk_score", top.score(slot));
 
-        Account account = accounts.get(current);
-        if (account != null) {
-            for (String next : account.getOutgoingTo()) {
-                findPathsDFS(next, path, paths, accounts, maxLength, visited);
-            }
+            paths.add(pathInfo);
         }
 
-        path.remove(path.size() - 1);
-        visited.remove(current);
+        return paths;
     }
 
-    private boolean isPathSuspicious(List<String> path, Map<String, Account> accounts) {
-        // Check if intermediate accounts have low transaction counts
-        for (int i = 1; i < path.size() - 1; i++) {
-            Account intermediate = accounts.get(path.get(i));
-            if (intermediate != null && intermediate.getTransactionCount() > 3) {
-                return false;
-            }
+    private List<String> accountIds(int[] path, DetectionResult result) {
+        List<String> ids = new ArrayList<>(path.length);
+        for (int index : path) {
+            ids.add(result.getDictionary().name(index));
         }
-        return true;
+        return ids;
     }
 
-    private double calculatePathAmount(List<String> path, Map<String, Account> accounts) {
+    private double calculatePathAmount(int[] path, DetectionResult result) {
+        GraphRepository graph = result.getGraph();
         double total = 0.0;
-        for (int i = 0; i < path.size() - 1; i++) {
-            Account from = accounts.get(path.get(i));
-            if (from != null) {
-
-                // 👇 FIX START
-                final String nextAccount = path.get(i + 1);
-                // 👆 FIX END
-
-                Optional<Transaction> tx = from.getTransactions().stream()
-                        .filter(t -> t.getReceiverId().equals(nextAccount))
-                        .findFirst();
-
-                if (tx.isPresent()) {
-                    total += tx.get().getAmount();
-                }
-            }
+        for (int i = 0; i < path.length - 1; i++) {
+            // Earliest transfer along this hop
+            total += graph.firstAmount(graph.edge(path[i], path[i + 1]));
         }
         return total;
     }
 
 
-    private double calculatePathRisk(List<String> path, Map<String, Account> accounts) {
-        double totalRisk = 0.0;
-        for (String accountId : path) {
-            Account account = accounts.get(accountId);
-            if (account != null) {
-                totalRisk += account.getSuspicionScore();
-            }
-        }
-        return totalRisk / path.size();
-    }
-
     private Map<String, Double> calculateFlowVelocity(Map<String, Account> accounts) {
         Map<String, Double> velocity = new HashMap<>();
 
@@ -163,13 +119,9 @@ public class NetworkFlowAnalyzer {
         return velocity;
     }
 
-    private double calculateNetworkDensity(Map<String, Account> accounts) {
-        int totalPossibleEdges = accounts.size() * (accounts.size() - 1);
-        int actualEdges = 0;
-
-        for (Account account : accounts.values()) {
-            actualEdges += account.getOutgoingTo().size();
-        }
+    private double calculateNetworkDensity(DetectionResult result) {
+        int totalPossibleEdges = result.getAccounts().size() * (result.getAccounts().size() - 1);
+        int actualEdges = result.getGraph().edgeCount();
 
         return totalPossibleEdges > 0 ? (double) actualEdges / totalPossibleEdges : 0;
     }
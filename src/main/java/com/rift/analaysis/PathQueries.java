@@ -0,0 +1,36 @@
+package com.rift.analaysis;
+
+import com.rift.model.DetectionResult;
+import com.rift.repository.PathEngine.PathQuery;
+import com.rift.repository.PathEngine.PathScorer;
+
+// Path queries the analyzers share. Queries are cached per graph by name, so
+// every analyzer asking for the same one reuses a single walk of the dataset.
+final class PathQueries {
+
+    private PathQueries() {
+    }
+
+    // Paths of 2-3 accounts whose middle account has at most 3 transactions,
+    // i.e. could be a pass-through
+    static PathQuery lowActivityPaths(DetectionResult result) {
+        return new PathQuery("low_activity_intermediates", 2, 3,
+                index -> result.getAccount(index).getTransactionCount() <= 3);
+    }
+
+    // Every chain of exactly this many accounts
+    static PathQuery chains(int accounts) {
+        return new PathQuery("chains", accounts, accounts, PathQuery.ANY);
+    }
+
+    // Mean suspicion score of the path's accounts
+    static PathScorer averageSuspicion(DetectionResult result) {
+        return (path, length) -> {
+            double total = 0;
+            for (int i = 0; i < length; i++) {
+                total += result.getAccount(path[i]).getSuspicionScore();
+            }
+            return total / length;
+        };
+    }
+}
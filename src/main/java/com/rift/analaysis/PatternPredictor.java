@@ -1,26 +1,30 @@
 package com.rift.analaysis;
 
 import com.rift.model.Account;
-import com.rift.model.Transaction;
+import com.rift.model.DetectionResult;
+import com.rift.repository.GraphRepository;
+import com.rift.repository.TransactionStore;
 import org.springframework.stereotype.Component;
 import java.util.*;
+import java.util.stream.IntStream;
 import java.time.*;
 import java.time.temporal.ChronoUnit;
 
 @Component
 public class PatternPredictor {
 
-    public Map<String, Object> predictEmergingPatterns(List<Account> accounts) {
+    public Map<String, Object> predictEmergingPatterns(DetectionResult result) {
+        List<Account> accounts = result.getIndexedAccounts();
         Map<String, Object> predictions = new LinkedHashMap<>();
 
         // 1. Emerging cycles
-        List<Map<String, Object>> emergingCycles = findEmergingCycles(accounts);
+        List<Map<String, Object>> emergingCycles = findEmergingCycles(result);
 
         // 2. Smurfing patterns
-        List<Map<String, Object>> smurfingPatterns = findSmurfingPatterns(accounts);
+        List<Map<String, Object>> smurfingPatterns = findSmurfingPatterns(result);
 
         // 3. Layered networks
-        List<Map<String, Object>> layeredNetworks = findLayeredNetworks(accounts);
+        List<Map<String, Object>> layeredNetworks = findLayeredNetworks(result);
 
         // 4. Risk forecast for next 24h
         Map<String, Object> forecast = generateForecast(accounts);
@@ -34,26 +38,25 @@ public class PatternPredictor {
         return predictions;
     }
 
-    private List<Map<String, Object>> findEmergingCycles(List<Account> accounts) {
+    private List<Map<String, Object>> findEmergingCycles(DetectionResult result) {
         List<Map<String, Object>> cycles = new ArrayList<>();
 
         // Look for potential cycles (A→B, B→C, C→? not yet A)
-        for (Account a : accounts) {
-            for (String b : a.getOutgoingTo()) {
-                Account accB = findAccount(accounts, b);
-                if (accB != null) {
-                    for (String c : accB.getOutgoingTo()) {
-                        Account accC = findAccount(accounts, c);
-                        if (accC != null && !accC.getOutgoingTo().contains(a.getAccountId())) {
-                            // Potential cycle forming
-                            Map<String, Object> cycle = new LinkedHashMap<>();
-                            cycle.put("accounts", List.of(a.getAccountId(), b, c));
-                            cycle.put("completion_probability", calculateCompletionProbability(accC, a));
-                            cycle.put("estimated_risk", 85.0);
-                            cycle.put("pattern", "CYCLE_FORMING");
-
-                            cycles.add(cycle);
-                        }
+        GraphRepository graph = result.getGraph();
+        for (Account a : result.getIndexedAccounts()) {
+            for (int ab = graph.outStart(a.getIndex()); ab < graph.outEnd(a.getIndex()); ab++) {
+                Account accB = result.getAccount(graph.target(ab));
+                for (int bc = graph.outStart(accB.getIndex()); bc < graph.outEnd(accB.getIndex()); bc++) {
+                    Account accC = result.getAccount(graph.target(bc));
+                    if (!graph.hasEdge(accC.getIndex(), a.getIndex())) {
+                        // Potential cycle forming
+                        Map<String, Object> cycle = new LinkedHashMap<>();
+                        cycle.put("accounts", List.of(a.getAccountId(), accB.getAccountId(), accC.getAccountId()));
+                        cycle.put("completion_probability", calculateCompletionProbability(accC, a, result));
+                        cycle.put("estimated_risk", 85.0);
+                        cycle.put("pattern", "CYCLE_FORMING");
+
+                        cycles.add(cycle);
                     }
                 }
             }
@@ -62,9 +65,12 @@ public class PatternPredictor {
         return cycles;
     }
 
-    private double calculateCompletionProbability(Account from, Account to) {
+    private double calculateCompletionProbability(Account from, Account to, DetectionResult result) {
+        GraphRepository graph = result.getGraph();
+        TransactionStore store = result.getTransactionStore();
+
         // Probability that from will send to to
-        if (from.getOutgoingTo().contains(to.getAccountId())) {
+        if (graph.hasEdge(from.getIndex(), to.getIndex())) {
             return 1.0; // Already complete
         }
 
@@ -72,17 +78,17 @@ public class PatternPredictor {
         double probability = 0.3; // Base probability
 
         // If they've transacted before in opposite direction
-        if (from.getIncomingFrom().contains(to.getAccountId())) {
+        if (graph.hasEdge(to.getIndex(), from.getIndex())) {
             probability += 0.4;
         }
 
         // If amounts are similar
-        double avgFromAmount = from.getTransactions().stream()
-                .mapToDouble(Transaction::getAmount)
+        double avgFromAmount = store.rows(from.getIndex())
+                .mapToDouble(store::amount)
                 .average()
                 .orElse(0);
-        double avgToAmount = to.getTransactions().stream()
-                .mapToDouble(Transaction::getAmount)
+        double avgToAmount = store.rows(to.getIndex())
+                .mapToDouble(store::amount)
                 .average()
                 .orElse(0);
 
@@ -93,14 +99,14 @@ public class PatternPredictor {
         return Math.min(1.0, probability);
     }
 
-    private List<Map<String, Object>> findSmurfingPatterns(List<Account> accounts) {
+    private List<Map<String, Object>> findSmurfingPatterns(DetectionResult result) {
         List<Map<String, Object>> patterns = new ArrayList<>();
+        TransactionStore store = result.getTransactionStore();
 
         // Look for accounts receiving many small transactions
-        for (Account account : accounts) {
-            long smallTxns = account.getTransactions().stream()
-                    .filter(tx -> tx.getReceiverId().equals(account.getAccountId()))
-                    .filter(tx -> tx.getAmount() < 100)
+        for (Account account : result.getIndexedAccounts()) {
+            long smallTxns = received(store, account.getIndex())
+                    .filter(row -> store.amount(row) < 100)
                     .count();
 
             if (smallTxns > 3) {
@@ -108,7 +114,7 @@ public class PatternPredictor {
                 Map<String, Object> pattern = new LinkedHashMap<>();
                 pattern.put("target_account", account.getAccountId());
                 pattern.put("small_transactions", smallTxns);
-                pattern.put("suspicious_senders", findSuspiciousSenders(account));
+                pattern.put("suspicious_senders", findSuspiciousSenders(account, result));
                 pattern.put("pattern_type", "SMURFING");
                 pattern.put("confidence", Math.min(100, smallTxns * 20));
 
@@ -119,91 +125,56 @@ public class PatternPredictor {
         return patterns;
     }
 
-    private List<String> findSuspiciousSenders(Account receiver) {
-        return receiver.getTransactions().stream()
-                .filter(tx -> tx.getReceiverId().equals(receiver.getAccountId()))
-                .filter(tx -> tx.getAmount() < 100)
-                .map(Transaction::getSenderId)
+    private List<String> findSuspiciousSenders(Account receiver, DetectionResult result) {
+        TransactionStore store = result.getTransactionStore();
+        return received(store, receiver.getIndex())
+                .filter(row -> store.amount(row) < 100)
+                .map(store::sender)
                 .distinct()
+                .mapToObj(sender -> result.getDictionary().name(sender))
                 .limit(5)
                 .toList();
     }
 
-    private List<Map<String, Object>> findLayeredNetworks(List<Account> accounts) {
-        List<Map<String, Object>> networks = new ArrayList<>();
-
-        // Find chains of 3+ accounts
-        for (Account start : accounts) {
-            List<List<String>> chains = findChains(start, accounts, 3);
-
-            for (List<String> chain : chains) {
-                if (chain.size() >= 3) {
-                    Map<String, Object> network = new LinkedHashMap<>();
-                    network.put("chain", String.join(" → ", chain));
-                    network.put("length", chain.size());
-                    network.put("expansion_rate", calculateExpansionRate(chain, accounts));
-                    network.put("estimated_risk", 75.0);
-
-                    networks.add(network);
-                }
-            }
-        }
-
-        return networks;
-    }
-
-    private List<List<String>> findChains(Account start, List<Account> accounts, int maxLength) {
-        List<List<String>> chains = new ArrayList<>();
-        findChainsDFS(start.getAccountId(), new ArrayList<>(), chains, accounts, maxLength, new HashSet<>());
-        return chains;
+    private IntStream received(TransactionStore store, int account) {
+        return IntStream.range(store.receivedStart(account), store.receivedEnd(account))
+                .map(store::timelineRow);
     }
 
-    private void findChainsDFS(String current, List<String> path, List<List<String>> chains,
-                               List<Account> accounts, int maxLength, Set<String> visited) {
-        if (path.size() >= maxLength) return;
-        if (visited.contains(current)) return;
-
-        path.add(current);
-        visited.add(current);
-
-        if (path.size() >= 2) {
-            chains.add(new ArrayList<>(path));
-        }
+    private List<Map<String, Object>> findLayeredNetworks(DetectionResult result) {
+        List<Map<String, Object>> networks = new ArrayList<>();
 
-        Account account = findAccount(accounts, current);
-        if (account != null) {
-            for (String next : account.getOutgoingTo()) {
-                findChainsDFS(next, path, chains, accounts, maxLength, visited);
+        // Chains of 3 accounts; streamed, nothing else asks for them
+        result.getGraph().paths().stream(PathQueries.chains(3), (chain, length) -> {
+            List<String> accountIds = new ArrayList<>(length);
+            for (int i = 0; i < length; i++) {
+                accountIds.add(result.getDictionary().name(chain[i]));
             }
-        }
+            Map<String, Object> network = new LinkedHashMap<>();
+            network.put("chain", String.join(" → ", accountIds));
+            network.put("length", length);
+            network.put("expansion_rate", calculateExpansionRate(result.getAccount(chain[length - 1]), result));
+            network.put("estimated_risk", 75.0);
 
-        path.remove(path.size() - 1);
-        visited.remove(current);
+            networks.add(network);
+        });
+
+        return networks;
     }
 
-    private double calculateExpansionRate(List<String> chain, List<Account> accounts) {
+    private double calculateExpansionRate(Account last, DetectionResult result) {
         // How fast is this chain growing?
-        Account last = findAccount(accounts, chain.get(chain.size() - 1));
-        if (last == null) return 0;
-
         // New connections in last 24h
-        LocalDateTime dayAgo = LocalDateTime.now().minus(24, ChronoUnit.HOURS);
+        long dayAgo = LocalDateTime.now().minus(24, ChronoUnit.HOURS).toEpochSecond(ZoneOffset.UTC);
+        TransactionStore store = result.getTransactionStore();
 
-        long newConnections = last.getTransactions().stream()
-                .filter(tx -> tx.getTimestamp().isAfter(dayAgo))
-                .filter(tx -> tx.getSenderId().equals(last.getAccountId()))
-                .count();
+        // The sent timeline is in time order, so the last day is a range of it
+        long newConnections = store.sentEnd(last.getIndex())
+                - store.firstSentAtOrAfter(last.getIndex(), dayAgo + 1);
 
         return newConnections / 24.0; // Per hour
     }
 
-    private Account findAccount(List<Account> accounts, String id) {
-        return accounts.stream()
-                .filter(a -> a.getAccountId().equals(id))
-                .findFirst()
-                .orElse(null);
-    }
-
     private Map<String, Object> generateForecast(List<Account> accounts) {
         Map<String, Object> forecast = new LinkedHashMap<>();
 
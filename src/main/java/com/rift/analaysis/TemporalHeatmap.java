@@ -1,20 +1,21 @@
 package com.rift.analaysis;
 
-import com.rift.model.Transaction;
+import com.rift.repository.HeatmapGrid;
 import org.springframework.stereotype.Component;
-import java.time.*;
 import java.util.*;
 
 @Component
 public class TemporalHeatmap {
 
-    public Map<String, Object> generateHeatmap(List<Transaction> transactions) {
+    // Renders the grid; each transaction counts once
+    public Map<String, Object> generateHeatmap(HeatmapGrid grid) {
+        long transactionCount = grid.transactionCount();
         Map<String, Object> heatmap = new LinkedHashMap<>();
 
         // Hour of day analysis (0-23)
-        Map<Integer, Integer> hourlyDistribution = new TreeMap<>();
+        Map<Integer, Long> hourlyDistribution = new TreeMap<>();
         // Day of week analysis (1-7, Monday=1)
-        Map<Integer, Integer> dailyDistribution = new TreeMap<>();
+        Map<Integer, Long> dailyDistribution = new TreeMap<>();
         // Amount by time
         Map<String, Double> amountByTime = new HashMap<>();
         // Suspicious time slots
@@ -22,44 +23,42 @@ public class TemporalHeatmap {
 
         // Initialize all hours with 0
         for (int i = 0; i < 24; i++) {
-            hourlyDistribution.put(i, 0);
+            hourlyDistribution.put(i, 0L);
         }
 
-        // Analyze each transaction
-        for (Transaction tx : transactions) {
-            LocalDateTime timestamp = tx.getTimestamp();
-            int hour = timestamp.getHour();
-            int day = timestamp.getDayOfWeek().getValue();
+        for (int day = 1; day <= 7; day++) {
+            for (int hour = 0; hour < 24; hour++) {
+                long count = grid.count(day, hour);
+                if (count == 0) continue;
 
-            hourlyDistribution.merge(hour, 1, Integer::sum);
-            dailyDistribution.merge(day, 1, Integer::sum);
-
-            String timeKey = String.format("%d-%02d", day, hour);
-            amountByTime.merge(timeKey, tx.getAmount(), Double::sum);
+                hourlyDistribution.merge(hour, count, Long::sum);
+                dailyDistribution.merge(day, count, Long::sum);
+                amountByTime.put(String.format("%d-%02d", day, hour), grid.amount(day, hour));
+            }
         }
 
         // Find suspicious patterns
         // 1. Late night activity (12 AM - 4 AM)
-        int nightTxns = 0;
+        long nightTxns = 0;
         for (int h = 0; h <= 4; h++) {
             nightTxns += hourlyDistribution.get(h);
         }
-        if (nightTxns > transactions.size() * 0.2) {
+        if (nightTxns > transactionCount * 0.2) {
             suspiciousTimes.add("UNUSUAL_NIGHT_ACTIVITY");
         }
 
         // 2. Weekend spikes
-        int weekendTxns = dailyDistribution.entrySet().stream()
+        long weekendTxns = dailyDistribution.entrySet().stream()
                 .filter(e -> e.getKey() >= 6)
-                .mapToInt(Map.Entry::getValue)
+                .mapToLong(Map.Entry::getValue)
                 .sum();
-        if (weekendTxns > transactions.size() * 0.3) {
+        if (weekendTxns > transactionCount * 0.3) {
             suspiciousTimes.add("WEEKEND_SPIKE");
         }
 
         // 3. Rapid successive transactions
-        int rapidTxns = countRapidTransactions(transactions);
-        if (rapidTxns > transactions.size() * 0.5) {
+        long rapidTxns = grid.rapidCount();
+        if (rapidTxns > transactionCount * 0.5) {
             suspiciousTimes.add("RAPID_TRANSACTIONS");
         }
 
@@ -73,59 +72,42 @@ public class TemporalHeatmap {
         return heatmap;
     }
 
-    private int countRapidTransactions(List<Transaction> transactions) {
-        int count = 0;
-        transactions.sort(Comparator.comparing(Transaction::getTimestamp));
-
-        for (int i = 1; i < transactions.size(); i++) {
-            long minutes = Duration.between(
-                    transactions.get(i-1).getTimestamp(),
-                    transactions.get(i).getTimestamp()
-            ).toMinutes();
-
-            if (minutes < 5) { // Less than 5 minutes apart
-                count++;
-            }
-        }
-        return count;
-    }
-
-    private int findPeakHour(Map<Integer, Integer> distribution) {
+    private int findPeakHour(Map<Integer, Long> distribution) {
         return distribution.entrySet().stream()
                 .max(Map.Entry.comparingByValue())
                 .map(Map.Entry::getKey)
                 .orElse(0);
     }
 
-    private double calculateTemporalRisk(Map<Integer, Integer> hourly, Map<Integer, Integer> daily) {
+    private double calculateTemporalRisk(Map<Integer, Long> hourly, Map<Integer, Long> daily) {
         double risk = 0.0;
 
         // Night activity risk
-        int nightTotal = hourly.entrySet().stream()
+        long nightTotal = hourly.entrySet().stream()
                 .filter(e -> e.getKey() <= 4 || e.getKey() >= 23)
-                .mapToInt(Map.Entry::getValue)
+                .mapToLong(Map.Entry::getValue)
                 .sum();
-        int dayTotal = hourly.entrySet().stream()
+        long dayTotal = hourly.entrySet().stream()
                 .filter(e -> e.getKey() >= 9 && e.getKey() <= 17)
-                .mapToInt(Map.Entry::getValue)
+                .mapToLong(Map.Entry::getValue)
                 .sum();
 
         if (nightTotal > dayTotal * 0.5) risk += 0.4;
 
         // Weekend activity risk
-        int weekendTotal = daily.entrySet().stream()
+        long weekendTotal = daily.entrySet().stream()
                 .filter(e -> e.getKey() >= 6)
-                .mapToInt(Map.Entry::getValue)
+                .mapToLong(Map.Entry::getValue)
                 .sum();
-        int weekdayTotal = daily.entrySet().stream()
+        long weekdayTotal = daily.entrySet().stream()
                 .filter(e -> e.getKey() <= 5)
-                .mapToInt(Map.Entry::getValue)
+                .mapToLong(Map.Entry::getValue)
                 .sum();
 
         if (weekendTotal > weekdayTotal * 0.3) risk += 0.3;
 
         // Irregular hours
-        if (hourly.values().stream().mapToInt(Integer::intValue).max().orElse(0) > 10) {
+        if (hourly.values().stream().mapToLong(Long::longValue).max().orElse(0) > 10) {
             risk += 0.3;
         }
 
@@ -1,11 +1,21 @@
 package com.rift.controller;
 
+import com.rift.model.AnalysisJob;
+import com.rift.model.AnalysisOptions;
 import com.rift.model.DetectionResult;
-import com.rift.service.TransactionProcessorService;
+import com.rift.service.AnalysisJobService;
+import com.rift.utils.LimitedInputStream;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import java.io.InputStream;
+import java.nio.file.NoSuchFileException;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -15,32 +25,128 @@ import java.util.Map;
 public class FileUploadController {
 
     @Autowired
-    private TransactionProcessorService processorService;
+    private AnalysisJobService jobService;
+
+    // Cap on a streamed request body, matching the multipart limit
+    @Value("${rift.ingest.stream.max-bytes:52428800}")
+    private long maxStreamBytes;
 
     // Store latest result
     public static DetectionResult latestResult = null;
 
+    // Queues the analysis and answers right away with the job status; poll
+    // /api/jobs/{id} and fetch /api/jobs/{id}/result when it is done.
+    // top_accounts, top_paths and top_hubs cap the ranked lists of the result
+    // (see AnalysisOptions); all upload endpoints take them.
     @PostMapping("/upload")
-    public ResponseEntity<?> uploadFile(@RequestParam("file") MultipartFile file) {
+    public ResponseEntity<?> uploadFile(@RequestParam("file") MultipartFile file,
+                                        @RequestParam(value = "top_accounts", required = false) Integer topAccounts,
+                                        @RequestParam(value = "top_paths", required = false) Integer topPaths,
+                                        @RequestParam(value = "top_hubs", required = false) Integer topHubs) {
+        Map<String, String> response = new HashMap<>();
+
+        try {
+            AnalysisOptions options = AnalysisOptions.of(topAccounts, topPaths, topHubs);
+            System.out.println("📁 Queued file: " + file.getOriginalFilename());
+
+            AnalysisJob job = jobService.submit(file, options);
+            job.getCompletion().thenAccept(FileUploadController::publish);
+
+            return ResponseEntity.accepted().body(job.snapshot());
+
+        } catch (IllegalArgumentException e) {
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        } catch (TaskRejectedException e) {
+            response.put("error", "Too many uploads are being analyzed, please retry shortly");
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(response);
+        } catch (Exception e) {
+            e.printStackTrace();
+            response.put("error", e.getMessage());
+            return ResponseEntity.internalServerError().body(response);
+        }
+    }
+
+    // Same as /upload, but the CSV is the raw request body and is parsed into
+    // the graph while it is still arriving; detection is queued as soon as the
+    // last row is in, so the job comes back already past parsing
+    @PostMapping(value = "/upload/stream", consumes = {"text/csv", MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    public ResponseEntity<?> uploadStream(HttpServletRequest request,
+                                          @RequestParam(value = "name", defaultValue = "upload.csv") String name,
+                                          @RequestParam(value = "top_accounts", required = false) Integer topAccounts,
+                                          @RequestParam(value = "top_paths", required = false) Integer topPaths,
+                                          @RequestParam(value = "top_hubs", required = false) Integer topHubs) {
         Map<String, String> response = new HashMap<>();
 
+        if (request.getContentLengthLong() > maxStreamBytes) {
+            response.put("error", "Upload is larger than " + maxStreamBytes + " bytes");
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(response);
+        }
+
+        AnalysisOptions options;
         try {
-            System.out.println("📁 Processing file: " + file.getOriginalFilename());
+            options = AnalysisOptions.of(topAccounts, topPaths, topHubs);
+        } catch (IllegalArgumentException e) {
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+
+        try (InputStream body = new LimitedInputStream(request.getInputStream(), maxStreamBytes)) {
+            System.out.println("📁 Streaming file: " + name);
 
-            // Process file
-            DetectionResult result = processorService.processTransactions(file);
+            AnalysisJob job = jobService.submit(body, name, options);
+            job.getCompletion().thenAccept(FileUploadController::publish);
 
-            // Store in static variable
-            latestResult = result;
+            return ResponseEntity.accepted().body(job.snapshot());
 
-            // Update GraphController
-            GraphController.setLatestResult(result);
+        } catch (LimitedInputStream.LimitExceededException e) {
+            response.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(response);
+        } catch (TaskRejectedException e) {
+            response.put("error", "Too many uploads are being analyzed, please retry shortly");
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(response);
+        } catch (Exception e) {
+            e.printStackTrace();
+            response.put("error", e.getMessage());
+            return ResponseEntity.internalServerError().body(response);
+        }
+    }
+
+    // Analyzes a CSV that already sits on the server, e.g. a nightly export,
+    // without sending it through HTTP: the file is memory mapped and parsed in
+    // parallel. Only paths under rift.ingest.local.directory are accepted.
+    @PostMapping("/upload/local")
+    public ResponseEntity<?> uploadLocal(@RequestParam("path") String path,
+                                         @RequestParam(value = "top_accounts", required = false) Integer topAccounts,
+                                         @RequestParam(value = "top_paths", required = false) Integer topPaths,
+                                         @RequestParam(value = "top_hubs", required = false) Integer topHubs) {
+        Map<String, String> response = new HashMap<>();
+
+        AnalysisOptions options;
+        try {
+            options = AnalysisOptions.of(topAccounts, topPaths, topHubs);
+        } catch (IllegalArgumentException e) {
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+
+        try {
+            System.out.println("📁 Queued local file: " + path);
 
-            System.out.println("✅ Processed: " + result.getAccounts().size() + " accounts");
-            System.out.println("🔍 Rings detected: " + result.getFraudRings().size());
+            AnalysisJob job = jobService.submitLocal(path, options);
+            job.getCompletion().thenAccept(FileUploadController::publish);
 
-            return ResponseEntity.ok(result);
+            return ResponseEntity.accepted().body(job.snapshot());
 
+        } catch (IllegalStateException e) {
+            response.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(response);
+        } catch (IllegalArgumentException | NoSuchFileException e) {
+            response.put("error", "Not a file under the ingest directory: " + path);
+            return ResponseEntity.badRequest().body(response);
+        } catch (TaskRejectedException e) {
+            response.put("error", "Too many uploads are being analyzed, please retry shortly");
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(response);
         } catch (Exception e) {
             e.printStackTrace();
             response.put("error", e.getMessage());
@@ -48,6 +154,17 @@ public class FileUploadController {
         }
     }
 
+    private static void publish(DetectionResult result) {
+        // Store in static variable
+        latestResult = result;
+
+        // Update GraphController
+        GraphController.setLatestResult(result);
+
+        System.out.println("✅ Processed: " + result.getAccounts().size() + " accounts");
+        System.out.println("🔍 Rings detected: " + result.getFraudRings().size());
+    }
+
     @GetMapping("/health")
     public ResponseEntity<Map<String, String>> health() {
         return ResponseEntity.ok(Map.of(
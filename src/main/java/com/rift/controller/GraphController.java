@@ -2,6 +2,8 @@ package com.rift.controller;
 
 import com.rift.model.DetectionResult;
 import com.rift.model.Account;
+import com.rift.repository.GraphRepository;
+import com.rift.repository.LiveGraph;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import java.util.*;
@@ -21,15 +23,23 @@ public class GraphController {
 
     @GetMapping("/data")
     public ResponseEntity<Map<String, Object>> getGraphData() {
-        if (latestResult == null) {
+        DetectionResult result = latestResult;
+        if (result == null) {
             return ResponseEntity.notFound().build();
         }
 
+        // Intraday batches update the result in place under its lock
+        synchronized (result) {
+            return ResponseEntity.ok(graphData(result));
+        }
+    }
+
+    private static Map<String, Object> graphData(DetectionResult result) {
         Map<String, Object> response = new HashMap<>();
         List<Map<String, Object>> nodes = new ArrayList<>();
         List<Map<String, Object>> edges = new ArrayList<>();
 
-        for (Account account : latestResult.getAccounts().values()) {
+        for (Account account : result.getAccounts().values()) {
             Map<String, Object> node = new HashMap<>();
             node.put("id", account.getAccountId());
             node.put("label", account.getAccountId());
@@ -60,20 +70,47 @@ public class GraphController {
             nodes.add(node);
         }
 
-        for (Account account : latestResult.getAccounts().values()) {
-            for (String receiver : account.getOutgoingTo()) {
-                Map<String, Object> edge = new HashMap<>();
-                edge.put("from", account.getAccountId());
-                edge.put("to", receiver);
-                edge.put("arrows", "to");
-                edges.add(edge);
+        GraphRepository graph = result.getGraph();
+        LiveGraph live = result.getLiveGraph();
+        for (Account account : result.getIndexedAccounts()) {
+            int index = account.getIndex();
+            // Accounts first seen in an intraday batch are past the base graph
+            if (index < graph.accountCount()) {
+                for (int e = graph.outStart(index); e < graph.outEnd(index); e++) {
+                    Map<String, Object> edge = new HashMap<>();
+                    edge.put("from", account.getAccountId());
+                    edge.put("to", result.getDictionary().name(graph.target(e)));
+                    edge.put("arrows", "to");
+                    // Width follows the money moved along the pair
+                    edge.put("value", graph.amount(e));
+                    edge.put("transaction_count", graph.transactionCount(e));
+                    edge.put("title", String.format(
+                            "Transactions: %d<br>Total: %.2f<br>Min: %.2f<br>Max: %.2f",
+                            graph.transactionCount(e),
+                            graph.amount(e),
+                            graph.minAmount(e),
+                            graph.maxAmount(e)
+                    ));
+                    edges.add(edge);
+                }
+            }
+
+            // Pairs added by batches carry no amounts
+            if (live != null) {
+                for (int target : live.addedTargets(index)) {
+                    Map<String, Object> edge = new HashMap<>();
+                    edge.put("from", account.getAccountId());
+                    edge.put("to", result.getDictionary().name(target));
+                    edge.put("arrows", "to");
+                    edge.put("title", "Added by an intraday batch");
+                    edges.add(edge);
+                }
             }
         }
 
         response.put("nodes", nodes);
         response.put("edges", edges);
         response.put("timestamp", System.currentTimeMillis());
-
-        return ResponseEntity.ok(response);
+        return response;
     }
 }
\ No newline at end of file
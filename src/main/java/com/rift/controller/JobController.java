@@ -0,0 +1,94 @@
+package com.rift.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rift.model.AnalysisJob;
+import com.rift.model.DetectionResult;
+import com.rift.service.AnalysisJobService;
+import com.rift.utils.LimitedInputStream;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import jakarta.servlet.http.HttpServletRequest;
+import java.io.InputStream;
+import java.util.*;
+
+@RestController
+@CrossOrigin(origins = "*")
+@RequestMapping("/api/jobs")
+public class JobController {
+
+    @Autowired
+    private AnalysisJobService jobService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${rift.ingest.stream.max-bytes:52428800}")
+    private long maxStreamBytes;
+
+    @GetMapping("/{jobId}")
+    public ResponseEntity<?> getJob(@PathVariable String jobId) {
+        return jobService.find(jobId)
+                .<ResponseEntity<?>>map(job -> ResponseEntity.ok(job.snapshot()))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    // 200 with the detection result once done, 202 with the job status while
+    // it is still queued or running
+    @GetMapping("/{jobId}/result")
+    public ResponseEntity<?> getResult(@PathVariable String jobId) throws JsonProcessingException {
+        AnalysisJob job = jobService.find(jobId).orElse(null);
+        if (job == null) {
+            return ResponseEntity.notFound().build();
+        }
+
+        // Serialized under the result's lock, as intraday batches update it
+        // in place
+        DetectionResult result = job.getResult();
+        if (result != null) {
+            synchronized (result) {
+                return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON)
+                        .body(objectMapper.writeValueAsBytes(result));
+            }
+        }
+        return switch (job.getStatus()) {
+            case FAILED -> ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(job.snapshot());
+            default -> ResponseEntity.status(HttpStatus.ACCEPTED).body(job.snapshot());
+        };
+    }
+
+    // Intraday batch: the raw CSV body is folded into the completed job's
+    // result, searching only the cycles its new account pairs close. 409
+    // while the job is still running or failed.
+    @PostMapping(value = "/{jobId}/transactions",
+            consumes = {"text/csv", MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    public ResponseEntity<?> appendTransactions(@PathVariable String jobId, HttpServletRequest request) {
+        Map<String, String> response = new HashMap<>();
+
+        if (request.getContentLengthLong() > maxStreamBytes) {
+            response.put("error", "Batch is larger than " + maxStreamBytes + " bytes");
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(response);
+        }
+
+        try (InputStream body = new LimitedInputStream(request.getInputStream(), maxStreamBytes)) {
+            return jobService.appendBatch(jobId, body)
+                    .<ResponseEntity<?>>map(ResponseEntity::ok)
+                    .orElse(ResponseEntity.notFound().build());
+
+        } catch (IllegalStateException e) {
+            response.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+        } catch (LimitedInputStream.LimitExceededException e) {
+            response.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(response);
+        } catch (Exception e) {
+            e.printStackTrace();
+            response.put("error", e.getMessage());
+            return ResponseEntity.internalServerError().body(response);
+        }
+    }
+}
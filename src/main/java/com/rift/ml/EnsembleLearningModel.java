@@ -1,6 +1,7 @@
 package com.rift.ml;
 
 import com.rift.model.Account;
+import com.rift.model.DetectionResult;
 import org.springframework.stereotype.Component;
 import java.util.*;
 
@@ -19,13 +20,27 @@ public class EnsembleLearningModel {
             "risk_predictor", 0.35
     );
 
-    public Map<String, Object> predictRisk(Account account, List<Account> allAccounts) {
+    public Map<String, Object> predictRisk(Account account, DetectionResult detection) {
+        return predictRisk(account, detection, isolationForest.calculateScore(account, detection));
+    }
+
+    // Every account's prediction, by account index. The isolation forest
+    // scores all accounts in one parallel pass instead of one at a time.
+    public List<Map<String, Object>> predictRisks(DetectionResult detection) {
+        double[] isolationScores = isolationForest.calculateScores(detection);
+        List<Map<String, Object>> predictions = new ArrayList<>(isolationScores.length);
+        for (Account account : detection.getIndexedAccounts()) {
+            predictions.add(predictRisk(account, detection, isolationScores[account.getIndex()]));
+        }
+        return predictions;
+    }
+
+    private Map<String, Object> predictRisk(Account account, DetectionResult detection, double isolationScore) {
         Map<String, Object> result = new HashMap<>();
 
         // Get predictions from each model
-        double isolationScore = isolationForest.calculateScore(account, allAccounts);
-        double lofScore = lof.calculateScore(account, allAccounts);
-        double riskScore = riskPredictor.predict(account);
+        double lofScore = lof.calculateScore(account, detection.getIndexedAccounts());
+        double riskScore = riskPredictor.predict(account, detection);
 
         // Ensemble score (weighted average)
         double ensembleScore =
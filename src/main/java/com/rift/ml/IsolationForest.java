@@ -1,60 +1,242 @@
 package com.rift.ml;
 
 import com.rift.model.Account;
+import com.rift.model.DetectionResult;
+import com.rift.repository.GraphRepository;
 import org.springframework.stereotype.Component;
 import java.util.*;
+import java.util.stream.IntStream;
 
+// Isolation Forest (Liu, Ting and Zhou, 2008) over the account features of
+// extractFeatures. Accounts that random axis-aligned splits isolate in few
+// steps are anomalies: the score is 2^(-E[h] / c(psi)), where h is the path
+// length to an account's leaf and c(psi) the mean path length of a tree
+// grown on psi samples, so about 0.5 is ordinary and near 1 is isolated.
+//
+// The forest is trained once per analysis, on a subsample per tree, and kept
+// on its DetectionResult, so it goes away with the result.
 @Component
 public class IsolationForest {
 
+    public static final int FEATURES = 7;
     private static final int NUMBER_OF_TREES = 100;
-    private static final int MAX_DEPTH = 10;
+    private static final int SAMPLE_SIZE = 256;
+    // Fixed, so the same upload always gets the same scores
+    private static final long SEED = 0x5EED;
 
-    public double calculateScore(Account account, List<Account> allAccounts) {
-        // Feature extraction
-        double[] features = extractFeatures(account);
+    public double calculateScore(Account account, DetectionResult result) {
+        double[] features = extractFeatures(account, result.getGraph());
+        return forest(result).score(features, 0);
+    }
 
-        // Calculate average path length across trees
-        double avgPathLength = 0;
-        for (int i = 0; i < NUMBER_OF_TREES; i++) {
-            avgPathLength += getPathLength(features, generateRandomTree(allAccounts));
-        }
-        avgPathLength /= NUMBER_OF_TREES;
+    // Every account's score, by account index, scored in parallel
+    public double[] calculateScores(DetectionResult result) {
+        return forest(result).scores(features(result), result.getIndexedAccounts().size());
+    }
 
-        // Normalize score (0-1)
-        double expectedPathLength = getExpectedPathLength(allAccounts.size());
-        double score = Math.pow(2, -avgPathLength / expectedPathLength);
+    private Forest forest(DetectionResult result) {
+        synchronized (result) {
+            if (result.getIsolationForest() == null) {
+                result.setIsolationForest(Forest.train(features(result),
+                        result.getIndexedAccounts().size(), NUMBER_OF_TREES, SAMPLE_SIZE, SEED));
+            }
+            return result.getIsolationForest();
+        }
+    }
 
-        return Math.min(1.0, score);
+    // Every account's features by account index, FEATURES values per account
+    public double[] features(DetectionResult result) {
+        List<Account> accounts = result.getIndexedAccounts();
+        double[] features = new double[accounts.size() * FEATURES];
+        for (Account account : accounts) {
+            System.arraycopy(extractFeatures(account, result.getGraph()), 0,
+                    features, account.getIndex() * FEATURES, FEATURES);
+        }
+        return features;
     }
 
-    private double[] extractFeatures(Account account) {
+    private double[] extractFeatures(Account account, GraphRepository graph) {
+        // Accounts from intraday batches may be beyond the graph
+        boolean inGraph = account.getIndex() < graph.accountCount();
         return new double[]{
                 account.getTransactionCount(),
                 account.getIncomingCount(),
                 account.getOutgoingCount(),
                 account.getTotalReceived(),
                 account.getTotalSent(),
-                account.getIncomingFrom().size(),
-                account.getOutgoingTo().size()
+                inGraph ? graph.inDegree(account.getIndex()) : 0,
+                inGraph ? graph.outDegree(account.getIndex()) : 0
         };
     }
 
-    private double getPathLength(double[] features, double[][] tree) {
-        // Simplified isolation forest path calculation
-        double length = 0;
-        // ... algorithm implementation
-        return length;
+    // Mean path length of an unsuccessful search in a binary search tree of
+    // n keys, the normalisation of the paper
+    static double expectedPathLength(int n) {
+        if (n <= 1) return 0;
+        if (n == 2) return 1;
+        return 2 * (Math.log(n - 1) + 0.5772156649) - 2.0 * (n - 1) / n;
     }
 
-    private double[][] generateRandomTree(List<Account> accounts) {
-        // Generate random isolation tree
-        return new double[10][7]; // Simplified
+    // The trees, as flat arrays over all nodes: node i splits on
+    // feature[i] at value[i], going to child[i] below it and child[i] + 1
+    // otherwise; a leaf has child[i] == -1 and holds its sample count in
+    // value[i]. Tree t is rooted at roots[t].
+    public static final class Forest {
+
+        private final int[] roots;
+        private final int[] feature;
+        private final double[] value;
+        private final int[] child;
+        private final int sampleSize;
+
+        private Forest(int[] roots, int[] feature, double[] value, int[] child, int sampleSize) {
+            this.roots = roots;
+            this.feature = feature;
+            this.value = value;
+            this.child = child;
+            this.sampleSize = sampleSize;
+        }
+
+        // features holds count rows of FEATURES values
+        public static Forest train(double[] features, int count, int trees, int sampleSize, long seed) {
+            Random random = new Random(seed);
+            int psi = Math.min(sampleSize, count);
+            int heightLimit = (int) Math.ceil(Math.log(Math.max(psi, 2)) / Math.log(2));
+
+            Builder builder = new Builder();
+            int[] roots = new int[trees];
+            int[] population = IntStream.range(0, count).toArray();
+            for (int t = 0; t < trees; t++) {
+                // Partial Fisher-Yates: the first psi entries are the sample
+                for (int i = 0; i < psi; i++) {
+                    int j = i + random.nextInt(count - i);
+                    int swap = population[i];
+                    population[i] = population[j];
+                    population[j] = swap;
+                }
+                roots[t] = builder.grow(features, Arrays.copyOf(population, psi), heightLimit, random);
+            }
+            return new Forest(roots, Arrays.copyOf(builder.feature, builder.size),
+                    Arrays.copyOf(builder.value, builder.size), Arrays.copyOf(builder.child, builder.size), psi);
+        }
+
+        // Anomaly score of the FEATURES values of features from offset on
+        public double score(double[] features, int offset) {
+            if (roots.length == 0 || sampleSize < 2) return 0.5;
+            double total = 0;
+            for (int root : roots) {
+                total += pathLength(root, features, offset);
+            }
+            return Math.pow(2, -(total / roots.length) / expectedPathLength(sampleSize));
+        }
+
+        // Scores count rows, in parallel
+        public double[] scores(double[] features, int count) {
+            double[] scores = new double[count];
+            IntStream.range(0, count).parallel().forEach(i -> scores[i] = score(features, i * FEATURES));
+            return scores;
+        }
+
+        private double pathLength(int node, double[] features, int offset) {
+            int depth = 0;
+            while (child[node] >= 0) {
+                node = features[offset + feature[node]] < value[node] ? child[node] : child[node] + 1;
+                depth++;
+            }
+            // A leaf that stopped at the height limit stands for a subtree
+            // of that many samples
+            return depth + expectedPathLength((int) value[node]);
+        }
+
+        public int nodeCount() {
+            return feature.length;
+        }
     }
 
-    private double getExpectedPathLength(int n) {
-        // Expected path length in isolation forest
-        if (n <= 1) return 1;
-        return 2 * (Math.log(n - 1) + 0.5772156649) - (2 * (n - 1) / n);
+    // Grows trees into shared, growing node arrays, breadth first so that
+    // the two children of a node are always allocated side by side
+    private static final class Builder {
+
+        private int[] feature = new int[1024];
+        private double[] value = new double[1024];
+        private int[] child = new int[1024];
+        private int size;
+
+        // Per feature bounds of the samples of the node being split
+        private final double[] min = new double[FEATURES];
+        private final double[] max = new double[FEATURES];
+
+        int grow(double[] features, int[] sample, int heightLimit, Random random) {
+            int root = allocate(1);
+            // Pending nodes: index, sample range and depth
+            ArrayDeque<int[]> pending = new ArrayDeque<>();
+            pending.add(new int[]{root, 0, sample.length, 0});
+            while (!pending.isEmpty()) {
+                int[] node = pending.poll();
+                int index = node[0], from = node[1], to = node[2], depth = node[3];
+
+                int split = depth < heightLimit && to - from > 1 ? pickFeature(features, sample, from, to, random) : -1;
+                if (split < 0) {
+                    feature[index] = -1;
+                    value[index] = to - from;
+                    child[index] = -1;
+                    continue;
+                }
+                double at = min[split] + random.nextDouble() * (max[split] - min[split]);
+                // Values equal to max always go right, so both sides are non-empty
+                if (at <= min[split]) at = Math.nextUp(min[split]);
+
+                // Partition the range: below the split first
+                int mid = from;
+                for (int i = from; i < to; i++) {
+                    if (features[sample[i] * FEATURES + split] < at) {
+                        int swap = sample[mid];
+                        sample[mid++] = sample[i];
+                        sample[i] = swap;
+                    }
+                }
+                int children = allocate(2);
+                feature[index] = split;
+                value[index] = at;
+                child[index] = children;
+                pending.add(new int[]{children, from, mid, depth + 1});
+                pending.add(new int[]{children + 1, mid, to, depth + 1});
+            }
+            return root;
+        }
+
+        // A random feature that still varies over the node's samples, -1 if none does
+        private int pickFeature(double[] features, int[] sample, int from, int to, Random random) {
+            Arrays.fill(min, Double.POSITIVE_INFINITY);
+            Arrays.fill(max, Double.NEGATIVE_INFINITY);
+            for (int i = from; i < to; i++) {
+                int offset = sample[i] * FEATURES;
+                for (int f = 0; f < FEATURES; f++) {
+                    min[f] = Math.min(min[f], features[offset + f]);
+                    max[f] = Math.max(max[f], features[offset + f]);
+                }
+            }
+            int varying = 0;
+            for (int f = 0; f < FEATURES; f++) {
+                if (max[f] > min[f]) varying++;
+            }
+            if (varying == 0) return -1;
+            int pick = random.nextInt(varying);
+            for (int f = 0; f < FEATURES; f++) {
+                if (max[f] > min[f] && pick-- == 0) return f;
+            }
+            return -1;
+        }
+
+        private int allocate(int nodes) {
+            if (size + nodes > feature.length) {
+                int capacity = Math.max(size + nodes, 2 * feature.length);
+                feature = Arrays.copyOf(feature, capacity);
+                value = Arrays.copyOf(value, capacity);
+                child = Arrays.copyOf(child, capacity);
+            }
+            size += nodes;
+            return size - nodes;
+        }
     }
-}
\ No newline at end of file
+}
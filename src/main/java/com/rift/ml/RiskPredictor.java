@@ -1,6 +1,8 @@
 package com.rift.ml;
 
 import com.rift.model.Account;
+import com.rift.model.DetectionResult;
+import com.rift.repository.TransactionStore;
 import org.springframework.stereotype.Component;
 import java.util.*;
 
@@ -15,7 +17,7 @@ public class RiskPredictor {
             "connectivity", 0.25
     );
 
-    public double predict(Account account) {
+    public double predict(Account account, DetectionResult result) {
         double score = 0;
 
         double txScore = Math.min(1.0, account.getTransactionCount() / 10.0);
@@ -27,22 +29,22 @@ public class RiskPredictor {
         double amountScore = calculateAmountRatioScore(account);
         score += amountScore * featureWeights.get("amount_ratio");
 
-        double velocityScore = calculateVelocityScore(account);
+        double velocityScore = calculateVelocityScore(account, result);
         score += velocityScore * featureWeights.get("velocity");
 
-        double connectivityScore = calculateConnectivityScore(account);
+        double connectivityScore = calculateConnectivityScore(account, result);
         score += connectivityScore * featureWeights.get("connectivity");
 
         return Math.min(1.0, score);
     }
 
     // 🔥 THIS METHOD FIXES YOUR ERROR
-    public double predictRiskScore(Account account, List<Account> allAccounts) {
+    public double predictRiskScore(Account account, DetectionResult result) {
         // Use existing logic
-        double baseScore = predict(account);
+        double baseScore = predict(account, result);
 
         // Optional network comparison boost
-        double avgTx = allAccounts.stream()
+        double avgTx = result.getIndexedAccounts().stream()
                 .mapToDouble(Account::getTransactionCount)
                 .average()
                 .orElse(1);
@@ -76,18 +78,20 @@ public class RiskPredictor {
         return 0.3;
     }
 
-    private double calculateVelocityScore(Account account) {
-        if (account.getTransactions().size() < 2) return 0.2;
+    private double calculateVelocityScore(Account account, DetectionResult result) {
+        TransactionStore store = result.getTransactionStore();
+        int from = store.accountStart(account.getIndex());
+        int to = store.accountEnd(account.getIndex());
+        if (to - from < 2) return 0.2;
 
+        // The account's rows are in time order, so every gap is non-negative
         long totalMinutes = 0;
-        for (int i = 1; i < account.getTransactions().size(); i++) {
-            totalMinutes += java.time.Duration.between(
-                    account.getTransactions().get(i - 1).getTimestamp(),
-                    account.getTransactions().get(i).getTimestamp()
-            ).toMinutes();
+        for (int slot = from + 1; slot < to; slot++) {
+            totalMinutes += (store.epochSecond(store.row(slot))
+                    - store.epochSecond(store.row(slot - 1))) / 60;
         }
 
-        double avgMinutes = totalMinutes / (account.getTransactions().size() - 1);
+        double avgMinutes = totalMinutes / (to - from - 1);
 
         if (avgMinutes < 30) return 0.9;
         if (avgMinutes < 60) return 0.7;
@@ -95,8 +99,9 @@ public class RiskPredictor {
         return 0.2;
     }
 
-    private double calculateConnectivityScore(Account account) {
-        int connections = account.getIncomingFrom().size() + account.getOutgoingTo().size();
+    private double calculateConnectivityScore(Account account, DetectionResult result) {
+        int connections = result.getGraph().inDegree(account.getIndex())
+                + result.getGraph().outDegree(account.getIndex());
 
         if (connections > 10) return 0.9;
         if (connections > 5) return 0.7;
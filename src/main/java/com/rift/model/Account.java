@@ -1,4 +1,5 @@
 package com.rift.model;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 
 import java.time.LocalDateTime;
@@ -7,13 +8,16 @@ import java.util.concurrent.ConcurrentHashMap;
 
 @Data
 public class Account {
+    // Dense id from the AccountDictionary; the GraphRepository is keyed by these ids
+    @JsonIgnore
+    private int index;
     private String accountId;
     private double totalSent;
     private double totalReceived;
     private int transactionCount;
+    // Counterparty ids, only filled in by DetectionResult.buildOutput
     private Set<String> incomingFrom = ConcurrentHashMap.newKeySet();
     private Set<String> outgoingTo = ConcurrentHashMap.newKeySet();
-    private List<Transaction> transactions = new ArrayList<>();
     private double suspicionScore;
     private Set<String> patterns = ConcurrentHashMap.newKeySet();
     private String ringId;
@@ -25,7 +29,8 @@ public class Account {
     private LocalDateTime lastTransaction;
     private double averageTransactionAmount;
 
-    public Account(String accountId) {
+    public Account(int index, String accountId) {
+        this.index = index;
         this.accountId = accountId;
     }
 }
\ No newline at end of file
@@ -0,0 +1,141 @@
+package com.rift.model;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+// One asynchronous upload analysis. Updated by the worker thread running it
+// and read by the job endpoints, hence the synchronized accessors.
+public class AnalysisJob {
+
+    public enum Status { QUEUED, RUNNING, COMPLETED, FAILED }
+
+    // Pipeline stages, in the order they run
+    public static final String PARSING = "parsing";
+    public static final String TEMPORAL_ANALYSIS = "temporal_analysis";
+    public static final String PATTERN_DETECTION = "pattern_detection";
+    public static final String SCORING = "scoring";
+    public static final String ML_SCORING = "ml_scoring";
+    public static final String ANALYTICS = "analytics";
+    public static final String RING_ASSIGNMENT = "ring_assignment";
+    public static final String OUTPUT = "output";
+    public static final List<String> STAGES = List.of(PARSING, TEMPORAL_ANALYSIS,
+            PATTERN_DETECTION, SCORING, ML_SCORING, ANALYTICS, RING_ASSIGNMENT, OUTPUT);
+
+    private final String jobId;
+    private final String fileName;
+    private final AnalysisOptions options;
+    private final long createdAt = System.currentTimeMillis();
+    private final CompletableFuture<DetectionResult> completion = new CompletableFuture<>();
+
+    private Status status = Status.QUEUED;
+    private int stage = -1;
+    private final long[] stageStarted = new long[STAGES.size()];
+    private final long[] stageFinished = new long[STAGES.size()];
+    private long finishedAt;
+    private String error;
+
+    public AnalysisJob(String jobId, String fileName) {
+        this(jobId, fileName, AnalysisOptions.DEFAULTS);
+    }
+
+    public AnalysisJob(String jobId, String fileName, AnalysisOptions options) {
+        this.jobId = jobId;
+        this.fileName = fileName;
+        this.options = options;
+    }
+
+    public synchronized void enterStage(String name) {
+        long now = System.currentTimeMillis();
+        if (stage >= 0) {
+            stageFinished[stage] = now;
+        }
+        stage = STAGES.indexOf(name);
+        stageStarted[stage] = now;
+        status = Status.RUNNING;
+    }
+
+    public void complete(DetectionResult result) {
+        synchronized (this) {
+            finish(Status.COMPLETED);
+        }
+        completion.complete(result);
+    }
+
+    public void fail(Throwable cause) {
+        synchronized (this) {
+            error = cause.getMessage() != null ? cause.getMessage() : cause.toString();
+            finish(Status.FAILED);
+        }
+        completion.completeExceptionally(cause);
+    }
+
+    private void finish(Status finalStatus) {
+        finishedAt = System.currentTimeMillis();
+        if (stage >= 0 && stageFinished[stage] == 0) {
+            stageFinished[stage] = finishedAt;
+        }
+        status = finalStatus;
+    }
+
+    public AnalysisOptions getOptions() {
+        return options;
+    }
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public synchronized Status getStatus() {
+        return status;
+    }
+
+    public synchronized long getFinishedAt() {
+        return finishedAt;
+    }
+
+    // Completes once the analysis has finished, successfully or not
+    public CompletableFuture<DetectionResult> getCompletion() {
+        return completion;
+    }
+
+    public DetectionResult getResult() {
+        return completion.isCompletedExceptionally() ? null : completion.getNow(null);
+    }
+
+    public synchronized Map<String, Object> snapshot() {
+        List<Map<String, Object>> stages = new ArrayList<>();
+        int done = 0;
+        for (int i = 0; i < STAGES.size(); i++) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("name", STAGES.get(i));
+            if (stageFinished[i] > 0) {
+                entry.put("status", "done");
+                entry.put("duration_ms", stageFinished[i] - stageStarted[i]);
+                done++;
+            } else if (i == stage) {
+                entry.put("status", "running");
+                entry.put("duration_ms", System.currentTimeMillis() - stageStarted[i]);
+            } else {
+                entry.put("status", "pending");
+            }
+            stages.add(entry);
+        }
+
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("job_id", jobId);
+        snapshot.put("file_name", fileName);
+        snapshot.put("status", status.name().toLowerCase());
+        snapshot.put("current_stage", stage >= 0 && status == Status.RUNNING ? STAGES.get(stage) : null);
+        snapshot.put("progress", status == Status.COMPLETED ? 100 : done * 100 / STAGES.size());
+        snapshot.put("stages", stages);
+        snapshot.put("created_at", Instant.ofEpochMilli(createdAt).toString());
+        if (finishedAt > 0) {
+            snapshot.put("finished_at", Instant.ofEpochMilli(finishedAt).toString());
+        }
+        if (error != null) {
+            snapshot.put("error", error);
+        }
+        return snapshot;
+    }
+}
@@ -0,0 +1,24 @@
+package com.rift.model;
+
+// Per-request limits on how much of each ranked list an analysis returns,
+// highest ranked first. The limits are pushed down into the searches, so
+// entries that cannot make a list are never built.
+public record AnalysisOptions(int topAccounts, int topPaths, int topHubs) {
+
+    // Every suspicious account; the 10 riskiest flow paths and 5 biggest hubs
+    public static final AnalysisOptions DEFAULTS = new AnalysisOptions(Integer.MAX_VALUE, 10, 5);
+
+    public AnalysisOptions {
+        if (topAccounts < 0 || topPaths < 0 || topHubs < 0) {
+            throw new IllegalArgumentException("Limits must not be negative");
+        }
+    }
+
+    // Request parameters, each falling back to its default when absent
+    public static AnalysisOptions of(Integer topAccounts, Integer topPaths, Integer topHubs) {
+        return new AnalysisOptions(
+                topAccounts != null ? topAccounts : DEFAULTS.topAccounts(),
+                topPaths != null ? topPaths : DEFAULTS.topPaths(),
+                topHubs != null ? topHubs : DEFAULTS.topHubs());
+    }
+}
@@ -1,7 +1,15 @@
 package com.rift.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.rift.ml.IsolationForest;
 import com.rift.model.Account;
 import com.rift.model.FraudRing;
+import com.rift.repository.AccountDictionary;
+import com.rift.repository.GraphRepository;
+import com.rift.repository.HeatmapGrid;
+import com.rift.repository.LiveGraph;
+import com.rift.repository.RingRegistry;
+import com.rift.repository.TransactionStore;
 import lombok.Data;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
@@ -15,14 +23,63 @@ public class DetectionResult {
     private Map<String, FraudRing> rings = new ConcurrentHashMap<>();
     private long processingTime;
 
+    // Internal, int-keyed view of the same accounts: indexedAccounts.get(i)
+    // is the account with dictionary id i
+    @JsonIgnore
+    private AccountDictionary dictionary = new AccountDictionary();
+    @JsonIgnore
+    private List<Account> indexedAccounts = new ArrayList<>();
+    @JsonIgnore
+    private TransactionStore transactionStore = TransactionStore.empty();
+    @JsonIgnore
+    private GraphRepository graph = GraphRepository.empty();
+    // Members of the final rings, with every account's rings; set once rings
+    // are assigned
+    @JsonIgnore
+    private RingRegistry ringRegistry = new RingRegistry(0);
+    // Limits of the request that started the analysis
+    @JsonIgnore
+    private AnalysisOptions options = AnalysisOptions.DEFAULTS;
+    // The graph plus pairs from intraday batches; created by the first batch
+    @JsonIgnore
+    private LiveGraph liveGraph;
+    // Behind the temporal heatmap; intraday batches are added to it
+    @JsonIgnore
+    private HeatmapGrid heatmapGrid = new HeatmapGrid();
+    // Trained on the first anomaly score asked for
+    @JsonIgnore
+    private IsolationForest.Forest isolationForest;
+
+    public Account getAccount(int index) {
+        return indexedAccounts.get(index);
+    }
+
+    // The ring's members as sorted, distinct account ids
+    public int[] memberIds(FraudRing ring) {
+        return RingRegistry.canonical(ring.getMemberAccounts().stream()
+                .mapToInt(dictionary::lookup)
+                .filter(index -> index >= 0)
+                .toArray());
+    }
+
     public void buildOutput() {
-        // Sort suspicious accounts by score descending
-        suspiciousAccounts.sort((a, b) ->
-                Double.compare((double) b.get("suspicion_score"),
-                        (double) a.get("suspicion_score")));
+        // Decode counterparties back to account ids for the response
+        for (Account account : indexedAccounts) {
+            int index = account.getIndex();
+            account.getIncomingFrom().clear();
+            for (int slot = graph.inStart(index); slot < graph.inEnd(index); slot++) {
+                account.getIncomingFrom().add(dictionary.name(graph.source(slot)));
+            }
+            account.getOutgoingTo().clear();
+            for (int e = graph.outStart(index); e < graph.outEnd(index); e++) {
+                account.getOutgoingTo().add(dictionary.name(graph.target(e)));
+            }
+        }
 
+        // Suspicious accounts arrive ranked, and possibly cut to the request's
+        // limit, so the flagged count is kept when detection recorded one
         summary.put("total_accounts_analyzed", accounts.size());
-        summary.put("suspicious_accounts_flagged", suspiciousAccounts.size());
+        summary.putIfAbsent("suspicious_accounts_flagged", suspiciousAccounts.size());
         summary.put("fraud_rings_detected", fraudRings.size());
         summary.put("processing_time_seconds", processingTime / 1000.0);
     }
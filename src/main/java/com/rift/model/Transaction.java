@@ -19,4 +19,13 @@ public class Transaction {
         this.amount = Double.parseDouble(csvRow[3]);
         this.timestamp = LocalDateTime.parse(csvRow[4].replace(" ", "T"));
     }
+
+    public Transaction(String transactionId, String senderId, String receiverId,
+                       double amount, LocalDateTime timestamp) {
+        this.transactionId = transactionId;
+        this.senderId = senderId;
+        this.receiverId = receiverId;
+        this.amount = amount;
+        this.timestamp = timestamp;
+    }
 }
\ No newline at end of file
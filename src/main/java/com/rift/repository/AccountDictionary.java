@@ -0,0 +1,123 @@
+package com.rift.repository;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+// Assigns every account a dense int id (0, 1, 2, ...) in first-seen order.
+// Ids are interned straight from the raw CSV bytes, so a repeated account id
+// costs one hash probe; the String name only exists once per account.
+public class AccountDictionary {
+
+    private int[] table = new int[2048];
+    private int[] hashes = new int[1024];
+    private byte[][] keys = new byte[1024][];
+    private String[] names = new String[1024];
+    private int size;
+
+    public AccountDictionary() {
+        Arrays.fill(table, -1);
+    }
+
+    public int intern(ByteBuffer data, int start, int end) {
+        int hash = hash(data, start, end);
+        int mask = table.length - 1;
+        int slot = hash & mask;
+        for (int id = table[slot]; id >= 0; id = table[slot]) {
+            if (hashes[id] == hash && matches(keys[id], data, start, end)) {
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        byte[] key = new byte[end - start];
+        data.get(start, key, 0, key.length);
+        return add(slot, key, hash, new String(key, StandardCharsets.UTF_8));
+    }
+
+    public int intern(String name) {
+        byte[] key = name.getBytes(StandardCharsets.UTF_8);
+        return intern(ByteBuffer.wrap(key), 0, key.length);
+    }
+
+    // Id of an already known account, or -1
+    public int lookup(String name) {
+        byte[] key = name.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer data = ByteBuffer.wrap(key);
+        int hash = hash(data, 0, key.length);
+        int mask = table.length - 1;
+        int slot = hash & mask;
+        for (int id = table[slot]; id >= 0; id = table[slot]) {
+            if (hashes[id] == hash && matches(keys[id], data, 0, key.length)) {
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    public String name(int id) {
+        return names[id];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Adds every account of other (in its id order) and returns the mapping
+    // from other's ids to ids in this dictionary
+    public int[] absorb(AccountDictionary other) {
+        int[] mapping = new int[other.size];
+        for (int id = 0; id < other.size; id++) {
+            byte[] key = other.keys[id];
+            mapping[id] = intern(ByteBuffer.wrap(key), 0, key.length);
+        }
+        return mapping;
+    }
+
+    private int add(int slot, byte[] key, int hash, String name) {
+        int id = size++;
+        if (id == keys.length) {
+            int capacity = keys.length * 2;
+            hashes = Arrays.copyOf(hashes, capacity);
+            keys = Arrays.copyOf(keys, capacity);
+            names = Arrays.copyOf(names, capacity);
+        }
+        hashes[id] = hash;
+        keys[id] = key;
+        names[id] = name;
+        table[slot] = id;
+
+        if (size * 2 > table.length) {
+            rehash(table.length * 2);
+        }
+        return id;
+    }
+
+    private void rehash(int capacity) {
+        table = new int[capacity];
+        Arrays.fill(table, -1);
+        int mask = capacity - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = hashes[id] & mask;
+            while (table[slot] >= 0) slot = (slot + 1) & mask;
+            table[slot] = id;
+        }
+    }
+
+    private static int hash(ByteBuffer data, int start, int end) {
+        int h = 0;
+        for (int i = start; i < end; i++) {
+            h = 31 * h + data.get(i);
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private static boolean matches(byte[] key, ByteBuffer data, int start, int end) {
+        if (key.length != end - start) return false;
+        for (int i = 0; i < key.length; i++) {
+            if (key[i] != data.get(start + i)) return false;
+        }
+        return true;
+    }
+}
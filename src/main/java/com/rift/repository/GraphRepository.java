@@ -1,4 +1,430 @@
 package com.rift.repository;
 
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.IntStream;
+
+// Immutable compressed sparse row (CSR) view of the transaction graph, built
+// once per upload and shared by every detector and analyzer.
+//
+// One edge per distinct sender -> receiver pair. Outgoing edges of account v
+// are ids outStart(v) .. outEnd(v) - 1, sorted by target; the edge attribute
+// arrays are indexed by the same ids. Incoming slots inStart(v) .. inEnd(v) - 1
+// list the sources in ascending order and point back at the outgoing edge ids.
+//
+// Each edge aggregates every transaction of its pair: count, total, min, max
+// and earliest amount, and first/last timestamp. A hash index over the pairs
+// makes edge(from, to) a constant time lookup.
+//
+// The transactions of edge e are also kept in time order, as the positions
+// timeStart(e) .. timeEnd(e) - 1 of a per-edge time index, so time-respecting
+// searches can binary search for the first transfer at or after a moment.
 public class GraphRepository {
+
+    private final int[] outOffsets;
+    private final int[] targets;
+    private final int[] inOffsets;
+    private final int[] sources;
+    private final int[] inEdges;
+
+    private final double[] amounts;
+    private final double[] minAmounts;
+    private final double[] maxAmounts;
+    private final double[] firstAmounts;
+    private final int[] transactionCounts;
+    private final long[] firstTimestamps;
+    private final long[] lastTimestamps;
+
+    // Edge e's transactions, sorted by (timestamp, row), sit at positions
+    // edgeTimeOffsets[e] .. edgeTimeOffsets[e + 1] - 1
+    private final int[] edgeTimeOffsets;
+    private final long[] edgeTimes;
+    private final int[] edgeTimeRows;
+
+    // Open addressing table of edge ids, hashed by (source, target); -1 is empty
+    private final int[] pairTable;
+
+    // Computed on first use by the cycle searches
+    private volatile StronglyConnectedComponents components;
+    // Created on first use; caches the path queries of the analyzers
+    private volatile PathEngine paths;
+
+    private GraphRepository(int[] outOffsets, int[] targets, int[] inOffsets, int[] sources, int[] inEdges,
+                            EdgeAttributes attributes) {
+        this.outOffsets = outOffsets;
+        this.targets = targets;
+        this.inOffsets = inOffsets;
+        this.sources = sources;
+        this.inEdges = inEdges;
+        this.amounts = attributes.amounts;
+        this.minAmounts = attributes.minAmounts;
+        this.maxAmounts = attributes.maxAmounts;
+        this.firstAmounts = attributes.firstAmounts;
+        this.transactionCounts = attributes.transactionCounts;
+        this.firstTimestamps = attributes.firstTimestamps;
+        this.lastTimestamps = attributes.lastTimestamps;
+        this.edgeTimeOffsets = attributes.timeOffsets;
+        this.edgeTimes = attributes.times;
+        this.edgeTimeRows = attributes.timeRows;
+        this.pairTable = indexPairs();
+    }
+
+    private record EdgeAttributes(double[] amounts, double[] minAmounts, double[] maxAmounts,
+                                  double[] firstAmounts, int[] transactionCounts,
+                                  long[] firstTimestamps, long[] lastTimestamps,
+                                  int[] timeOffsets, long[] times, int[] timeRows) {
+        EdgeAttributes(int edges, int transactions) {
+            this(new double[edges], new double[edges], new double[edges], new double[edges],
+                    new int[edges], new long[edges], new long[edges],
+                    new int[edges + 1], new long[transactions], new int[transactions]);
+        }
+    }
+
+    public static GraphRepository empty() {
+        return build(TransactionStore.empty());
+    }
+
+    // Amounts of an edge are summed in row order
+    public static GraphRepository build(TransactionStore store) {
+        return build(store, store.size() >= TransactionStore.PARALLEL_THRESHOLD);
+    }
+
+    // Senders are independent until their edges are laid out, so with parallel
+    // set the buckets are sorted and collapsed concurrently. Edge ids come from
+    // a prefix sum over the per-sender edge counts, so the result is the same.
+    static GraphRepository build(TransactionStore store, boolean parallel) {
+        int accountCount = store.accountCount();
+        int count = store.size();
+
+        // Bucket the rows by sender, keeping row order inside each bucket
+        int[] rowOffsets = new int[accountCount + 1];
+        for (int i = 0; i < count; i++) {
+            rowOffsets[store.sender(i) + 1]++;
+        }
+        for (int v = 0; v < accountCount; v++) {
+            rowOffsets[v + 1] += rowOffsets[v];
+        }
+        long[] rows = new long[count];
+        int[] fill = Arrays.copyOf(rowOffsets, accountCount);
+        for (int i = 0; i < count; i++) {
+            rows[fill[store.sender(i)]++] = (long) store.receiver(i) << 32 | i;
+        }
+
+        // Within a bucket, sort by (receiver, row) and count distinct receivers
+        int[] outOffsets = new int[accountCount + 1];
+        accounts(accountCount, parallel).forEach(v -> {
+            Arrays.sort(rows, rowOffsets[v], rowOffsets[v + 1]);
+            int distinct = 0;
+            long previous = -1;
+            for (int k = rowOffsets[v]; k < rowOffsets[v + 1]; k++) {
+                long receiver = rows[k] >>> 32;
+                if (receiver != previous) {
+                    distinct++;
+                    previous = receiver;
+                }
+            }
+            outOffsets[v + 1] = distinct;
+        });
+        for (int v = 0; v < accountCount; v++) {
+            outOffsets[v + 1] += outOffsets[v];
+        }
+        int edges = outOffsets[accountCount];
+
+        // Collapse equal receivers into the sender's slice of the edge arrays
+        int[] targets = new int[edges];
+        EdgeAttributes attributes = new EdgeAttributes(edges, count);
+        accounts(accountCount, parallel).forEach(v -> {
+            int e = outOffsets[v] - 1;
+            int previous = -1;
+            for (int k = rowOffsets[v]; k < rowOffsets[v + 1]; k++) {
+                int receiver = (int) (rows[k] >>> 32);
+                int row = (int) rows[k];
+                if (receiver != previous) {
+                    e++;
+                    targets[e] = receiver;
+                    attributes.minAmounts[e] = Double.POSITIVE_INFINITY;
+                    attributes.maxAmounts[e] = Double.NEGATIVE_INFINITY;
+                    attributes.firstTimestamps[e] = Long.MAX_VALUE;
+                    attributes.lastTimestamps[e] = Long.MIN_VALUE;
+                    previous = receiver;
+                }
+                double amount = store.amount(row);
+                long epochSecond = store.epochSecond(row);
+                attributes.amounts[e] += amount;
+                attributes.minAmounts[e] = Math.min(attributes.minAmounts[e], amount);
+                attributes.maxAmounts[e] = Math.max(attributes.maxAmounts[e], amount);
+                attributes.transactionCounts[e]++;
+                // Rows come in file order, so ties keep the first row's amount
+                if (epochSecond < attributes.firstTimestamps[e]) {
+                    attributes.firstTimestamps[e] = epochSecond;
+                    attributes.firstAmounts[e] = amount;
+                }
+                attributes.lastTimestamps[e] = Math.max(attributes.lastTimestamps[e], epochSecond);
+            }
+
+            // Each edge's rows are one run of the bucket, already in row order;
+            // a stable sort by time leaves ties in row order
+            for (int k = rowOffsets[v], end; k < rowOffsets[v + 1]; k = end) {
+                long receiver = rows[k] >>> 32;
+                end = k + 1;
+                while (end < rowOffsets[v + 1] && rows[end] >>> 32 == receiver) end++;
+                sortByTime(store, rows, k, end, attributes);
+            }
+        });
+        // Rows are bucketed by sender and then receiver, so an edge's transactions
+        // start where the previous edge's end
+        for (int e = 0; e < edges; e++) {
+            attributes.timeOffsets[e + 1] = attributes.timeOffsets[e] + attributes.transactionCounts[e];
+        }
+
+        // Incoming side: walking edges in source order keeps each list sorted
+        int[] inOffsets = new int[accountCount + 1];
+        for (int e = 0; e < edges; e++) {
+            inOffsets[targets[e] + 1]++;
+        }
+        for (int v = 0; v < accountCount; v++) {
+            inOffsets[v + 1] += inOffsets[v];
+        }
+        int[] sources = new int[edges];
+        int[] inEdges = new int[edges];
+        fill = Arrays.copyOf(inOffsets, accountCount);
+        for (int v = 0; v < accountCount; v++) {
+            for (int e = outOffsets[v]; e < outOffsets[v + 1]; e++) {
+                int slot = fill[targets[e]]++;
+                sources[slot] = v;
+                inEdges[slot] = e;
+            }
+        }
+
+        return new GraphRepository(outOffsets, targets, inOffsets, sources, inEdges, attributes);
+    }
+
+    // Writes rows[from .. to) into the time index at the same positions, in
+    // (timestamp, row) order
+    private static void sortByTime(TransactionStore store, long[] rows, int from, int to, EdgeAttributes attributes) {
+        long min = Long.MAX_VALUE, max = Long.MIN_VALUE;
+        boolean sorted = true;
+        for (int k = from; k < to; k++) {
+            long epochSecond = store.epochSecond((int) rows[k]);
+            sorted &= epochSecond >= max;
+            min = Math.min(min, epochSecond);
+            max = Math.max(max, epochSecond);
+        }
+
+        int[] order = new int[to - from];
+        if (sorted) {
+            for (int k = from; k < to; k++) order[k - from] = (int) rows[k];
+        } else if (max - min < Integer.MAX_VALUE) {
+            // Pack (offset, row) into one long so a primitive sort does the work
+            long[] keys = new long[to - from];
+            for (int k = from; k < to; k++) {
+                keys[k - from] = (store.epochSecond((int) rows[k]) - min) << 32 | (int) rows[k];
+            }
+            Arrays.sort(keys);
+            for (int i = 0; i < keys.length; i++) order[i] = (int) keys[i];
+        } else {
+            Integer[] boxed = new Integer[to - from];
+            for (int k = from; k < to; k++) boxed[k - from] = (int) rows[k];
+            Arrays.sort(boxed, Comparator.comparingLong(store::epochSecond));
+            for (int i = 0; i < boxed.length; i++) order[i] = boxed[i];
+        }
+
+        for (int k = from; k < to; k++) {
+            int row = order[k - from];
+            attributes.timeRows[k] = row;
+            attributes.times[k] = store.epochSecond(row);
+        }
+    }
+
+    private int[] indexPairs() {
+        int[] table = new int[Integer.highestOneBit(Math.max(1, edgeCount()) * 2) * 2];
+        Arrays.fill(table, -1);
+        int mask = table.length - 1;
+        for (int v = 0; v < accountCount(); v++) {
+            for (int e = outOffsets[v]; e < outOffsets[v + 1]; e++) {
+                int slot = pairHash(v, targets[e]) & mask;
+                while (table[slot] >= 0) slot = (slot + 1) & mask;
+                table[slot] = e;
+            }
+        }
+        return table;
+    }
+
+    private static int pairHash(int from, int to) {
+        long h = ((long) from << 32 | to & 0xffffffffL) * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 32);
+    }
+
+    private static IntStream accounts(int accountCount, boolean parallel) {
+        IntStream accounts = IntStream.range(0, accountCount);
+        return parallel ? accounts.parallel() : accounts;
+    }
+
+    public StronglyConnectedComponents components() {
+        StronglyConnectedComponents result = components;
+        if (result == null) {
+            synchronized (this) {
+                result = components;
+                if (result == null) {
+                    components = result = StronglyConnectedComponents.of(this);
+                }
+            }
+        }
+        return result;
+    }
+
+    public PathEngine paths() {
+        PathEngine result = paths;
+        if (result == null) {
+            synchronized (this) {
+                result = paths;
+                if (result == null) {
+                    paths = result = new PathEngine(this);
+                }
+            }
+        }
+        return result;
+    }
+
+    public int accountCount() {
+        return outOffsets.length - 1;
+    }
+
+    public int edgeCount() {
+        return targets.length;
+    }
+
+    public int outStart(int account) {
+        return outOffsets[account];
+    }
+
+    public int outEnd(int account) {
+        return outOffsets[account + 1];
+    }
+
+    public int outDegree(int account) {
+        return outOffsets[account + 1] - outOffsets[account];
+    }
+
+    public int target(int edge) {
+        return targets[edge];
+    }
+
+    public int inStart(int account) {
+        return inOffsets[account];
+    }
+
+    public int inEnd(int account) {
+        return inOffsets[account + 1];
+    }
+
+    public int inDegree(int account) {
+        return inOffsets[account + 1] - inOffsets[account];
+    }
+
+    public int source(int slot) {
+        return sources[slot];
+    }
+
+    // Outgoing edge id behind an incoming slot, for reading its attributes
+    public int inEdge(int slot) {
+        return inEdges[slot];
+    }
+
+    // Edge id of from -> to, or -1
+    public int edge(int from, int to) {
+        int mask = pairTable.length - 1;
+        int start = outOffsets[from], end = outOffsets[from + 1];
+        for (int slot = pairHash(from, to) & mask; pairTable[slot] >= 0; slot = (slot + 1) & mask) {
+            int e = pairTable[slot];
+            if (e >= start && e < end && targets[e] == to) {
+                return e;
+            }
+        }
+        return -1;
+    }
+
+    public boolean hasEdge(int from, int to) {
+        return edge(from, to) >= 0;
+    }
+
+    // Number of distinct accounts on either side of account
+    public int neighbourCount(int account) {
+        int i = outOffsets[account], outEnd = outOffsets[account + 1];
+        int j = inOffsets[account], inEnd = inOffsets[account + 1];
+        int count = 0;
+        while (i < outEnd && j < inEnd) {
+            if (targets[i] < sources[j]) {
+                i++;
+            } else if (targets[i] > sources[j]) {
+                j++;
+            } else {
+                i++;
+                j++;
+            }
+            count++;
+        }
+        return count + (outEnd - i) + (inEnd - j);
+    }
+
+    public double amount(int edge) {
+        return amounts[edge];
+    }
+
+    public double minAmount(int edge) {
+        return minAmounts[edge];
+    }
+
+    public double maxAmount(int edge) {
+        return maxAmounts[edge];
+    }
+
+    // Amount of the earliest transaction of the pair; ties go to the first row
+    public double firstAmount(int edge) {
+        return firstAmounts[edge];
+    }
+
+    public int timeStart(int edge) {
+        return edgeTimeOffsets[edge];
+    }
+
+    public int timeEnd(int edge) {
+        return edgeTimeOffsets[edge + 1];
+    }
+
+    // Timestamp and row at a position of the time index
+    public long time(int position) {
+        return edgeTimes[position];
+    }
+
+    public int timeRow(int position) {
+        return edgeTimeRows[position];
+    }
+
+    // First position of edge whose timestamp is at or after epochSecond,
+    // timeEnd(edge) if there is none
+    public int firstTimeAtOrAfter(int edge, long epochSecond) {
+        int lo = edgeTimeOffsets[edge], hi = edgeTimeOffsets[edge + 1];
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (edgeTimes[mid] < epochSecond) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    public int transactionCount(int edge) {
+        return transactionCounts[edge];
+    }
+
+    public long firstTimestamp(int edge) {
+        return firstTimestamps[edge];
+    }
+
+    public long lastTimestamp(int edge) {
+        return lastTimestamps[edge];
+    }
 }
@@ -0,0 +1,120 @@
+package com.rift.repository;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+// Transaction counts and amounts per (day of week, hour of day), plus how many
+// transactions came less than 5 minutes after the one before them. Every
+// transaction counts once.
+//
+// build() accumulates a store in parallel, one grid per split of the rows,
+// merged at the end. add() folds in a batch of new transactions, so the
+// grid follows intraday batches without going over the store again; for the
+// rapid count it keeps every timestamp, sorted, and only looks at the gaps
+// the batch opens or closes.
+public class HeatmapGrid {
+
+    // Gaps shorter than this count as rapid
+    private static final long RAPID_SECONDS = 5 * 60;
+
+    // [day - 1][hour], days 1 (Monday) - 7 (Sunday) as in TransactionStore.
+    // Amounts are summed in whole cents, so the merge order of the parallel
+    // partial grids cannot change the totals
+    private final long[][] counts = new long[7][24];
+    private final long[][] cents = new long[7][24];
+    private long[] times = new long[0];
+    private long rapid;
+
+    public static HeatmapGrid build(TransactionStore store) {
+        return build(store, store.size() >= TransactionStore.PARALLEL_THRESHOLD);
+    }
+
+    static HeatmapGrid build(TransactionStore store, boolean parallel) {
+        IntStream rows = IntStream.range(0, store.size());
+        HeatmapGrid grid = (parallel ? rows.parallel() : rows).collect(HeatmapGrid::new,
+                (partial, row) -> partial.tally(store.epochSecond(row), store.amount(row)), HeatmapGrid::merge);
+
+        // The store's time order gives the timestamps already sorted
+        grid.times = new long[store.size()];
+        if (parallel) {
+            Arrays.parallelSetAll(grid.times, i -> store.epochSecond(store.rowByTime(i)));
+        } else {
+            Arrays.setAll(grid.times, i -> store.epochSecond(store.rowByTime(i)));
+        }
+        long[] times = grid.times;
+        IntStream gaps = IntStream.range(1, times.length);
+        grid.rapid = (parallel ? gaps.parallel() : gaps).filter(i -> times[i] - times[i - 1] < RAPID_SECONDS).count();
+        return grid;
+    }
+
+    // Folds in the first count transactions of a batch, in any time order
+    public void add(long[] epochSeconds, double[] amounts, int count) {
+        long[] batch = Arrays.copyOf(epochSeconds, count);
+        Arrays.sort(batch);
+        for (int i = 0; i < count; i++) {
+            tally(epochSeconds[i], amounts[i]);
+        }
+
+        // Merge the batch in. A batch timestamp adds the gap to whatever
+        // precedes it; an old one after batch timestamps adds that gap too,
+        // and drops the old gap the batch split
+        long[] merged = new long[times.length + count];
+        int old = 0, added = 0;
+        boolean previousAdded = false, split = false;
+        for (int k = 0; k < merged.length; k++) {
+            if (added == count || old < times.length && times[old] <= batch[added]) {
+                merged[k] = times[old++];
+                if (k > 0 && previousAdded) {
+                    rapid += rapid(merged[k] - merged[k - 1]);
+                    if (split) rapid -= rapid(merged[k] - times[old - 2]);
+                }
+                previousAdded = false;
+                split = false;
+            } else {
+                merged[k] = batch[added++];
+                if (k > 0) rapid += rapid(merged[k] - merged[k - 1]);
+                previousAdded = true;
+                split = old > 0;
+            }
+        }
+        times = merged;
+    }
+
+    private static int rapid(long gap) {
+        return gap < RAPID_SECONDS ? 1 : 0;
+    }
+
+    private void tally(long epochSecond, double amount) {
+        int day = TransactionStore.dayOfWeek(epochSecond) - 1;
+        int hour = TransactionStore.hourOfDay(epochSecond);
+        counts[day][hour]++;
+        cents[day][hour] += Math.round(amount * 100);
+    }
+
+    private void merge(HeatmapGrid other) {
+        for (int day = 0; day < 7; day++) {
+            for (int hour = 0; hour < 24; hour++) {
+                counts[day][hour] += other.counts[day][hour];
+                cents[day][hour] += other.cents[day][hour];
+            }
+        }
+    }
+
+    // day is 1 (Monday) - 7 (Sunday)
+    public long count(int day, int hour) {
+        return counts[day - 1][hour];
+    }
+
+    public double amount(int day, int hour) {
+        return cents[day - 1][hour] / 100.0;
+    }
+
+    public long transactionCount() {
+        return times.length;
+    }
+
+    // Transactions less than 5 minutes after the previous one, in time order
+    public long rapidCount() {
+        return rapid;
+    }
+}
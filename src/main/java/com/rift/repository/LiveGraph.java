@@ -0,0 +1,174 @@
+package com.rift.repository;
+
+import java.util.Arrays;
+
+// A GraphRepository plus the account pairs added since it was built, so
+// intraday batches can extend a finished analysis without rebuilding the CSR.
+// Accounts past the base graph's count are ones first seen in a batch.
+//
+// Only adjacency is tracked: a pair the base graph already has is not added
+// again, and amounts and times of the added transfers stay with the caller.
+public class LiveGraph {
+
+    private static final int[] NONE = new int[0];
+
+    private final GraphRepository base;
+    private int accountCount;
+
+    private int[][] addedOut = new int[0][];
+    private int[] addedOutCounts = new int[0];
+    private int[][] addedIn = new int[0][];
+    private int[] addedInCounts = new int[0];
+    private int addedEdgeCount;
+
+    // Added pairs as from << 32 | to, open addressing; 0 is empty, so keys are
+    // stored plus one
+    private long[] addedPairs = new long[64];
+
+    public LiveGraph(GraphRepository base) {
+        this.base = base;
+        this.accountCount = base.accountCount();
+    }
+
+    public int accountCount() {
+        return accountCount;
+    }
+
+    // Makes room for account ids up to count - 1
+    public void ensureAccounts(int count) {
+        accountCount = Math.max(accountCount, count);
+        if (count > addedOutCounts.length) {
+            int capacity = Math.max(count, addedOutCounts.length * 2);
+            addedOut = Arrays.copyOf(addedOut, capacity);
+            addedOutCounts = Arrays.copyOf(addedOutCounts, capacity);
+            addedIn = Arrays.copyOf(addedIn, capacity);
+            addedInCounts = Arrays.copyOf(addedInCounts, capacity);
+        }
+    }
+
+    public int addedEdgeCount() {
+        return addedEdgeCount;
+    }
+
+    public boolean hasEdge(int from, int to) {
+        return baseHasEdge(from, to) || findPair(from, to) >= 0;
+    }
+
+    // Adds from -> to and returns true, or false if the graph already has it
+    public boolean addEdge(int from, int to) {
+        ensureAccounts(Math.max(from, to) + 1);
+        if (hasEdge(from, to)) return false;
+
+        if ((addedEdgeCount + 1) * 2 > addedPairs.length) {
+            long[] old = addedPairs;
+            addedPairs = new long[old.length * 2];
+            for (long key : old) {
+                if (key != 0) insertPair(key);
+            }
+        }
+        insertPair(pair(from, to) + 1);
+        addedEdgeCount++;
+
+        append(from, to, true);
+        append(to, from, false);
+        return true;
+    }
+
+    public int outDegree(int account) {
+        return baseOutDegree(account) + added(addedOutCounts, account);
+    }
+
+    // The i-th out-neighbour: the base graph's first, then the added ones
+    public int outTarget(int account, int i) {
+        int fromBase = baseOutDegree(account);
+        return i < fromBase ? base.target(base.outStart(account) + i) : addedOut[account][i - fromBase];
+    }
+
+    public int inDegree(int account) {
+        return baseInDegree(account) + added(addedInCounts, account);
+    }
+
+    public int inSource(int account, int i) {
+        int fromBase = baseInDegree(account);
+        return i < fromBase ? base.source(base.inStart(account) + i) : addedIn[account][i - fromBase];
+    }
+
+    // Accounts the added pairs lead to from this one
+    public int[] addedTargets(int account) {
+        int count = added(addedOutCounts, account);
+        return count == 0 ? NONE : Arrays.copyOf(addedOut[account], count);
+    }
+
+    // Number of distinct accounts on either side of account, counting the
+    // added pairs as well as the base graph's
+    public int neighbourCount(int account) {
+        int count = inBase(account) ? base.neighbourCount(account) : 0;
+        // Added pairs are never base pairs, so an added neighbour is already
+        // counted only through the opposite direction
+        for (int i = 0; i < added(addedOutCounts, account); i++) {
+            if (!baseHasEdge(addedOut[account][i], account)) count++;
+        }
+        for (int i = 0; i < added(addedInCounts, account); i++) {
+            int source = addedIn[account][i];
+            if (!baseHasEdge(account, source) && findPair(account, source) < 0) count++;
+        }
+        return count;
+    }
+
+    private boolean baseHasEdge(int from, int to) {
+        return inBase(from) && inBase(to) && base.hasEdge(from, to);
+    }
+
+    private boolean inBase(int account) {
+        return account < base.accountCount();
+    }
+
+    private int baseOutDegree(int account) {
+        return inBase(account) ? base.outDegree(account) : 0;
+    }
+
+    private int baseInDegree(int account) {
+        return inBase(account) ? base.inDegree(account) : 0;
+    }
+
+    private static int added(int[] counts, int account) {
+        return account < counts.length ? counts[account] : 0;
+    }
+
+    private void append(int account, int neighbour, boolean out) {
+        int[][] lists = out ? addedOut : addedIn;
+        int[] counts = out ? addedOutCounts : addedInCounts;
+        int count = counts[account];
+        if (lists[account] == null) {
+            lists[account] = new int[2];
+        } else if (count == lists[account].length) {
+            lists[account] = Arrays.copyOf(lists[account], count * 2);
+        }
+        lists[account][count] = neighbour;
+        counts[account]++;
+    }
+
+    private static long pair(int from, int to) {
+        return (long) from << 32 | to;
+    }
+
+    private int findPair(int from, int to) {
+        long key = pair(from, to) + 1;
+        int mask = addedPairs.length - 1;
+        for (int slot = slot(key, mask); addedPairs[slot] != 0; slot = (slot + 1) & mask) {
+            if (addedPairs[slot] == key) return slot;
+        }
+        return -1;
+    }
+
+    private void insertPair(long key) {
+        int mask = addedPairs.length - 1;
+        int slot = slot(key, mask);
+        while (addedPairs[slot] != 0) slot = (slot + 1) & mask;
+        addedPairs[slot] = key;
+    }
+
+    private static int slot(long key, int mask) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+    }
+}
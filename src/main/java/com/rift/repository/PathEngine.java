@@ -0,0 +1,167 @@
+package com.rift.repository;
+
+import com.rift.utils.TopK;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntPredicate;
+
+// Simple-path queries over one graph, shared by the flow analyzers. A query
+// asks for every simple path of minAccounts .. maxAccounts accounts whose
+// inner accounts all pass a filter; the filter is applied while walking, so a
+// branch ends at the first account that may not sit in the middle.
+//
+// Paths come in a fixed order: by start account, then depth first along the
+// ascending out-edges, each path right before its extensions. They can be
+// streamed straight from the search, or materialized once per graph into a
+// compact PathSet that later queries of the same name reuse.
+public class PathEngine {
+
+    @FunctionalInterface
+    public interface PathConsumer {
+        // path is reused between calls; copy what needs to be kept
+        void accept(int[] path, int length);
+    }
+
+    @FunctionalInterface
+    public interface PathScorer {
+        double score(int[] path, int length);
+    }
+
+    @FunctionalInterface
+    public interface ScoredPathConsumer {
+        void accept(int[] path, int length, double score);
+    }
+
+    // name identifies the filter in the cache: queries with the same name and
+    // bounds on one graph must filter the same way
+    public record PathQuery(String name, int minAccounts, int maxAccounts, IntPredicate intermediates) {
+
+        public static final IntPredicate ANY = account -> true;
+
+        String cacheKey() {
+            return name + ":" + minAccounts + "-" + maxAccounts;
+        }
+    }
+
+    private final GraphRepository graph;
+    private final Map<String, PathSet> cache = new ConcurrentHashMap<>();
+
+    PathEngine(GraphRepository graph) {
+        this.graph = graph;
+    }
+
+    // Walks the query's paths without keeping any of them
+    public void stream(PathQuery query, PathConsumer consumer) {
+        int[] path = new int[query.maxAccounts()];
+        boolean[] onPath = new boolean[graph.accountCount()];
+        for (int start = 0; start < graph.accountCount(); start++) {
+            walk(query, start, path, 0, onPath, consumer);
+        }
+    }
+
+    public void stream(PathQuery query, PathScorer scorer, ScoredPathConsumer consumer) {
+        stream(query, (path, length) -> consumer.accept(path, length, scorer.score(path, length)));
+    }
+
+    // The query's paths, computed on the first call for this graph
+    public PathSet paths(PathQuery query) {
+        return cache.computeIfAbsent(query.cacheKey(), key -> {
+            PathSet.Builder builder = new PathSet.Builder();
+            stream(query, builder);
+            return builder.build();
+        });
+    }
+
+    private void walk(PathQuery query, int current, int[] path, int depth, boolean[] onPath,
+                      PathConsumer consumer) {
+        path[depth] = current;
+        int length = depth + 1;
+        if (length >= query.minAccounts()) {
+            consumer.accept(path, length);
+        }
+        if (length == query.maxAccounts() || depth > 0 && !query.intermediates().test(current)) {
+            return;
+        }
+
+        onPath[current] = true;
+        for (int e = graph.outStart(current); e < graph.outEnd(current); e++) {
+            int next = graph.target(e);
+            if (!onPath[next]) {
+                walk(query, next, path, length, onPath, consumer);
+            }
+        }
+        onPath[current] = false;
+    }
+
+    // Materialized paths, all accounts in one array: path i is
+    // accounts[offsets[i] .. offsets[i + 1] - 1]
+    public static class PathSet {
+
+        private final int[] offsets;
+        private final int[] accounts;
+
+        private PathSet(int[] offsets, int[] accounts) {
+            this.offsets = offsets;
+            this.accounts = accounts;
+        }
+
+        public int size() {
+            return offsets.length - 1;
+        }
+
+        public int length(int i) {
+            return offsets[i + 1] - offsets[i];
+        }
+
+        public int[] path(int i) {
+            return Arrays.copyOfRange(accounts, offsets[i], offsets[i + 1]);
+        }
+
+        public void forEach(PathConsumer consumer) {
+            int[] path = new int[0];
+            for (int i = 0; i < size(); i++) {
+                int length = length(i);
+                if (path.length < length) path = new int[length];
+                System.arraycopy(accounts, offsets[i], path, 0, length);
+                consumer.accept(path, length);
+            }
+        }
+
+        public void forEach(PathScorer scorer, ScoredPathConsumer consumer) {
+            forEach((path, length) -> consumer.accept(path, length, scorer.score(path, length)));
+        }
+
+        // The k best scoring paths, with their index in this set as id; only
+        // scores are compared, no path is copied out
+        public TopK top(int k, PathScorer scorer) {
+            TopK top = new TopK(k);
+            int[] index = {0};
+            forEach((path, length) -> top.offer(scorer.score(path, length), index[0]++));
+            return top;
+        }
+
+        private static class Builder implements PathConsumer {
+            private int[] offsets = new int[1025];
+            private int[] accounts = new int[4096];
+            private int size;
+
+            @Override
+            public void accept(int[] path, int length) {
+                if (size + 1 == offsets.length) {
+                    offsets = Arrays.copyOf(offsets, offsets.length * 2);
+                }
+                int from = offsets[size];
+                if (from + length > accounts.length) {
+                    accounts = Arrays.copyOf(accounts, Math.max(accounts.length * 2, from + length));
+                }
+                System.arraycopy(path, 0, accounts, from, length);
+                offsets[++size] = from + length;
+            }
+
+            PathSet build() {
+                return new PathSet(Arrays.copyOf(offsets, size + 1), Arrays.copyOf(accounts, offsets[size]));
+            }
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.rift.repository;
+
+import java.util.Arrays;
+
+// Registry of rings keyed by their members, so duplicate, subset and overlap
+// checks cost about as much as the ring itself instead of a scan over every
+// ring registered so far.
+//
+// A ring is stored in canonical form: its account ids sorted and distinct.
+// A 64-bit fingerprint of that array indexes the rings in an open addressing
+// table, and an inverted index lists the rings of every account.
+public class RingRegistry {
+
+    // Ring r's members are members[memberOffsets[r] .. memberOffsets[r + 1] - 1]
+    private int[] memberOffsets = new int[17];
+    private int[] members = new int[64];
+    private long[] fingerprints = new long[16];
+    private int size;
+
+    // Ring ids by fingerprint; -1 is empty
+    private int[] table = new int[32];
+
+    // Rings of each account, in registration order. Grows when a ring names
+    // an account past the initial count, as intraday batches may.
+    private int[][] accountRings;
+    private int[] accountRingCounts;
+
+    public RingRegistry(int accountCount) {
+        this.accountRings = new int[accountCount][];
+        this.accountRingCounts = new int[accountCount];
+        Arrays.fill(table, -1);
+    }
+
+    // Sorted, distinct copy of ids
+    public static int[] canonical(int[] ids) {
+        return Arrays.stream(ids).sorted().distinct().toArray();
+    }
+
+    public static long fingerprint(int[] canonical) {
+        long h = 0x9E3779B97F4A7C15L;
+        for (int id : canonical) {
+            h = Long.rotateLeft(h ^ mix(id), 27) * 0xC2B2AE3D27D4EB4FL;
+        }
+        return mix(h ^ canonical.length);
+    }
+
+    // Registers a ring and returns its id; a ring already present keeps its id
+    public int add(int[] canonical) {
+        int existing = indexOf(canonical);
+        if (existing >= 0) return existing;
+
+        int ring = size++;
+        if (ring == fingerprints.length) {
+            fingerprints = Arrays.copyOf(fingerprints, ring * 2);
+            memberOffsets = Arrays.copyOf(memberOffsets, ring * 2 + 1);
+        }
+        int from = memberOffsets[ring];
+        if (from + canonical.length > members.length) {
+            members = Arrays.copyOf(members, Math.max(members.length * 2, from + canonical.length));
+        }
+        System.arraycopy(canonical, 0, members, from, canonical.length);
+        memberOffsets[ring + 1] = from + canonical.length;
+        fingerprints[ring] = fingerprint(canonical);
+
+        int last = canonical.length > 0 ? canonical[canonical.length - 1] : -1;
+        if (last >= accountRingCounts.length) {
+            int capacity = Math.max(last + 1, accountRingCounts.length * 2);
+            accountRings = Arrays.copyOf(accountRings, capacity);
+            accountRingCounts = Arrays.copyOf(accountRingCounts, capacity);
+        }
+        for (int account : canonical) {
+            int count = accountRingCounts[account];
+            if (accountRings[account] == null) {
+                accountRings[account] = new int[2];
+            } else if (count == accountRings[account].length) {
+                accountRings[account] = Arrays.copyOf(accountRings[account], count * 2);
+            }
+            accountRings[account][count] = ring;
+            accountRingCounts[account]++;
+        }
+
+        if (size * 2 > table.length) {
+            rehash(table.length * 2);
+        } else {
+            insert(ring, table);
+        }
+        return ring;
+    }
+
+    // Id of the ring with exactly these members, or -1
+    public int indexOf(int[] canonical) {
+        long fingerprint = fingerprint(canonical);
+        int mask = table.length - 1;
+        for (int slot = (int) fingerprint & mask; table[slot] >= 0; slot = (slot + 1) & mask) {
+            int ring = table[slot];
+            if (fingerprints[ring] == fingerprint && sameMembers(ring, canonical)) {
+                return ring;
+            }
+        }
+        return -1;
+    }
+
+    // True if some registered ring contains every one of these members. Only
+    // the rings of the member with the fewest rings need checking.
+    public boolean isCovered(int[] canonical) {
+        if (canonical.length == 0) return size > 0;
+        int rarest = canonical[0];
+        for (int account : canonical) {
+            if (ringCount(account) < ringCount(rarest)) rarest = account;
+        }
+        for (int i = 0; i < ringCount(rarest); i++) {
+            if (containsAll(accountRings[rarest][i], canonical)) return true;
+        }
+        return false;
+    }
+
+    // True if some registered ring shares a member with these
+    public boolean overlaps(int[] canonical) {
+        for (int account : canonical) {
+            if (ringCount(account) > 0) return true;
+        }
+        return false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int[] members(int ring) {
+        return Arrays.copyOfRange(members, memberOffsets[ring], memberOffsets[ring + 1]);
+    }
+
+    public int memberCount(int ring) {
+        return memberOffsets[ring + 1] - memberOffsets[ring];
+    }
+
+    public int ringCount(int account) {
+        return account < accountRingCounts.length ? accountRingCounts[account] : 0;
+    }
+
+    // The account's rings, in registration order
+    public int[] rings(int account) {
+        return ringCount(account) == 0
+                ? new int[0]
+                : Arrays.copyOf(accountRings[account], accountRingCounts[account]);
+    }
+
+    private boolean sameMembers(int ring, int[] canonical) {
+        int from = memberOffsets[ring];
+        return Arrays.equals(members, from, memberOffsets[ring + 1], canonical, 0, canonical.length);
+    }
+
+    // Both sides are sorted, so one merge pass decides it
+    private boolean containsAll(int ring, int[] canonical) {
+        int i = memberOffsets[ring], end = memberOffsets[ring + 1];
+        if (end - i < canonical.length) return false;
+        for (int account : canonical) {
+            while (i < end && members[i] < account) i++;
+            if (i == end || members[i] != account) return false;
+            i++;
+        }
+        return true;
+    }
+
+    private void rehash(int capacity) {
+        table = new int[capacity];
+        Arrays.fill(table, -1);
+        for (int ring = 0; ring < size; ring++) {
+            insert(ring, table);
+        }
+    }
+
+    private void insert(int ring, int[] into) {
+        int mask = into.length - 1;
+        int slot = (int) fingerprints[ring] & mask;
+        while (into[slot] >= 0) slot = (slot + 1) & mask;
+        into[slot] = ring;
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,78 @@
+package com.rift.repository;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+// Accounts that look like pass-through shells: few counterparties, about as
+// much sent on as received, and money leaving soon after it arrives. Layering
+// runs through such accounts, so chain searches only need to step through
+// these, a small fraction of a real graph.
+//
+// Holding time is measured per outgoing transfer, back to the latest transfer
+// received before it; the mean over all outgoing transfers must be within the
+// limit, and an account that sends before it has received anything fails it.
+// Self transfers are ignored throughout.
+public class ShellCandidates {
+
+    private final boolean[] member;
+    private final int[] accounts;
+
+    private ShellCandidates(boolean[] member) {
+        this.member = member;
+        this.accounts = IntStream.range(0, member.length).filter(v -> member[v]).toArray();
+    }
+
+    public static ShellCandidates build(TransactionStore store, GraphRepository graph, int maxCounterparties,
+                                        double minPassThrough, long maxHoldingSeconds) {
+        boolean[] member = new boolean[store.accountCount()];
+        IntStream accounts = IntStream.range(0, store.accountCount());
+        (store.size() >= TransactionStore.PARALLEL_THRESHOLD ? accounts.parallel() : accounts).forEach(v ->
+                member[v] = graph.neighbourCount(v) <= maxCounterparties
+                        && isPassThrough(store, v, minPassThrough, maxHoldingSeconds));
+        return new ShellCandidates(member);
+    }
+
+    // Every account is a candidate
+    public static ShellCandidates all(int accountCount) {
+        boolean[] member = new boolean[accountCount];
+        Arrays.fill(member, true);
+        return new ShellCandidates(member);
+    }
+
+    private static boolean isPassThrough(TransactionStore store, int account, double minPassThrough,
+                                         long maxHoldingSeconds) {
+        double received = 0, sent = 0;
+        long lastReceived = Long.MIN_VALUE;
+        long holding = 0;
+        int outgoing = 0;
+        for (int slot = store.accountStart(account); slot < store.accountEnd(account); slot++) {
+            int row = store.row(slot);
+            if (store.sender(row) == store.receiver(row)) continue;
+            if (store.receiver(row) == account) {
+                received += store.amount(row);
+                lastReceived = store.epochSecond(row);
+            } else {
+                if (lastReceived == Long.MIN_VALUE) return false;
+                sent += store.amount(row);
+                holding += store.epochSecond(row) - lastReceived;
+                outgoing++;
+            }
+        }
+        if (outgoing == 0 || received <= 0) return false;
+        return Math.min(received, sent) / Math.max(received, sent) >= minPassThrough
+                && holding / outgoing <= maxHoldingSeconds;
+    }
+
+    public boolean contains(int account) {
+        return member[account];
+    }
+
+    public int size() {
+        return accounts.length;
+    }
+
+    // The i-th candidate, in ascending account order
+    public int account(int i) {
+        return accounts[i];
+    }
+}
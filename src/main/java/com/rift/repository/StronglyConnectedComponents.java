@@ -0,0 +1,129 @@
+package com.rift.repository;
+
+import java.util.Arrays;
+
+// Strongly connected components of a GraphRepository, found with an iterative
+// Tarjan pass so deep chains cannot overflow the call stack.
+//
+// Every directed cycle lies inside one component, so cycle and round-trip
+// searches only need the components with two or more accounts. Component ids
+// are in Tarjan completion order (reverse topological); the members of
+// component c are member(start(c)) .. member(end(c) - 1), in ascending order.
+public class StronglyConnectedComponents {
+
+    private final int[] componentOf;
+    private final int[] offsets;
+    private final int[] members;
+
+    private StronglyConnectedComponents(int[] componentOf, int componentCount) {
+        this.componentOf = componentOf;
+
+        // Counting sort by component, walking accounts in id order
+        offsets = new int[componentCount + 1];
+        for (int component : componentOf) {
+            offsets[component + 1]++;
+        }
+        for (int c = 0; c < componentCount; c++) {
+            offsets[c + 1] += offsets[c];
+        }
+        members = new int[componentOf.length];
+        int[] fill = Arrays.copyOf(offsets, componentCount);
+        for (int v = 0; v < componentOf.length; v++) {
+            members[fill[componentOf[v]]++] = v;
+        }
+    }
+
+    public static StronglyConnectedComponents of(GraphRepository graph) {
+        int n = graph.accountCount();
+        int[] index = new int[n];
+        int[] lowLink = new int[n];
+        int[] componentOf = new int[n];
+        boolean[] onStack = new boolean[n];
+        Arrays.fill(index, -1);
+
+        // Tarjan's stack of open accounts, plus the explicit DFS call stack
+        // holding each frame's account and its next outgoing edge
+        int[] stack = new int[n];
+        int stackSize = 0;
+        int[] callAccount = new int[n];
+        int[] callEdge = new int[n];
+
+        int nextIndex = 0;
+        int componentCount = 0;
+        for (int root = 0; root < n; root++) {
+            if (index[root] >= 0) continue;
+
+            int depth = 0;
+            callAccount[0] = root;
+            callEdge[0] = graph.outStart(root);
+            index[root] = lowLink[root] = nextIndex++;
+            stack[stackSize++] = root;
+            onStack[root] = true;
+
+            while (depth >= 0) {
+                int v = callAccount[depth];
+                if (callEdge[depth] < graph.outEnd(v)) {
+                    int w = graph.target(callEdge[depth]++);
+                    if (index[w] < 0) {
+                        // Descend into w
+                        index[w] = lowLink[w] = nextIndex++;
+                        stack[stackSize++] = w;
+                        onStack[w] = true;
+                        depth++;
+                        callAccount[depth] = w;
+                        callEdge[depth] = graph.outStart(w);
+                    } else if (onStack[w]) {
+                        lowLink[v] = Math.min(lowLink[v], index[w]);
+                    }
+                    continue;
+                }
+
+                // v is finished: pop its component if it is a root
+                if (lowLink[v] == index[v]) {
+                    int w;
+                    do {
+                        w = stack[--stackSize];
+                        onStack[w] = false;
+                        componentOf[w] = componentCount;
+                    } while (w != v);
+                    componentCount++;
+                }
+                depth--;
+                if (depth >= 0) {
+                    int parent = callAccount[depth];
+                    lowLink[parent] = Math.min(lowLink[parent], lowLink[v]);
+                }
+            }
+        }
+        return new StronglyConnectedComponents(componentOf, componentCount);
+    }
+
+    public int count() {
+        return offsets.length - 1;
+    }
+
+    public int componentOf(int account) {
+        return componentOf[account];
+    }
+
+    public int size(int component) {
+        return offsets[component + 1] - offsets[component];
+    }
+
+    public int start(int component) {
+        return offsets[component];
+    }
+
+    public int end(int component) {
+        return offsets[component + 1];
+    }
+
+    public int member(int position) {
+        return members[position];
+    }
+
+    // True if both accounts are in the same component, i.e. each can reach the other
+    public boolean connected(int a, int b) {
+        return componentOf[a] == componentOf[b];
+    }
+}
@@ -0,0 +1,272 @@
+package com.rift.repository;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.IntStream;
+
+// Column store of every transaction of an upload, one array per field, with
+// rows in file order. Accounts are int ids from the AccountDictionary and
+// timestamps are UTC epoch seconds.
+//
+// The transactions touching account v are the rows row(accountStart(v)) ..
+// row(accountEnd(v) - 1), ordered by (timestamp, row). A self transfer is
+// listed twice, once for each side.
+//
+// The same rows are also split by direction into timelines: the rows v sent
+// are timelineRow(sentStart(v)) .. timelineRow(sentEnd(v) - 1), the rows it
+// received timelineRow(receivedStart(v)) .. timelineRow(receivedEnd(v) - 1),
+// both in the same order; a self transfer is in each once. rowByTime(i) lists
+// every row once, in (timestamp, row) order. All of it is built here, so no
+// stage needs to sort transactions again.
+public class TransactionStore {
+
+    private static final int SECONDS_PER_DAY = 86_400;
+    // Stores with at least this many rows sort their account buckets in parallel
+    static final int PARALLEL_THRESHOLD = 64 * 1024;
+
+    private final String[] transactionIds;
+    private final int[] senders;
+    private final int[] receivers;
+    private final double[] amounts;
+    private final long[] epochSeconds;
+
+    private final int[] accountOffsets;
+    private final int[] accountRows;
+    // Per account, its sent then its received rows: sent from timelineOffsets[2v],
+    // received from timelineOffsets[2v + 1]
+    private final int[] timelineOffsets;
+    private final int[] timelineRows;
+    private final int[] rowsByTime;
+
+    // Copies the first size entries of each column
+    public TransactionStore(int accountCount, int size, String[] transactionIds, int[] senders,
+                            int[] receivers, double[] amounts, long[] epochSeconds) {
+        this(accountCount, size, transactionIds, senders, receivers, amounts, epochSeconds,
+                size >= PARALLEL_THRESHOLD);
+    }
+
+    // parallel only changes how the per-account order is computed, never the result
+    TransactionStore(int accountCount, int size, String[] transactionIds, int[] senders,
+                     int[] receivers, double[] amounts, long[] epochSeconds, boolean parallel) {
+        this.transactionIds = Arrays.copyOf(transactionIds, size);
+        this.senders = Arrays.copyOf(senders, size);
+        this.receivers = Arrays.copyOf(receivers, size);
+        this.amounts = Arrays.copyOf(amounts, size);
+        this.epochSeconds = Arrays.copyOf(epochSeconds, size);
+
+        accountOffsets = new int[accountCount + 1];
+        for (int row = 0; row < size; row++) {
+            accountOffsets[senders[row] + 1]++;
+            accountOffsets[receivers[row] + 1]++;
+        }
+        for (int v = 0; v < accountCount; v++) {
+            accountOffsets[v + 1] += accountOffsets[v];
+        }
+        accountRows = new int[2 * size];
+
+        long min = Long.MAX_VALUE, max = Long.MIN_VALUE;
+        for (int row = 0; row < size; row++) {
+            min = Math.min(min, epochSeconds[row]);
+            max = Math.max(max, epochSeconds[row]);
+        }
+        if (size > 0 && max - min < Integer.MAX_VALUE) {
+            sortBucketsByTime(accountCount, min, parallel);
+            rowsByTime = sortRowsByTime(min, parallel);
+        } else {
+            // Bucket the rows by account, visiting them in time order so every
+            // bucket comes out sorted
+            rowsByTime = rowsByTime();
+            int[] fill = Arrays.copyOf(accountOffsets, accountCount);
+            for (int row : rowsByTime) {
+                accountRows[fill[this.senders[row]]++] = row;
+                accountRows[fill[this.receivers[row]]++] = row;
+            }
+        }
+
+        timelineOffsets = new int[2 * accountCount + 1];
+        for (int row = 0; row < size; row++) {
+            timelineOffsets[2 * senders[row] + 1]++;
+            timelineOffsets[2 * receivers[row] + 2]++;
+        }
+        for (int i = 0; i < 2 * accountCount; i++) {
+            timelineOffsets[i + 1] += timelineOffsets[i];
+        }
+        timelineRows = new int[2 * size];
+        IntStream accounts = IntStream.range(0, accountCount);
+        (parallel ? accounts.parallel() : accounts).forEach(this::splitByDirection);
+    }
+
+    public static TransactionStore empty() {
+        return new TransactionStore(0, 0, new String[0], new int[0], new int[0], new double[0], new long[0]);
+    }
+
+    // Buckets the rows by account as packed (time offset, row) keys, then sorts
+    // every bucket on its own; buckets are independent, so they sort in parallel
+    private void sortBucketsByTime(int accountCount, long min, boolean parallel) {
+        long[] keys = new long[accountRows.length];
+        int[] fill = Arrays.copyOf(accountOffsets, accountCount);
+        for (int row = 0; row < senders.length; row++) {
+            long key = (epochSeconds[row] - min) << 32 | row;
+            keys[fill[senders[row]]++] = key;
+            keys[fill[receivers[row]]++] = key;
+        }
+
+        IntStream accounts = IntStream.range(0, accountCount);
+        (parallel ? accounts.parallel() : accounts)
+                .forEach(v -> Arrays.sort(keys, accountOffsets[v], accountOffsets[v + 1]));
+        for (int slot = 0; slot < keys.length; slot++) {
+            accountRows[slot] = (int) keys[slot];
+        }
+    }
+
+    // Every row once, sorted by (timestamp, row)
+    private int[] sortRowsByTime(long min, boolean parallel) {
+        long[] keys = new long[senders.length];
+        for (int row = 0; row < keys.length; row++) {
+            keys[row] = (epochSeconds[row] - min) << 32 | row;
+        }
+        if (parallel) {
+            Arrays.parallelSort(keys);
+        } else {
+            Arrays.sort(keys);
+        }
+        int[] rows = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            rows[i] = (int) keys[i];
+        }
+        return rows;
+    }
+
+    // Copies the account's time-ordered bucket into its two timelines, keeping
+    // the order. Both slots of a self transfer sit next to each other in the
+    // bucket, so the second is skipped
+    private void splitByDirection(int account) {
+        int sent = timelineOffsets[2 * account];
+        int received = timelineOffsets[2 * account + 1];
+        for (int slot = accountOffsets[account]; slot < accountOffsets[account + 1]; slot++) {
+            int row = accountRows[slot];
+            if (slot > accountOffsets[account] && accountRows[slot - 1] == row) continue;
+            if (senders[row] == account) timelineRows[sent++] = row;
+            if (receivers[row] == account) timelineRows[received++] = row;
+        }
+    }
+
+    // Row numbers sorted by (timestamp, row), for timestamps too far apart to pack
+    private int[] rowsByTime() {
+        int size = senders.length;
+        int[] rows = new int[size];
+        Integer[] boxed = new Integer[size];
+        for (int row = 0; row < size; row++) boxed[row] = row;
+        Arrays.sort(boxed, Comparator.comparingLong((Integer row) -> epochSeconds[row]));
+        for (int i = 0; i < size; i++) rows[i] = boxed[i];
+        return rows;
+    }
+
+    public int size() {
+        return senders.length;
+    }
+
+    public int accountCount() {
+        return accountOffsets.length - 1;
+    }
+
+    public String transactionId(int row) {
+        return transactionIds[row];
+    }
+
+    public int sender(int row) {
+        return senders[row];
+    }
+
+    public int receiver(int row) {
+        return receivers[row];
+    }
+
+    public double amount(int row) {
+        return amounts[row];
+    }
+
+    public long epochSecond(int row) {
+        return epochSeconds[row];
+    }
+
+    public int accountStart(int account) {
+        return accountOffsets[account];
+    }
+
+    public int accountEnd(int account) {
+        return accountOffsets[account + 1];
+    }
+
+    // Total number of (account, row) slots, i.e. twice size()
+    public int slotCount() {
+        return accountRows.length;
+    }
+
+    public int row(int slot) {
+        return accountRows[slot];
+    }
+
+    // The account's rows, in time order
+    public IntStream rows(int account) {
+        return IntStream.range(accountOffsets[account], accountOffsets[account + 1]).map(this::row);
+    }
+
+    public int sentStart(int account) {
+        return timelineOffsets[2 * account];
+    }
+
+    public int sentEnd(int account) {
+        return timelineOffsets[2 * account + 1];
+    }
+
+    public int receivedStart(int account) {
+        return timelineOffsets[2 * account + 1];
+    }
+
+    public int receivedEnd(int account) {
+        return timelineOffsets[2 * account + 2];
+    }
+
+    public int timelineRow(int slot) {
+        return timelineRows[slot];
+    }
+
+    // The first of the account's sent rows at or after epochSecond, as a
+    // timeline slot; the rows sent in [t1, t2) are the slots from
+    // firstSentAtOrAfter(v, t1) up to firstSentAtOrAfter(v, t2)
+    public int firstSentAtOrAfter(int account, long epochSecond) {
+        return firstAtOrAfter(sentStart(account), sentEnd(account), epochSecond);
+    }
+
+    public int firstReceivedAtOrAfter(int account, long epochSecond) {
+        return firstAtOrAfter(receivedStart(account), receivedEnd(account), epochSecond);
+    }
+
+    private int firstAtOrAfter(int from, int to, long epochSecond) {
+        while (from < to) {
+            int mid = (from + to) >>> 1;
+            if (epochSeconds[timelineRows[mid]] < epochSecond) {
+                from = mid + 1;
+            } else {
+                to = mid;
+            }
+        }
+        return from;
+    }
+
+    // The i-th row in (timestamp, row) order
+    public int rowByTime(int i) {
+        return rowsByTime[i];
+    }
+
+    // 0-23, UTC like the rest of the pipeline
+    public static int hourOfDay(long epochSecond) {
+        return (int) (Math.floorMod(epochSecond, SECONDS_PER_DAY) / 3600);
+    }
+
+    // 1 (Monday) - 7 (Sunday); 1970-01-01 was a Thursday
+    public static int dayOfWeek(long epochSecond) {
+        return (int) Math.floorMod(Math.floorDiv(epochSecond, SECONDS_PER_DAY) + 3, 7) + 1;
+    }
+}
@@ -0,0 +1,142 @@
+package com.rift.service;
+
+import com.rift.model.Account;
+import com.rift.model.DetectionResult;
+import com.rift.model.Transaction;
+import com.rift.repository.AccountDictionary;
+import com.rift.repository.GraphRepository;
+import com.rift.repository.TransactionStore;
+import com.rift.utils.TransactionSink;
+import java.time.ZoneOffset;
+import java.util.*;
+
+// Builds the account graph one transaction at a time, so rows can be fed
+// straight from the parser without collecting them into a list first.
+// Accounts are indexed by their dictionary id, i.e. in first-appearance order.
+public class AccountGraphBuilder implements TransactionSink {
+
+    private final AccountDictionary dictionary = new AccountDictionary();
+    private final List<Account> accounts = new ArrayList<>();
+
+    // Row-ordered transaction columns, frozen into a TransactionStore by build()
+    private String[] transactionIds = new String[1024];
+    private int[] senders = new int[1024];
+    private int[] receivers = new int[1024];
+    private double[] amounts = new double[1024];
+    private long[] epochSeconds = new long[1024];
+    private int count;
+
+    @Override
+    public void accept(String transactionId, int senderId, int receiverId,
+                       double amount, long epochSecond) {
+        // Get or create sender and receiver accounts
+        Account sender = account(senderId);
+        Account receiver = account(receiverId);
+        addRow(transactionId, senderId, receiverId, amount, epochSecond);
+
+        // Update sender metrics
+        sender.setOutgoingCount(sender.getOutgoingCount() + 1);
+        sender.setTotalSent(sender.getTotalSent() + amount);
+
+        // Update receiver metrics
+        receiver.setIncomingCount(receiver.getIncomingCount() + 1);
+        receiver.setTotalReceived(receiver.getTotalReceived() + amount);
+
+        // Update transaction counts
+        sender.setTransactionCount(sender.getTransactionCount() + 1);
+        receiver.setTransactionCount(receiver.getTransactionCount() + 1);
+    }
+
+    public void add(Transaction tx) {
+        accept(tx.getTransactionId(), dictionary.intern(tx.getSenderId()),
+                dictionary.intern(tx.getReceiverId()), tx.getAmount(),
+                tx.getTimestamp().toEpochSecond(ZoneOffset.UTC));
+    }
+
+    private Account account(int index) {
+        // Dictionary ids are handed out in sequence, so a new id is the next index
+        if (index == accounts.size()) {
+            accounts.add(new Account(index, dictionary.name(index)));
+        }
+        return accounts.get(index);
+    }
+
+    private void addRow(String transactionId, int senderId, int receiverId,
+                        double amount, long epochSecond) {
+        if (count == senders.length) {
+            int capacity = count * 2;
+            transactionIds = Arrays.copyOf(transactionIds, capacity);
+            senders = Arrays.copyOf(senders, capacity);
+            receivers = Arrays.copyOf(receivers, capacity);
+            amounts = Arrays.copyOf(amounts, capacity);
+            epochSeconds = Arrays.copyOf(epochSeconds, capacity);
+        }
+        transactionIds[count] = transactionId;
+        senders[count] = senderId;
+        receivers[count] = receiverId;
+        amounts[count] = amount;
+        epochSeconds[count] = epochSecond;
+        count++;
+    }
+
+    // Folds in a builder that saw the rows immediately after this one's.
+    // The result is identical to feeding both row ranges to a single builder.
+    public AccountGraphBuilder merge(AccountGraphBuilder later) {
+        int existing = accounts.size();
+        int[] mapping = dictionary.absorb(later.dictionary);
+
+        for (Account theirs : later.accounts) {
+            int index = mapping[theirs.getIndex()];
+            if (index >= existing) {
+                theirs.setIndex(index);
+                accounts.add(theirs);
+                continue;
+            }
+
+            Account mine = accounts.get(index);
+            mine.setIncomingCount(mine.getIncomingCount() + theirs.getIncomingCount());
+            mine.setOutgoingCount(mine.getOutgoingCount() + theirs.getOutgoingCount());
+            mine.setTransactionCount(mine.getTransactionCount() + theirs.getTransactionCount());
+        }
+
+        // Replay the amounts of accounts both builders saw onto the running
+        // totals in row order, so the floating point sums come out exactly as
+        // the sequential ones
+        for (int i = 0; i < later.count; i++) {
+            int sender = mapping[later.senders[i]];
+            int receiver = mapping[later.receivers[i]];
+            if (sender < existing) {
+                Account account = accounts.get(sender);
+                account.setTotalSent(account.getTotalSent() + later.amounts[i]);
+            }
+            if (receiver < existing) {
+                Account account = accounts.get(receiver);
+                account.setTotalReceived(account.getTotalReceived() + later.amounts[i]);
+            }
+            addRow(later.transactionIds[i], sender, receiver, later.amounts[i], later.epochSeconds[i]);
+        }
+        return this;
+    }
+
+    public AccountDictionary getDictionary() {
+        return dictionary;
+    }
+
+    public DetectionResult build() {
+        Map<String, Account> byId = new LinkedHashMap<>();
+        for (Account account : accounts) {
+            byId.put(account.getAccountId(), account);
+        }
+
+        TransactionStore store = new TransactionStore(accounts.size(), count,
+                transactionIds, senders, receivers, amounts, epochSeconds);
+
+        DetectionResult result = new DetectionResult();
+        result.setDictionary(dictionary);
+        result.setTransactionStore(store);
+        result.setGraph(GraphRepository.build(store));
+        result.setIndexedAccounts(accounts);
+        result.setAccounts(byId);
+        return result;
+    }
+}
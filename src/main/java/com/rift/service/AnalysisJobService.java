@@ -0,0 +1,157 @@
+package com.rift.service;
+
+import com.rift.model.AnalysisJob;
+import com.rift.model.AnalysisOptions;
+import com.rift.model.DetectionResult;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Service
+public class AnalysisJobService {
+
+    @Autowired
+    private TransactionProcessorService processorService;
+
+    @Autowired
+    private FraudDetectionService detectionService;
+
+    // Finished jobs (and their results) are dropped after this long
+    @Value("${rift.jobs.retention-minutes:60}")
+    private long retentionMinutes;
+
+    // Server-side directory that /api/upload/local may read from; empty disables it
+    @Value("${rift.ingest.local.directory:}")
+    private String localDirectory;
+
+    private final Map<String, AnalysisJob> jobs = new ConcurrentHashMap<>();
+
+    // Queues an analysis of the upload and returns at once. The multipart
+    // file is gone when the request ends, so it is copied to a temp file first.
+    public AnalysisJob submit(MultipartFile file, AnalysisOptions options) throws IOException {
+        evictExpiredJobs();
+
+        Path upload = Files.createTempFile("rift-upload-", ".csv");
+        try {
+            file.transferTo(upload);
+        } catch (IOException e) {
+            Files.deleteIfExists(upload);
+            throw e;
+        }
+
+        AnalysisJob job = new AnalysisJob(UUID.randomUUID().toString(), file.getOriginalFilename(), options);
+        jobs.put(job.getJobId(), job);
+        try {
+            track(job, processorService.processAsync(upload, job));
+        } catch (TaskRejectedException e) {
+            jobs.remove(job.getJobId());
+            deleteQuietly(upload);
+            throw e;
+        }
+        job.getCompletion().whenComplete((result, error) -> deleteQuietly(upload));
+        return job;
+    }
+
+    // Analyzes a file that is already on the server's disk, in place. Only
+    // files under rift.ingest.local.directory are accepted; the path may be
+    // relative to it. Throws IllegalStateException when local ingest is off.
+    public AnalysisJob submitLocal(String file, AnalysisOptions options) throws IOException {
+        Path path = resolveLocalFile(file);
+        evictExpiredJobs();
+
+        AnalysisJob job = new AnalysisJob(UUID.randomUUID().toString(), path.getFileName().toString(), options);
+        jobs.put(job.getJobId(), job);
+        try {
+            track(job, processorService.processAsync(path, job));
+        } catch (TaskRejectedException e) {
+            jobs.remove(job.getJobId());
+            throw e;
+        }
+        return job;
+    }
+
+    private Path resolveLocalFile(String file) throws IOException {
+        if (localDirectory.isBlank()) {
+            throw new IllegalStateException("Local file ingest is disabled");
+        }
+        Path root = Path.of(localDirectory).toRealPath();
+        // Real paths on both sides, so neither ".." nor symlinks lead outside
+        Path path = root.resolve(file).toRealPath();
+        if (!path.startsWith(root) || !Files.isRegularFile(path)) {
+            throw new IllegalArgumentException("Not a file under the ingest directory: " + file);
+        }
+        return path;
+    }
+
+    // Pipelined variant: builds the graph on the calling thread while the
+    // body is still being read, then queues detection as soon as the last
+    // row is in. The caller only gets the job back once the body is consumed.
+    public AnalysisJob submit(InputStream body, String fileName, AnalysisOptions options) throws IOException {
+        evictExpiredJobs();
+        long startTime = System.currentTimeMillis();
+
+        AnalysisJob job = new AnalysisJob(UUID.randomUUID().toString(), fileName, options);
+        jobs.put(job.getJobId(), job);
+        try {
+            job.enterStage(AnalysisJob.PARSING);
+            DetectionResult result = processorService.buildGraph(body);
+            track(job, processorService.analyzeAsync(result, startTime, job));
+        } catch (IOException | RuntimeException e) {
+            jobs.remove(job.getJobId());
+            throw e;
+        }
+        return job;
+    }
+
+    private void track(AnalysisJob job, CompletableFuture<DetectionResult> run) {
+        run.whenComplete((result, error) -> {
+            if (error != null) {
+                job.fail(error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause() : error);
+            } else {
+                job.complete(result);
+            }
+        });
+    }
+
+    // Applies an intraday batch of transactions to a completed job's result in
+    // place. Throws IllegalStateException while the job has no result yet.
+    public Optional<Map<String, Object>> appendBatch(String jobId, InputStream body) throws IOException {
+        AnalysisJob job = jobs.get(jobId);
+        if (job == null) {
+            return Optional.empty();
+        }
+        DetectionResult result = job.getResult();
+        if (result == null) {
+            throw new IllegalStateException("Job " + jobId + " has no result to update: " + job.getStatus());
+        }
+        return Optional.of(detectionService.applyBatch(result, body));
+    }
+
+    public Optional<AnalysisJob> find(String jobId) {
+        return Optional.ofNullable(jobs.get(jobId));
+    }
+
+    private void evictExpiredJobs() {
+        long cutoff = System.currentTimeMillis() - retentionMinutes * 60_000;
+        jobs.values().removeIf(job -> job.getFinishedAt() > 0 && job.getFinishedAt() < cutoff);
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            System.err.println("Could not delete " + path + ": " + e.getMessage());
+        }
+    }
+}
@@ -6,8 +6,16 @@ import com.rift.ml.RiskPredictor;
 import com.rift.analaysis.TemporalHeatmap;
 import com.rift.analaysis.NetworkFlowAnalyzer;
 import com.rift.alerts.AlertSystem;
+import com.rift.repository.AccountDictionary;
+import com.rift.repository.HeatmapGrid;
+import com.rift.repository.RingRegistry;
+import com.rift.utils.StreamingCsvParser;
+import com.rift.utils.TopK;
+import com.rift.utils.TransactionSink;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -42,38 +50,45 @@ public class FraudDetectionService {
     private AlertSystem alertSystem;
 
     public void detectFraud(DetectionResult result) {
+        detectFraud(result, StageListener.NONE);
+    }
+
+    public void detectFraud(DetectionResult result, StageListener stages) {
         long startTime = System.currentTimeMillis();
 
         // Step 1: Basic analysis
+        stages.enter(AnalysisJob.TEMPORAL_ANALYSIS);
         temporalAnalyzer.analyzeTemporalPatterns(result);
         scoreCalculator.calculateScores(result);
 
         // Step 2: Pattern detection
+        stages.enter(AnalysisJob.PATTERN_DETECTION);
         cycleDetector.detectCycles(result);
         smurfingDetector.detectSmurfing(result);
         layeredNetworkDetector.detectLayeredNetworks(result);
 
         // Step 3: Recalculate with patterns
+        stages.enter(AnalysisJob.SCORING);
         scoreCalculator.calculateScores(result);
 
         // Step 4: ML-based risk scoring
+        stages.enter(AnalysisJob.ML_SCORING);
         applyMLRiskScoring(result);
 
         // Step 5: Advanced analytics
-        Map<String, Object> heatmap = temporalHeatmap.generateHeatmap(
-                result.getAccounts().values().stream()
-                        .flatMap(a -> a.getTransactions().stream())
-                        .collect(Collectors.toList())
-        );
+        stages.enter(AnalysisJob.ANALYTICS);
+        result.setHeatmapGrid(HeatmapGrid.build(result.getTransactionStore()));
+        Map<String, Object> heatmap = temporalHeatmap.generateHeatmap(result.getHeatmapGrid());
 
-        Map<String, Object> flowAnalysis = flowAnalyzer.analyzeFlow(result.getAccounts());
+        Map<String, Object> flowAnalysis = flowAnalyzer.analyzeFlow(result);
 
         // Step 6: Generate alerts
         List<AlertSystem.Alert> alerts = alertSystem.generateAlerts(result);
 
         // Step 7: FIXED - Better ring deduplication and assignment
+        stages.enter(AnalysisJob.RING_ASSIGNMENT);
         Map<String, FraudRing> finalRings = new LinkedHashMap<>();
-        Set<String> accountsInRings = new HashSet<>();
+        RingRegistry assigned = new RingRegistry(result.getIndexedAccounts().size());
 
         // Sort rings by potential risk
         List<FraudRing> sortedRings = new ArrayList<>(result.getRings().values());
@@ -82,12 +97,11 @@ public class FraudDetectionService {
         int ringCounter = 0;
         for (FraudRing ring : sortedRings) {
             // Check if all accounts are available
-            boolean allAccountsAvailable = ring.getMemberAccounts().stream()
-                    .allMatch(acc -> !accountsInRings.contains(acc));
-
-            if (allAccountsAvailable) {
+            int[] members = result.memberIds(ring);
+            if (!assigned.overlaps(members)) {
+                assigned.add(members);
                 ringCounter++;
-                String newRingId = "RING_" + String.format("%03d", ringCounter);
+                String newRingId = ringId(ringCounter);
                 ring.setRingId(newRingId);
 
                 // Update ALL accounts in this ring
@@ -95,7 +109,6 @@ public class FraudDetectionService {
                     Account account = result.getAccounts().get(accountId);
                     if (account != null) {
                         account.setRingId(newRingId);
-                        accountsInRings.add(accountId);
                     }
                 }
 
@@ -118,18 +131,21 @@ public class FraudDetectionService {
             if (account.getSuspicionScore() > 50 && account.getRingId() == null) {
                 // Create single-account ring if needed
                 ringCounter++;
-                String newRingId = "RING_" + String.format("%03d", ringCounter);
+                String newRingId = ringId(ringCounter);
                 account.setRingId(newRingId);
 
                 FraudRing soloRing = new FraudRing(newRingId, "solo");
                 soloRing.addAccountWithScore(account.getAccountId(), account.getSuspicionScore());
                 soloRing.calculateRiskScore();
                 finalRings.put(newRingId, soloRing);
+                assigned.add(new int[]{account.getIndex()});
             }
         }
 
         // Step 9: Update result
         result.setRings(finalRings);
+        // Final rings never share an account, so registry ring r is RING_(r + 1)
+        result.setRingRegistry(assigned);
         result.getSummary().put("advanced_analytics", Map.of(
                 "temporal_heatmap", heatmap,
                 "flow_analysis", flowAnalysis,
@@ -138,15 +154,161 @@ public class FraudDetectionService {
         ));
 
         // Step 10: Build output
+        stages.enter(AnalysisJob.OUTPUT);
         buildOutputStructures(result);
         result.setProcessingTime(System.currentTimeMillis() - startTime);
     }
 
-    private void applyMLRiskScoring(DetectionResult result) {
-        List<Account> allAccounts = new ArrayList<>(result.getAccounts().values());
+    // Folds an intraday batch of CSV transactions into a finished analysis
+    // without rerunning it. Only cycles through the batch's new account pairs
+    // are searched, so the cost follows the batch rather than the whole graph.
+    // Members of new cycles are rescored, never below their current score; a
+    // cycle sharing no account with an existing ring becomes a new ring, and
+    // the rings of rescored accounts are updated in place. The other detectors
+    // and the ML blend catch up on the next full analysis. The batch is read
+    // in full before any of it is applied, so a body that fails to parse
+    // leaves the result as it was, and readers of the result only wait for
+    // the apply, never for the upload.
+    public Map<String, Object> applyBatch(DetectionResult result, InputStream csv) throws IOException {
+        Batch batch = new Batch();
+        long rows = StreamingCsvParser.parse(csv, batch.dictionary, batch);
+        synchronized (result) {
+            batch.apply(result);
+            int edgesBefore = result.getLiveGraph() == null ? 0 : result.getLiveGraph().addedEdgeCount();
+
+            List<int[]> cycles = cycleDetector.detectNewCycles(result, batch.senders, batch.receivers, batch.count);
+
+            RingRegistry assigned = result.getRingRegistry();
+            Set<Integer> affected = new LinkedHashSet<>();
+            List<String> newRings = new ArrayList<>();
+            for (int[] cycle : cycles) {
+                for (int index : cycle) affected.add(index);
+                if (assigned.overlaps(cycle)) continue;
+
+                assigned.add(cycle);
+                String newRingId = ringId(assigned.size());
+                FraudRing ring = new FraudRing(newRingId, "cycle");
+                for (int index : cycle) {
+                    Account account = result.getAccount(index);
+                    account.setRingId(newRingId);
+                    ring.addAccountWithScore(account.getAccountId(), account.getSuspicionScore());
+                }
+                result.getRings().put(newRingId, ring);
+                newRings.add(newRingId);
+            }
+
+            // Rescore the members, then refresh the rings they belong to
+            Set<Integer> touchedRings = new LinkedHashSet<>();
+            for (int index : affected) {
+                Account account = result.getAccount(index);
+                account.setSuspicionScore(Math.max(account.getSuspicionScore(),
+                        scoreCalculator.calculateScore(account, result)));
+                for (int ring : assigned.rings(index)) touchedRings.add(ring);
+
+                if (account.getSuspicionScore() > 50 && account.getRingId() == null) {
+                    String newRingId = ringId(assigned.size() + 1);
+                    assigned.add(new int[]{index});
+                    account.setRingId(newRingId);
+                    result.getRings().put(newRingId, new FraudRing(newRingId, "solo"));
+                    touchedRings.add(assigned.size() - 1);
+                    newRings.add(newRingId);
+                }
+            }
+            for (int r : touchedRings) {
+                FraudRing ring = result.getRings().get(ringId(r + 1));
+                ring.getAccountScores().clear();
+                for (int index : assigned.members(r)) {
+                    Account account = result.getAccount(index);
+                    ring.addAccountWithScore(account.getAccountId(), account.getSuspicionScore());
+                }
+                ring.calculateRiskScore();
+            }
 
-        for (Account account : allAccounts) {
-            double mlScore = riskModel.predictRiskScore(account, allAccounts);
+            // The heatmap follows the batch; the rest of the analytics waits
+            // for the next full analysis
+            result.getHeatmapGrid().add(batch.epochSeconds, batch.amounts, batch.count);
+            if (result.getSummary().get("advanced_analytics") instanceof Map<?, ?> analytics) {
+                Map<Object, Object> updated = new LinkedHashMap<>(analytics);
+                updated.put("temporal_heatmap", temporalHeatmap.generateHeatmap(result.getHeatmapGrid()));
+                result.getSummary().put("advanced_analytics", updated);
+            }
+
+            buildOutputStructures(result);
+
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("transactions_added", rows);
+            summary.put("new_account_pairs", result.getLiveGraph().addedEdgeCount() - edgesBefore);
+            summary.put("new_cycles", cycles.stream()
+                    .map(cycle -> Arrays.stream(cycle).mapToObj(result.getDictionary()::name).toList())
+                    .toList());
+            summary.put("new_rings", newRings);
+            return summary;
+        }
+    }
+
+    // Buffers the batch's rows as they are parsed, with ids of its own
+    // dictionary; apply then moves them to the result's ids, creating the
+    // accounts first seen in the batch and updating the totals of the others
+    private static class Batch implements TransactionSink {
+        private final AccountDictionary dictionary = new AccountDictionary();
+        private int[] senders = new int[256];
+        private int[] receivers = new int[256];
+        private long[] epochSeconds = new long[256];
+        private double[] amounts = new double[256];
+        private int count;
+
+        @Override
+        public void accept(String transactionId, int senderId, int receiverId,
+                           double amount, long epochSecond) {
+            if (count == senders.length) {
+                senders = Arrays.copyOf(senders, count * 2);
+                receivers = Arrays.copyOf(receivers, count * 2);
+                epochSeconds = Arrays.copyOf(epochSeconds, count * 2);
+                amounts = Arrays.copyOf(amounts, count * 2);
+            }
+            senders[count] = senderId;
+            receivers[count] = receiverId;
+            epochSeconds[count] = epochSecond;
+            amounts[count] = amount;
+            count++;
+        }
+
+        void apply(DetectionResult result) {
+            int[] ids = result.getDictionary().absorb(dictionary);
+            for (int i = 0; i < count; i++) {
+                senders[i] = ids[senders[i]];
+                receivers[i] = ids[receivers[i]];
+                Account sender = account(result, senders[i]);
+                Account receiver = account(result, receivers[i]);
+                sender.setOutgoingCount(sender.getOutgoingCount() + 1);
+                sender.setTotalSent(sender.getTotalSent() + amounts[i]);
+                receiver.setIncomingCount(receiver.getIncomingCount() + 1);
+                receiver.setTotalReceived(receiver.getTotalReceived() + amounts[i]);
+                sender.setTransactionCount(sender.getTransactionCount() + 1);
+                receiver.setTransactionCount(receiver.getTransactionCount() + 1);
+            }
+        }
+
+        private static Account account(DetectionResult result, int index) {
+            // Dictionary ids are handed out in sequence, so a new id is past
+            // the last account
+            List<Account> accounts = result.getIndexedAccounts();
+            while (accounts.size() <= index) {
+                Account account = new Account(accounts.size(), result.getDictionary().name(accounts.size()));
+                accounts.add(account);
+                result.getAccounts().put(account.getAccountId(), account);
+            }
+            return accounts.get(index);
+        }
+    }
+
+    private static String ringId(int counter) {
+        return "RING_" + String.format("%03d", counter);
+    }
+
+    private void applyMLRiskScoring(DetectionResult result) {
+        for (Account account : result.getIndexedAccounts()) {
+            double mlScore = riskModel.predictRiskScore(account, result);
             // Blend with existing score
             double blendedScore = (account.getSuspicionScore() * 0.7) + (mlScore * 0.3);
             account.setSuspicionScore(Math.min(100.0, blendedScore));
@@ -157,28 +319,30 @@ public class FraudDetectionService {
         result.getSuspiciousAccounts().clear();
         result.getFraudRings().clear();
 
-        // Build suspicious accounts
+        // Build suspicious accounts, highest score first; only the ones within
+        // the request's limit are turned into maps
+        TopK top = new TopK(result.getOptions().topAccounts());
+        int flagged = 0;
         for (Account account : result.getAccounts().values()) {
             if (account.getSuspicionScore() > 40 || !account.getPatterns().isEmpty()) {
-                Map<String, Object> accountJson = new LinkedHashMap<>();
-                accountJson.put("account_id", account.getAccountId());
-                accountJson.put("suspicion_score",
-                        Math.round(account.getSuspicionScore() * 10) / 10.0);
-
-                List<String> uniquePatterns = new ArrayList<>(
-                        new LinkedHashSet<>(account.getPatterns()));
-                accountJson.put("detected_patterns", uniquePatterns);
-                accountJson.put("ring_id",
-                        account.getRingId() != null ? account.getRingId() : "");
-
-                result.getSuspiciousAccounts().add(accountJson);
+                top.offer(Math.round(account.getSuspicionScore() * 10) / 10.0, account.getIndex());
+                flagged++;
             }
         }
-
-        // Sort by suspicion score
-        result.getSuspiciousAccounts().sort((a, b) ->
-                Double.compare((double) b.get("suspicion_score"),
-                        (double) a.get("suspicion_score")));
+        for (int slot : top.slotsInOrder()) {
+            Account account = result.getAccount(top.id(slot));
+            Map<String, Object> accountJson = new LinkedHashMap<>();
+            accountJson.put("account_id", account.getAccountId());
+            accountJson.put("suspicion_score", top.score(slot));
+
+            List<String> uniquePatterns = new ArrayList<>(
+                    new LinkedHashSet<>(account.getPatterns()));
+            accountJson.put("detected_patterns", uniquePatterns);
+            accountJson.put("ring_id",
+                    account.getRingId() != null ? account.getRingId() : "");
+
+            result.getSuspiciousAccounts().add(accountJson);
+        }
 
         // Build fraud rings
         for (FraudRing ring : result.getRings().values()) {
@@ -206,8 +370,13 @@ public class FraudDetectionService {
 
         // Update summary
         result.getSummary().put("total_accounts_analyzed", result.getAccounts().size());
-        result.getSummary().put("suspicious_accounts_flagged",
-                result.getSuspiciousAccounts().size());
+        result.getSummary().put("suspicious_accounts_flagged", flagged);
+        // Only present when the request's limit cut the list short
+        if (flagged > result.getSuspiciousAccounts().size()) {
+            result.getSummary().put("suspicious_accounts_listed", result.getSuspiciousAccounts().size());
+        } else {
+            result.getSummary().remove("suspicious_accounts_listed");
+        }
         result.getSummary().put("fraud_rings_detected", result.getFraudRings().size());
         result.getSummary().put("processing_time_seconds",
                 result.getProcessingTime() / 1000.0);
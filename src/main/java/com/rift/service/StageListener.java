@@ -0,0 +1,10 @@
+package com.rift.service;
+
+// Told whenever the analysis pipeline moves on to its next stage
+@FunctionalInterface
+public interface StageListener {
+
+    StageListener NONE = stage -> { };
+
+    void enter(String stage);
+}
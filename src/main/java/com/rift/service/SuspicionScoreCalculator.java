@@ -21,12 +21,17 @@ public class SuspicionScoreCalculator {
 
     public void calculateScores(DetectionResult result) {
         for (Account account : result.getAccounts().values()) {
-            double score = calculateAccountScore(account, result);
-            // Scale to 0-100 range
-            account.setSuspicionScore(Math.min(100.0, Math.round(score * 100 * 10) / 10.0));
+            account.setSuspicionScore(calculateScore(account, result));
         }
     }
 
+    // The account's score on the 0-100 scale, without storing it
+    public double calculateScore(Account account, DetectionResult result) {
+        double score = calculateAccountScore(account, result);
+        // Scale to 0-100 range
+        return Math.min(100.0, Math.round(score * 100 * 10) / 10.0);
+    }
+
     private double calculateAccountScore(Account account, DetectionResult result) {
         double score = 0.0;
 
@@ -110,15 +115,16 @@ public class SuspicionScoreCalculator {
     private double calculateCentralityScore(Account account, DetectionResult result) {
         double score = 0.0;
 
-        // Unique connections
-        Set<String> uniqueConnections = new HashSet<>();
-        uniqueConnections.addAll(account.getIncomingFrom());
-        uniqueConnections.addAll(account.getOutgoingTo());
+        // Unique connections, including the pairs intraday batches added, so
+        // accounts rescored for a batch's cycles count its new counterparties
+        int uniqueConnections = result.getLiveGraph() != null
+                ? result.getLiveGraph().neighbourCount(account.getIndex())
+                : result.getGraph().neighbourCount(account.getIndex());
 
         int totalAccounts = result.getAccounts().size();
         if (totalAccounts > 0) {
             // Degree centrality (max 0.6)
-            double degreeScore = (double) uniqueConnections.size() / totalAccounts;
+            double degreeScore = (double) uniqueConnections / totalAccounts;
             score += Math.min(0.6, degreeScore * 2); // Multiply for better scaling
 
             // Transaction frequency (max 0.4)
@@ -133,4 +139,5 @@ public class SuspicionScoreCalculator {
 
         return Math.min(1.0, score);
     }
-}
\ No newline at end of file
+
+}
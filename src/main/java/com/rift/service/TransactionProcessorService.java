@@ -1,35 +1,78 @@
 package com.rift.service;
 
 import com.rift.model.*;
-import com.rift.utils.CsvParser;
+import com.rift.utils.ChunkedCsvParser;
+import com.rift.utils.StreamingCsvParser;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
-import org.springframework.web.multipart.MultipartFile;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 public class TransactionProcessorService {
 
+    // Uploads at least this large are memory mapped and parsed in parallel chunks
+    private static final long PARALLEL_PARSE_THRESHOLD = 4L * 1024 * 1024;
+
     @Autowired
     private FraudDetectionService fraudDetectionService;
 
-    public DetectionResult processTransactions(MultipartFile file) throws IOException {
+    // Runs on the bounded analysis pool; rejected with a TaskRejectedException
+    // when the pool and its queue are full
+    @Async("analysisExecutor")
+    public CompletableFuture<DetectionResult> processAsync(Path upload, AnalysisJob job) throws IOException {
+        return CompletableFuture.completedFuture(processTransactions(upload, job.getOptions(), job::enterStage));
+    }
+
+    // Detection half of the pipeline, for graphs that were already built
+    // while their upload streamed in
+    @Async("analysisExecutor")
+    public CompletableFuture<DetectionResult> analyzeAsync(DetectionResult result, long startTime,
+                                                           AnalysisJob job) {
+        result.setOptions(job.getOptions());
+        return CompletableFuture.completedFuture(analyze(result, startTime, job::enterStage));
+    }
+
+    public DetectionResult processTransactions(Path upload, StageListener stages) throws IOException {
+        return processTransactions(upload, AnalysisOptions.DEFAULTS, stages);
+    }
+
+    public DetectionResult processTransactions(Path upload, AnalysisOptions options, StageListener stages)
+            throws IOException {
         long startTime = System.currentTimeMillis();
 
-        // Parse CSV
-        List<Transaction> transactions = CsvParser.parseTransactions(file);
+        // Parse CSV straight into the account graph
+        stages.enter(AnalysisJob.PARSING);
+        DetectionResult result;
+        if (Files.size(upload) >= PARALLEL_PARSE_THRESHOLD) {
+            result = ChunkedCsvParser.parse(upload, AccountGraphBuilder::new, AccountGraphBuilder::getDictionary, AccountGraphBuilder::merge)
+                    .build();
+        } else {
+            try (InputStream in = Files.newInputStream(upload)) {
+                result = buildGraph(in);
+            }
+        }
 
-        // Build account graph
-        Map<String, Account> accounts = buildAccountGraph(transactions);
+        result.setOptions(options);
+        return analyze(result, startTime, stages);
+    }
 
-        // Create result object
-        DetectionResult result = new DetectionResult();
-        result.setAccounts(accounts);
+    // Parses rows as they are read, so the graph fills in while a slow
+    // stream (e.g. a request body) is still arriving
+    public DetectionResult buildGraph(InputStream in) throws IOException {
+        AccountGraphBuilder graphBuilder = new AccountGraphBuilder();
+        StreamingCsvParser.parse(in, graphBuilder.getDictionary(), graphBuilder);
+        return graphBuilder.build();
+    }
 
+    private DetectionResult analyze(DetectionResult result, long startTime, StageListener stages) {
         // Run fraud detection
-        fraudDetectionService.detectFraud(result);
+        fraudDetectionService.detectFraud(result, stages);
 
         // Build final output
         result.buildOutput();
@@ -37,36 +80,4 @@ public class TransactionProcessorService {
         result.setProcessingTime(System.currentTimeMillis() - startTime);
         return result;
     }
-
-    private Map<String, Account> buildAccountGraph(List<Transaction> transactions) {
-        Map<String, Account> accounts = new ConcurrentHashMap<>();
-
-        for (Transaction tx : transactions) {
-            // Get or create sender account
-            Account sender = accounts.computeIfAbsent(tx.getSenderId(),
-                    Account::new);
-
-            // Get or create receiver account
-            Account receiver = accounts.computeIfAbsent(tx.getReceiverId(),
-                    Account::new);
-
-            // Update sender metrics
-            sender.getOutgoingTo().add(tx.getReceiverId());
-            sender.setOutgoingCount(sender.getOutgoingCount() + 1);
-            sender.setTotalSent(sender.getTotalSent() + tx.getAmount());
-            sender.getTransactions().add(tx);
-
-            // Update receiver metrics
-            receiver.getIncomingFrom().add(tx.getSenderId());
-            receiver.setIncomingCount(receiver.getIncomingCount() + 1);
-            receiver.setTotalReceived(receiver.getTotalReceived() + tx.getAmount());
-            receiver.getTransactions().add(tx);
-
-            // Update transaction counts
-            sender.setTransactionCount(sender.getTransactionCount() + 1);
-            receiver.setTransactionCount(receiver.getTransactionCount() + 1);
-        }
-
-        return accounts;
-    }
-}
\ No newline at end of file
+}
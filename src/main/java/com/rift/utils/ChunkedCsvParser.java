@@ -0,0 +1,189 @@
+package com.rift.utils;
+
+import com.rift.repository.AccountDictionary;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+// Splits an in-memory CSV at newline boundaries and parses the chunks on a
+// fork-join pool, each into its own partial sink with its own dictionary.
+// Partials are merged left to right, so the merge always sees rows in file order.
+// Quoted fields must not contain newlines on this path.
+//
+// Files are read the same way without loading them: each chunk is its own
+// read-only mapping of the file, so inputs far larger than the heap (or than
+// one 2GB ByteBuffer) never pass through a byte[] copy.
+public class ChunkedCsvParser {
+
+    private static final int MIN_CHUNK_SIZE = 1024 * 1024;
+    // A chunk is mapped as one ByteBuffer, which is int indexed
+    private static final int MAX_CHUNK_SIZE = 1 << 30;
+    private static final int SCAN_WINDOW = 64 * 1024;
+
+    public static <T extends TransactionSink> T parse(ByteBuffer data,
+                                                      Supplier<T> partials,
+                                                      Function<T, AccountDictionary> dictionaries,
+                                                      BinaryOperator<T> merge) {
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        int chunkSize = Math.max(MIN_CHUNK_SIZE, data.limit() / (pool.getParallelism() * 4));
+        return parse(data, chunkSize, pool, new Partials<>(partials, dictionaries, merge));
+    }
+
+    public static <T extends TransactionSink> T parse(ByteBuffer data, int chunkSize, ForkJoinPool pool,
+                                                      Supplier<T> partials,
+                                                      Function<T, AccountDictionary> dictionaries,
+                                                      BinaryOperator<T> merge) {
+        return parse(data, chunkSize, pool, new Partials<>(partials, dictionaries, merge));
+    }
+
+    private static <T extends TransactionSink> T parse(ByteBuffer data, int chunkSize, ForkJoinPool pool,
+                                                       Partials<T> partials) {
+        StreamingCsvParser header = new StreamingCsvParser(null, null);
+        int firstRow = header.readHeader(data, 0, data.limit());
+        int[] bounds = chunkBounds(data, firstRow, data.limit(), chunkSize);
+        return pool.invoke(new ChunkTask<>(0, bounds.length - 1, chunk -> {
+            T partial = partials.factory().get();
+            header.forChunk(partials.dictionaries().apply(partial), partial)
+                    .parse(data, bounds[chunk], bounds[chunk + 1]);
+            return partial;
+        }, partials.merge()));
+    }
+
+    public static <T extends TransactionSink> T parse(Path file,
+                                                      Supplier<T> partials,
+                                                      Function<T, AccountDictionary> dictionaries,
+                                                      BinaryOperator<T> merge) throws IOException {
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long chunkSize = Math.max(MIN_CHUNK_SIZE, channel.size() / (pool.getParallelism() * 4L));
+            return parse(channel, (int) Math.min(MAX_CHUNK_SIZE, chunkSize), pool,
+                    new Partials<>(partials, dictionaries, merge));
+        }
+    }
+
+    public static <T extends TransactionSink> T parse(Path file, int chunkSize, ForkJoinPool pool,
+                                                      Supplier<T> partials,
+                                                      Function<T, AccountDictionary> dictionaries,
+                                                      BinaryOperator<T> merge) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return parse(channel, Math.min(MAX_CHUNK_SIZE, chunkSize), pool,
+                    new Partials<>(partials, dictionaries, merge));
+        }
+    }
+
+    private static <T extends TransactionSink> T parse(FileChannel channel, int chunkSize, ForkJoinPool pool,
+                                                       Partials<T> partials) throws IOException {
+        long size = channel.size();
+
+        // The header row has to fit in the first chunk
+        StreamingCsvParser header = new StreamingCsvParser(null, null);
+        MappedByteBuffer head = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, chunkSize));
+        long[] bounds = chunkBounds(channel, header.readHeader(head, 0, head.limit()), size, chunkSize);
+
+        try {
+            return pool.invoke(new ChunkTask<>(0, bounds.length - 1, chunk -> {
+                long from = bounds[chunk];
+                int length = (int) (bounds[chunk + 1] - from);
+                T partial = partials.factory().get();
+                try {
+                    MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, from, length);
+                    header.forChunk(partials.dictionaries().apply(partial), partial).parse(region, 0, length);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return partial;
+            }, partials.merge()));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    static int[] chunkBounds(ByteBuffer data, int from, int to, int chunkSize) {
+        List<Integer> bounds = new ArrayList<>();
+        bounds.add(from);
+        int pos = from;
+        while (to - pos > chunkSize) {
+            pos = StreamingCsvParser.nextLineStart(data, pos + chunkSize, to);
+            if (pos >= to) break;
+            bounds.add(pos);
+        }
+        bounds.add(to);
+        return bounds.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    // Same as above for a file: split points are found with small positional
+    // reads, so nothing but the chunks themselves is ever mapped
+    static long[] chunkBounds(FileChannel channel, long from, long to, int chunkSize) throws IOException {
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(from);
+        ByteBuffer window = ByteBuffer.allocate(SCAN_WINDOW);
+        long pos = from;
+        while (to - pos > chunkSize) {
+            pos = nextLineStart(channel, pos + chunkSize, to, window);
+            if (pos >= to) break;
+            bounds.add(pos);
+        }
+        bounds.add(to);
+        return bounds.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private static long nextLineStart(FileChannel channel, long pos, long limit, ByteBuffer window)
+            throws IOException {
+        while (pos < limit) {
+            window.clear();
+            int read = channel.read(window, pos);
+            if (read <= 0) break;
+            int newline = StreamingCsvParser.nextLineStart(window, 0, read);
+            if (newline < read || window.get(read - 1) == '\n') {
+                return Math.min(pos + newline, limit);
+            }
+            pos += read;
+        }
+        return limit;
+    }
+
+    private record Partials<T>(Supplier<T> factory,
+                               Function<T, AccountDictionary> dictionaries,
+                               BinaryOperator<T> merge) {
+    }
+
+    // Parses chunks lo .. hi - 1 and merges their partials in chunk order
+    private static class ChunkTask<T> extends RecursiveTask<T> {
+
+        private final int lo;
+        private final int hi;
+        private final IntFunction<T> chunks;
+        private final BinaryOperator<T> merge;
+
+        ChunkTask(int lo, int hi, IntFunction<T> chunks, BinaryOperator<T> merge) {
+            this.lo = lo;
+            this.hi = hi;
+            this.chunks = chunks;
+            this.merge = merge;
+        }
+
+        @Override
+        protected T compute() {
+            if (hi - lo == 1) {
+                return chunks.apply(lo);
+            }
+
+            int mid = (lo + hi) >>> 1;
+            ChunkTask<T> right = new ChunkTask<>(mid, hi, chunks, merge);
+            right.fork();
+            T left = new ChunkTask<>(lo, mid, chunks, merge).compute();
+            return merge.apply(left, right.join());
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.rift.utils;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+// Fails the read once more than limit bytes have come through, so a streamed
+// request body is held to the same cap as a multipart upload
+public class LimitedInputStream extends FilterInputStream {
+
+    private final long limit;
+    private long count;
+
+    public LimitedInputStream(InputStream in, long limit) {
+        super(in);
+        this.limit = limit;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b >= 0) {
+            advance(1);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int n = super.read(b, off, len);
+        if (n > 0) {
+            advance(n);
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = super.skip(n);
+        advance(skipped);
+        return skipped;
+    }
+
+    private void advance(long n) throws IOException {
+        count += n;
+        if (count > limit) {
+            throw new LimitExceededException(limit);
+        }
+    }
+
+    public static class LimitExceededException extends IOException {
+        public LimitExceededException(long limit) {
+            super("Upload is larger than " + limit + " bytes");
+        }
+    }
+}
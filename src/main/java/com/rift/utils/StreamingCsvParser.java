@@ -0,0 +1,451 @@
+package com.rift.utils;
+
+import com.rift.repository.AccountDictionary;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+
+public class StreamingCsvParser {
+
+    static final String[] COLUMNS = {"transaction_id", "sender_id", "receiver_id", "amount", "timestamp"};
+
+    private static final int TX_ID = 0;
+    private static final int SENDER = 1;
+    private static final int RECEIVER = 2;
+    private static final int AMOUNT = 3;
+    private static final int TIMESTAMP = 4;
+
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    // Powers of ten that are exact doubles, so digits / 10^scale rounds correctly
+    private static final double[] POW10 = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    private static final int[] DAYS_IN_MONTH = {31, 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31};
+
+    private final AccountDictionary dictionary;
+    private final TransactionSink sink;
+
+    // Header position -> column slot (index into COLUMNS), -1 for ignored columns
+    private int[] columnSlots;
+    private final int[] fieldStart = new int[COLUMNS.length];
+    private final int[] fieldEnd = new int[COLUMNS.length];
+    private final boolean[] fieldQuoted = new boolean[COLUMNS.length];
+    private byte[] scratch = new byte[64];
+
+    private long rowCount;
+    private long skippedCount;
+
+    // Account ids are encoded through dictionary before they reach the sink
+    public StreamingCsvParser(AccountDictionary dictionary, TransactionSink sink) {
+        this.dictionary = dictionary;
+        this.sink = sink;
+    }
+
+    public static long parse(InputStream in, AccountDictionary dictionary, TransactionSink sink)
+            throws IOException {
+        return new StreamingCsvParser(dictionary, sink).parseStream(in, DEFAULT_BUFFER_SIZE);
+    }
+
+    // Parser for one chunk of the same input, sharing this parser's header layout
+    public StreamingCsvParser forChunk(AccountDictionary chunkDictionary, TransactionSink chunkSink) {
+        StreamingCsvParser parser = new StreamingCsvParser(chunkDictionary, chunkSink);
+        parser.columnSlots = columnSlots;
+        return parser;
+    }
+
+    // Reads the header row at the start of [from, to) and returns the offset
+    // of the first data row
+    public int readHeader(ByteBuffer data, int from, int to) {
+        int pos = from;
+        while (columnSlots == null && pos < to) {
+            pos = parseHeader(data, pos, to, true);
+        }
+        if (columnSlots == null) {
+            throw new IllegalArgumentException("CSV input has no header row");
+        }
+        return pos;
+    }
+
+    // Parses the rows in [from, to); both ends must fall on row boundaries
+    public long parse(ByteBuffer data, int from, int to) {
+        parseRows(data, from, to, true);
+        return rowCount;
+    }
+
+    // Offset just past the next newline at or after pos, or limit if there is none
+    public static int nextLineStart(ByteBuffer data, int pos, int limit) {
+        while (pos < limit && data.get(pos) != '\n') pos++;
+        return Math.min(pos + 1, limit);
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public long getSkippedCount() {
+        return skippedCount;
+    }
+
+    long parseStream(InputStream in, int bufferSize) throws IOException {
+        byte[] buf = new byte[bufferSize];
+        ByteBuffer view = ByteBuffer.wrap(buf);
+        int pos = 0;
+        int limit = 0;
+        boolean eof = false;
+
+        while (true) {
+            pos = parseRows(view, pos, limit, eof);
+            if (eof) break;
+
+            // Keep the incomplete tail row and refill behind it
+            if (pos > 0) {
+                System.arraycopy(buf, pos, buf, 0, limit - pos);
+                limit -= pos;
+                pos = 0;
+            }
+            if (limit == buf.length) {
+                buf = Arrays.copyOf(buf, buf.length * 2);
+                view = ByteBuffer.wrap(buf);
+            }
+
+            int read = in.read(buf, limit, buf.length - limit);
+            if (read < 0) {
+                eof = true;
+            } else {
+                limit += read;
+            }
+        }
+
+        if (columnSlots == null) {
+            throw new IOException("CSV input has no header row");
+        }
+        return rowCount;
+    }
+
+    // Parses every complete row in [pos, limit) and returns the start of the
+    // first incomplete one. At end of input the trailing row is parsed as well.
+    private int parseRows(ByteBuffer b, int pos, int limit, boolean eof) {
+        while (pos < limit) {
+            int next = columnSlots == null
+                    ? parseHeader(b, pos, limit, eof)
+                    : parseRow(b, pos, limit, eof);
+            if (next < 0) break;
+            pos = next;
+        }
+        return pos;
+    }
+
+    private int parseHeader(ByteBuffer b, int p, int limit, boolean eof) {
+        int end = p;
+        while (end < limit && b.get(end) != '\n') end++;
+        if (end == limit && !eof) return -1;
+
+        String line = decode(b, p, end).replace("\r", "");
+        if (line.startsWith("\uFEFF")) {
+            line = line.substring(1);
+        }
+        if (line.isEmpty()) {
+            return end + 1;
+        }
+
+        List<String> names = splitHeader(line);
+        columnSlots = new int[names.size()];
+        Arrays.fill(columnSlots, -1);
+        for (int slot = 0; slot < COLUMNS.length; slot++) {
+            int position = names.indexOf(COLUMNS[slot]);
+            if (position < 0) {
+                throw new IllegalArgumentException("CSV header is missing column: " + COLUMNS[slot]);
+            }
+            columnSlots[position] = slot;
+        }
+        return Math.min(end + 1, limit);
+    }
+
+    private static List<String> splitHeader(String line) {
+        List<String> names = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean inQuotes = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                if (inQuotes && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else {
+                    inQuotes = !inQuotes;
+                }
+            } else if (c == ',' && !inQuotes) {
+                names.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        names.add(current.toString());
+        return names;
+    }
+
+    // Single pass over one row: records the byte range of each wanted field and
+    // returns the offset after the row terminator, or -1 if the row is incomplete
+    private int parseRow(ByteBuffer b, int p, int limit, boolean eof) {
+        Arrays.fill(fieldStart, -1);
+        int field = 0;
+        int start = p;
+        boolean quoted = false;
+        boolean malformed = false;
+        int i = p;
+
+        while (true) {
+            if (i >= limit) {
+                if (!eof) return -1;
+                int end = i > start && b.get(i - 1) == '\r' ? i - 1 : i;
+                endField(field, start, end, quoted);
+                emitRow(b, p, end, field, malformed);
+                return limit;
+            }
+
+            byte c = b.get(i);
+            if (c == '"' && i == start) {
+                // Quoted field: runs to the closing quote, "" is an escaped quote
+                quoted = true;
+                i++;
+                while (true) {
+                    if (i >= limit) {
+                        if (!eof) return -1;
+                        malformed = true;
+                        break;
+                    }
+                    if (b.get(i) == '"') {
+                        if (i + 1 >= limit && !eof) return -1;
+                        if (i + 1 < limit && b.get(i + 1) == '"') {
+                            i += 2;
+                            continue;
+                        }
+                        i++;
+                        break;
+                    }
+                    i++;
+                }
+                if (i < limit) {
+                    byte after = b.get(i);
+                    if (after != ',' && after != '\n' && after != '\r') {
+                        malformed = true;
+                    }
+                }
+                continue;
+            }
+
+            if (c == ',') {
+                endField(field++, start, i, quoted);
+                start = i + 1;
+                quoted = false;
+            } else if (c == '\n') {
+                int end = i > start && b.get(i - 1) == '\r' ? i - 1 : i;
+                endField(field, start, end, quoted);
+                emitRow(b, p, end, field, malformed);
+                return i + 1;
+            }
+            i++;
+        }
+    }
+
+    private void endField(int field, int start, int end, boolean quoted) {
+        if (field >= columnSlots.length) return;
+        int slot = columnSlots[field];
+        if (slot < 0) return;
+
+        if (quoted) {
+            fieldStart[slot] = start + 1;
+            fieldEnd[slot] = Math.max(start + 1, end - 1);
+        } else {
+            fieldStart[slot] = start;
+            fieldEnd[slot] = end;
+        }
+        fieldQuoted[slot] = quoted;
+    }
+
+    private void emitRow(ByteBuffer b, int rowStart, int rowEnd, int lastField, boolean malformed) {
+        // Blank lines are ignored, as commons-csv does
+        if (lastField == 0 && rowEnd == rowStart) {
+            return;
+        }
+
+        String transactionId;
+        int senderId;
+        int receiverId;
+        double amount;
+        long epochSecond;
+        try {
+            if (malformed) {
+                throw new IllegalArgumentException("unbalanced quotes in " + decode(b, rowStart, rowEnd));
+            }
+            for (int slot = 0; slot < COLUMNS.length; slot++) {
+                if (fieldStart[slot] < 0) {
+                    throw new IllegalArgumentException("missing " + COLUMNS[slot] + " in " + decode(b, rowStart, rowEnd));
+                }
+            }
+            transactionId = text(b, TX_ID);
+            amount = fieldQuoted[AMOUNT]
+                    ? Double.parseDouble(text(b, AMOUNT))
+                    : parseAmount(b, fieldStart[AMOUNT], fieldEnd[AMOUNT]);
+            epochSecond = fieldQuoted[TIMESTAMP]
+                    ? parseTimestamp(text(b, TIMESTAMP))
+                    : parseTimestamp(b, fieldStart[TIMESTAMP], fieldEnd[TIMESTAMP]);
+            // Encoded last, so skipped rows never add accounts to the dictionary
+            senderId = accountId(b, SENDER);
+            receiverId = accountId(b, RECEIVER);
+        } catch (RuntimeException e) {
+            // Log and skip malformed rows
+            skippedCount++;
+            System.err.println("Skipping malformed row: " + e.getMessage());
+            return;
+        }
+
+        rowCount++;
+        sink.accept(transactionId, senderId, receiverId, amount, epochSecond);
+    }
+
+    private String text(ByteBuffer b, int slot) {
+        String value = decode(b, fieldStart[slot], fieldEnd[slot]);
+        return fieldQuoted[slot] && value.indexOf('"') >= 0 ? value.replace("\"\"", "\"") : value;
+    }
+
+    private int accountId(ByteBuffer b, int slot) {
+        if (fieldQuoted[slot]) {
+            return dictionary.intern(text(b, slot));
+        }
+        return dictionary.intern(b, fieldStart[slot], fieldEnd[slot]);
+    }
+
+    private String decode(ByteBuffer b, int start, int end) {
+        if (b.hasArray()) {
+            return new String(b.array(), b.arrayOffset() + start, end - start, StandardCharsets.UTF_8);
+        }
+        int length = end - start;
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        b.get(start, scratch, 0, length);
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    // Plain decimal amounts are assembled from their digits; anything else
+    // (exponents, very long mantissas, NaN...) goes through Double.parseDouble
+    static double parseAmount(ByteBuffer b, int start, int end) {
+        int s = start;
+        int e = end;
+        while (s < e && (b.get(s) & 0xff) <= ' ') s++;
+        while (e > s && (b.get(e - 1) & 0xff) <= ' ') e--;
+
+        int i = s;
+        boolean negative = false;
+        if (i < e && (b.get(i) == '-' || b.get(i) == '+')) {
+            negative = b.get(i) == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean seenDigit = false;
+        boolean seenDot = false;
+        boolean fast = true;
+        for (; i < e; i++) {
+            byte c = b.get(i);
+            if (c >= '0' && c <= '9') {
+                if (digits == 18) {
+                    fast = false;
+                    break;
+                }
+                mantissa = mantissa * 10 + (c - '0');
+                seenDigit = true;
+                if (mantissa != 0) digits++;
+                if (seenDot) scale++;
+            } else if (c == '.' && !seenDot) {
+                seenDot = true;
+            } else {
+                fast = false;
+                break;
+            }
+        }
+
+        if (fast && seenDigit && scale < POW10.length && mantissa < (1L << 53)) {
+            double value = scale == 0 ? mantissa : mantissa / POW10[scale];
+            return negative ? -value : value;
+        }
+
+        byte[] raw = new byte[end - start];
+        b.get(start, raw, 0, raw.length);
+        return Double.parseDouble(new String(raw, StandardCharsets.UTF_8));
+    }
+
+    // Fixed "yyyy-MM-dd HH:mm:ss" (or 'T' separated) timestamps are decoded in
+    // place; other shapes fall back to LocalDateTime.parse like Transaction does
+    static long parseTimestamp(ByteBuffer b, int start, int end) {
+        if (end - start == 19) {
+            long epochSecond = parseFixedTimestamp(b, start);
+            if (epochSecond != Long.MIN_VALUE) return epochSecond;
+        }
+        byte[] raw = new byte[end - start];
+        b.get(start, raw, 0, raw.length);
+        return parseTimestamp(new String(raw, StandardCharsets.UTF_8));
+    }
+
+    static long parseTimestamp(String value) {
+        // Sub-second precision is dropped, detection works in whole seconds
+        return LocalDateTime.parse(value.replace(" ", "T")).toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private static long parseFixedTimestamp(ByteBuffer b, int p) {
+        byte separator = b.get(p + 10);
+        if (b.get(p + 4) != '-' || b.get(p + 7) != '-'
+                || (separator != ' ' && separator != 'T')
+                || b.get(p + 13) != ':' || b.get(p + 16) != ':') {
+            return Long.MIN_VALUE;
+        }
+
+        int year = digits(b, p, 4);
+        int month = digits(b, p + 5, 2);
+        int day = digits(b, p + 8, 2);
+        int hour = digits(b, p + 11, 2);
+        int minute = digits(b, p + 14, 2);
+        int second = digits(b, p + 17, 2);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || hour < 0 || hour > 23
+                || minute < 0 || minute > 59 || second < 0 || second > 59) {
+            return Long.MIN_VALUE;
+        }
+        boolean leap = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+        int monthLength = month == 2 && leap ? 29 : DAYS_IN_MONTH[month - 1];
+        if (day > monthLength) {
+            return Long.MIN_VALUE;
+        }
+
+        return epochDay(year, month, day) * 86400L + hour * 3600L + minute * 60L + second;
+    }
+
+    private static int digits(ByteBuffer b, int p, int count) {
+        int value = 0;
+        for (int i = 0; i < count; i++) {
+            int d = b.get(p + i) - '0';
+            if (d < 0 || d > 9) return -1;
+            value = value * 10 + d;
+        }
+        return value;
+    }
+
+    // Days since 1970-01-01 in the proleptic Gregorian calendar
+    static long epochDay(int year, int month, int day) {
+        long y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153L * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+}
@@ -0,0 +1,131 @@
+package com.rift.utils;
+
+import java.util.Arrays;
+
+// The k highest scores of a stream, in a bounded min-heap of primitives. Each
+// entry carries an int id, typically an account or path index; anything more
+// the caller keeps in an array of its own, at the slot offer() hands out. A
+// slot is reused once its entry is pushed out, so nothing needs to be built
+// for entries that do not make the cut.
+//
+// Ties keep arrival order, the same k entries a stable descending sort
+// followed by a limit would keep.
+public class TopK {
+
+    private final int k;
+    // Per slot
+    private double[] scores;
+    private int[] ids;
+    private long[] arrivals;
+    // Slots, worst entry first
+    private int[] heap;
+    private int size;
+    private long offered;
+
+    public TopK(int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k must not be negative: " + k);
+        }
+        this.k = k;
+        int capacity = Math.min(k, 16);
+        this.scores = new double[capacity];
+        this.ids = new int[capacity];
+        this.arrivals = new long[capacity];
+        this.heap = new int[capacity];
+    }
+
+    // Whether an entry with this score would be kept right now
+    public boolean accepts(double score) {
+        return size < k || k > 0 && Double.compare(score, scores[heap[0]]) > 0;
+    }
+
+    // The slot the entry now occupies, or -1 if it is not among the k best
+    public int offer(double score) {
+        return offer(score, -1);
+    }
+
+    public int offer(double score, int id) {
+        long arrival = offered++;
+        if (size < k) {
+            if (size == heap.length) {
+                int capacity = (int) Math.min(k, Math.max(16L, 2L * size));
+                scores = Arrays.copyOf(scores, capacity);
+                ids = Arrays.copyOf(ids, capacity);
+                arrivals = Arrays.copyOf(arrivals, capacity);
+                heap = Arrays.copyOf(heap, capacity);
+            }
+            int slot = size;
+            scores[slot] = score;
+            ids[slot] = id;
+            arrivals[slot] = arrival;
+            heap[size] = slot;
+            siftUp(size++);
+            return slot;
+        }
+        if (!accepts(score)) {
+            return -1;
+        }
+        int slot = heap[0];
+        scores[slot] = score;
+        ids[slot] = id;
+        arrivals[slot] = arrival;
+        siftDown(0);
+        return slot;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public double score(int slot) {
+        return scores[slot];
+    }
+
+    public int id(int slot) {
+        return ids[slot];
+    }
+
+    // The kept slots, best first
+    public int[] slotsInOrder() {
+        int[] saved = Arrays.copyOf(heap, size);
+        int count = size;
+        int[] order = new int[count];
+        for (int i = count - 1; i >= 0; i--) {
+            order[i] = heap[0];
+            heap[0] = heap[--size];
+            siftDown(0);
+        }
+        System.arraycopy(saved, 0, heap, 0, count);
+        size = count;
+        return order;
+    }
+
+    private boolean worse(int a, int b) {
+        int c = Double.compare(scores[a], scores[b]);
+        return c < 0 || c == 0 && arrivals[a] > arrivals[b];
+    }
+
+    private void siftUp(int i) {
+        int slot = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!worse(slot, heap[parent])) break;
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = slot;
+    }
+
+    private void siftDown(int i) {
+        int slot = heap[i];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) break;
+            if (child + 1 < size && worse(heap[child + 1], heap[child])) child++;
+            if (!worse(heap[child], slot)) break;
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = slot;
+    }
+}
@@ -0,0 +1,11 @@
+package com.rift.utils;
+
+// Receives parsed CSV rows one at a time, with account ids already encoded
+// through the parser's AccountDictionary and amount and timestamp decoded to
+// primitives (timestamp as UTC epoch seconds)
+@FunctionalInterface
+public interface TransactionSink {
+
+    void accept(String transactionId, int senderId, int receiverId,
+                double amount, long epochSecond);
+}
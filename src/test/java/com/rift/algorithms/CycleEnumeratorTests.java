@@ -0,0 +1,188 @@
+package com.rift.algorithms;
+
+import com.rift.repository.GraphRepository;
+import com.rift.repository.TransactionStore;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+import static com.rift.repository.TestGraphs.graph;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CycleEnumeratorTests {
+
+	@Test
+	void reportsEachCycleOnceFromItsSmallestAccount() {
+		// 0 -> 1 -> 2 -> 0 and 1 -> 3 -> 4 -> 1, tied together by 2 <-> 4, which is too short itself
+		GraphRepository graph = graph(5, new int[][]{{0, 1}, {1, 2}, {2, 0}, {1, 3}, {3, 4}, {4, 1}, {2, 4}, {4, 2}});
+
+		List<List<Integer>> cycles = enumerate(graph, 3, 5);
+
+		assertEquals(List.of(
+				List.of(0, 1, 2),
+				List.of(0, 1, 3, 4, 2),
+				List.of(1, 2, 4),
+				List.of(1, 3, 4)
+		), cycles);
+	}
+
+	@Test
+	void matchesExhaustiveSearchOnARandomGraph() {
+		Random random = new Random(17);
+		int accounts = 60;
+		int[][] edges = new int[400][];
+		for (int i = 0; i < edges.length; i++) {
+			// Skewed towards low ids, so a few accounts act as hubs
+			int from = (int) (accounts * Math.pow(random.nextDouble(), 2));
+			int to = random.nextInt(accounts);
+			edges[i] = new int[]{from, to};
+		}
+		GraphRepository graph = graph(accounts, edges);
+
+		List<List<Integer>> cycles = enumerate(graph, 3, 5);
+
+		assertEquals(exhaustive(graph, 3, 5), new HashSet<>(cycles));
+		assertEquals(cycles.size(), new HashSet<>(cycles).size());
+		for (List<Integer> cycle : cycles) {
+			assertEquals(Collections.min(cycle), cycle.get(0));
+		}
+	}
+
+	@Test
+	void parallelSearchKeepsSequentialOrder() {
+		Random random = new Random(23);
+		int accounts = 300;
+		int[][] edges = new int[1500][];
+		for (int i = 0; i < edges.length; i++) {
+			edges[i] = new int[]{(int) (accounts * Math.pow(random.nextDouble(), 2)), random.nextInt(accounts)};
+		}
+		GraphRepository graph = graph(accounts, edges);
+		List<List<Integer>> sequential = enumerate(graph, 3, 5);
+
+		for (int threads : new int[]{1, 4}) {
+			ForkJoinPool pool = new ForkJoinPool(threads);
+			try {
+				List<List<Integer>> parallel = new ArrayList<>();
+				for (int[] cycle : CycleEnumerator.findAll(graph, 3, 5, pool)) {
+					parallel.add(Arrays.stream(cycle).boxed().toList());
+				}
+				assertEquals(sequential, parallel, threads + " threads");
+			} finally {
+				pool.shutdown();
+			}
+		}
+	}
+
+	@Test
+	void timedSearchNeedsHopsInOrderWithinTheWindow() {
+		long hour = 3600;
+		GraphRepository graph = timedGraph(9, new long[][]{
+				// In order, 5 hours end to end
+				{0, 1, 10 * hour}, {1, 2, 12 * hour}, {2, 0, 15 * hour},
+				// Out of order: the closing hop comes first
+				{3, 4, 10 * hour}, {4, 5, 12 * hour}, {5, 3, 1 * hour},
+				// In order but 100 hours end to end; an earlier first hop does not help
+				{6, 7, 10 * hour}, {6, 7, 5 * hour}, {7, 8, 50 * hour}, {8, 6, 110 * hour}
+		});
+
+		assertEquals(List.of(List.of(0, 1, 2), List.of(3, 4, 5), List.of(6, 7, 8)), enumerate(graph, 3, 5));
+		assertEquals(List.of(List.of(0, 1, 2)), enumerate(graph, 3, 5, 72 * hour));
+		assertEquals(List.of(List.of(0, 1, 2), List.of(6, 7, 8)), enumerate(graph, 3, 5, 100 * hour));
+	}
+
+	@Test
+	void timedSearchMatchesExhaustiveSearchOverTransactions() {
+		Random random = new Random(31);
+		int accounts = 25;
+		long[][] transactions = new long[220][];
+		for (int i = 0; i < transactions.length; i++) {
+			transactions[i] = new long[]{random.nextInt(accounts), random.nextInt(accounts), random.nextInt(200) * 3600L};
+		}
+		GraphRepository graph = timedGraph(accounts, transactions);
+		long window = 48 * 3600;
+
+		Set<List<Integer>> expected = new HashSet<>();
+		for (List<Integer> cycle : enumerate(graph, 3, 5)) {
+			if (timeRespecting(graph, cycle, 0, Long.MIN_VALUE, Long.MIN_VALUE, window)) {
+				expected.add(cycle);
+			}
+		}
+		List<List<Integer>> timed = enumerate(graph, 3, 5, window);
+
+		assertFalse(expected.isEmpty());
+		assertEquals(expected, new HashSet<>(timed));
+		assertEquals(timed.size(), expected.size());
+	}
+
+	// Tries every transaction for every hop of the cycle
+	private static boolean timeRespecting(GraphRepository graph, List<Integer> cycle, int hop,
+										  long first, long previous, long window) {
+		if (hop == cycle.size()) return true;
+		int e = graph.edge(cycle.get(hop), cycle.get((hop + 1) % cycle.size()));
+		for (int p = graph.timeStart(e); p < graph.timeEnd(e); p++) {
+			long time = graph.time(p);
+			long start = hop == 0 ? time : first;
+			if (time >= previous && time - start <= window
+					&& timeRespecting(graph, cycle, hop + 1, start, time, window)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static List<List<Integer>> enumerate(GraphRepository graph, int min, int max) {
+		return enumerate(graph, min, max, CycleEnumerator.UNTIMED);
+	}
+
+	private static List<List<Integer>> enumerate(GraphRepository graph, int min, int max, long window) {
+		List<List<Integer>> cycles = new ArrayList<>();
+		new CycleEnumerator(graph, min, max, window).enumerate((path, length) -> {
+			List<Integer> cycle = new ArrayList<>();
+			for (int i = 0; i < length; i++) cycle.add(path[i]);
+			cycles.add(cycle);
+		});
+		return cycles;
+	}
+
+	// Every simple cycle from every start, rotated so the smallest id leads
+	private static Set<List<Integer>> exhaustive(GraphRepository graph, int min, int max) {
+		Set<List<Integer>> cycles = new HashSet<>();
+		for (int start = 0; start < graph.accountCount(); start++) {
+			walk(graph, new ArrayList<>(List.of(start)), min, max, cycles);
+		}
+		return cycles;
+	}
+
+	private static void walk(GraphRepository graph, List<Integer> path, int min, int max,
+							 Set<List<Integer>> cycles) {
+		int current = path.get(path.size() - 1);
+		for (int e = graph.outStart(current); e < graph.outEnd(current); e++) {
+			int next = graph.target(e);
+			if (next == path.get(0) && path.size() >= min) {
+				List<Integer> rotated = new ArrayList<>(path);
+				Collections.rotate(rotated, -rotated.indexOf(Collections.min(rotated)));
+				cycles.add(rotated);
+			} else if (!path.contains(next) && path.size() < max) {
+				path.add(next);
+				walk(graph, path, min, max, cycles);
+				path.remove(path.size() - 1);
+			}
+		}
+	}
+
+	// Rows of {sender, receiver, epoch second}
+	private static GraphRepository timedGraph(int accounts, long[][] transactions) {
+		int n = transactions.length;
+		int[] senders = new int[n];
+		int[] receivers = new int[n];
+		long[] epochSeconds = new long[n];
+		for (int i = 0; i < n; i++) {
+			senders[i] = (int) transactions[i][0];
+			receivers[i] = (int) transactions[i][1];
+			epochSeconds[i] = transactions[i][2];
+		}
+		return GraphRepository.build(new TransactionStore(accounts, n, new String[n], senders, receivers,
+				new double[n], epochSeconds));
+	}
+}
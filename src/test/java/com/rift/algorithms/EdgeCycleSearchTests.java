@@ -0,0 +1,82 @@
+package com.rift.algorithms;
+
+import com.rift.repository.GraphRepository;
+import com.rift.repository.LiveGraph;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static com.rift.repository.TestGraphs.graph;
+import static org.junit.jupiter.api.Assertions.*;
+
+class EdgeCycleSearchTests {
+
+	@Test
+	void findsOnlyTheCyclesThroughTheNewEdge() {
+		// 0 -> 1 -> 2 and 1 -> 3 -> 4 -> 2; closing 2 -> 0 makes a 3- and a 5-cycle
+		LiveGraph graph = new LiveGraph(graph(5, new int[][]{{0, 1}, {1, 2}, {1, 3}, {3, 4}, {4, 2}, {3, 1}}));
+		assertTrue(graph.addEdge(2, 0));
+		assertFalse(graph.addEdge(2, 0));
+		assertFalse(graph.addEdge(0, 1));
+
+		Set<List<Integer>> cycles = new HashSet<>();
+		int found = new EdgeCycleSearch(graph, 3, 5).search(2, 0, (path, length) -> cycles.add(rotated(path, length)));
+
+		assertEquals(2, found);
+		assertEquals(Set.of(List.of(0, 1, 2), List.of(0, 1, 3, 4, 2)), cycles);
+	}
+
+	@Test
+	void edgeByEdgeInsertionFindsEveryNewCycleOnce() {
+		Random random = new Random(16);
+		int accounts = 50;
+		int[][] edges = new int[360][];
+		for (int i = 0; i < edges.length; i++) {
+			edges[i] = new int[]{(int) (accounts * Math.pow(random.nextDouble(), 2)), random.nextInt(accounts)};
+		}
+		// The batch also brings accounts the base graph has never seen
+		int[][] base = Arrays.copyOf(edges, 180);
+		int[][] batch = Arrays.copyOfRange(edges, 180, edges.length);
+		for (int[] edge : batch) {
+			if (random.nextInt(8) == 0) edge[random.nextInt(2)] = accounts + random.nextInt(6);
+		}
+
+		LiveGraph graph = new LiveGraph(graph(accounts, base));
+		EdgeCycleSearch search = new EdgeCycleSearch(graph, 3, 5);
+		List<List<Integer>> incremental = new ArrayList<>();
+		for (int[] edge : batch) {
+			if (graph.addEdge(edge[0], edge[1])) {
+				search.search(edge[0], edge[1], (path, length) -> incremental.add(rotated(path, length)));
+			}
+		}
+
+		int[][] all = new int[edges.length][];
+		System.arraycopy(base, 0, all, 0, base.length);
+		System.arraycopy(batch, 0, all, base.length, batch.length);
+		Set<List<Integer>> before = new HashSet<>(cycles(graph(accounts, base)));
+		Set<List<Integer>> after = new HashSet<>(cycles(graph(accounts + 6, all)));
+
+		assertEquals(incremental.size(), new HashSet<>(incremental).size());
+		assertTrue(Collections.disjoint(before, incremental));
+		Set<List<Integer>> combined = new HashSet<>(before);
+		combined.addAll(incremental);
+		assertEquals(after, combined);
+	}
+
+	// The cycle in edge order, starting from its smallest account
+	private static List<Integer> rotated(int[] path, int length) {
+		int min = 0;
+		for (int i = 1; i < length; i++) {
+			if (path[i] < path[min]) min = i;
+		}
+		List<Integer> cycle = new ArrayList<>();
+		for (int i = 0; i < length; i++) cycle.add(path[(min + i) % length]);
+		return cycle;
+	}
+
+	private static List<List<Integer>> cycles(GraphRepository graph) {
+		List<List<Integer>> cycles = new ArrayList<>();
+		new CycleEnumerator(graph, 3, 5).enumerate((path, length) -> cycles.add(rotated(path, length)));
+		return cycles;
+	}
+}
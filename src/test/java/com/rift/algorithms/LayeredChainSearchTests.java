@@ -0,0 +1,122 @@
+package com.rift.algorithms;
+
+import com.rift.repository.GraphRepository;
+import com.rift.repository.ShellCandidates;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static com.rift.repository.TestGraphs.graph;
+import static com.rift.repository.TestGraphs.store;
+import static org.junit.jupiter.api.Assertions.*;
+
+class LayeredChainSearchTests {
+
+	@Test
+	void keepsTheBestChainPerEndAndLength() {
+		// 0 -> 1 -> 3 and 0 -> 2 -> 3; 2 scores higher and forwards all it gets
+		GraphRepository graph = graph(4, new int[][]{{0, 1}, {0, 2}, {1, 3}, {2, 3}});
+		double[] scores = {10, 20, 30, 40};
+		double[] passThrough = {0, 0.5, 1, 0};
+
+		LayeredChainSearch search = new LayeredChainSearch(graph, scores, passThrough, 5);
+
+		assertArrayEquals(new int[]{0, 2, 3}, search.chain(2, 3));
+		assertEquals(10 + 30 + 40 + LayeredChainSearch.PASS_THROUGH_WEIGHT, search.risk(2, 3), 1e-9);
+		assertTrue(Double.isNaN(search.risk(3, 3)));
+		assertEquals(2, search.walkCount(2));
+
+		List<LayeredChainSearch.Chain> chains = search.topChains(3, 10);
+		assertEquals(1, chains.size());
+		assertArrayEquals(new int[]{0, 2, 3}, chains.get(0).accounts());
+	}
+
+	@Test
+	void matchesExhaustiveSearchOnAcyclicGraphs() {
+		matchesExhaustiveSearch(new Random(17), false);
+	}
+
+	@Test
+	void onlyStepsThroughShellCandidates() {
+		matchesExhaustiveSearch(new Random(18), true);
+	}
+
+	private void matchesExhaustiveSearch(Random random, boolean restricted) {
+		int accounts = 40;
+		int[][] edges = new int[160][];
+		for (int i = 0; i < edges.length; i++) {
+			int from = random.nextInt(accounts - 1);
+			edges[i] = new int[]{from, from + 1 + random.nextInt(accounts - from - 1)};
+		}
+		GraphRepository graph = graph(accounts, edges);
+		double[] scores = random.doubles(accounts, 0, 100).toArray();
+		double[] passThrough = random.doubles(accounts).toArray();
+		// Shell candidates are the accounts that forward at least half of what they get
+		ShellCandidates shells = ShellCandidates.all(accounts);
+		if (restricted) {
+			double[] amounts = new double[edges.length];
+			long[] times = new long[edges.length];
+			for (int i = 0; i < edges.length; i++) {
+				amounts[i] = 1 + random.nextInt(100);
+				times[i] = random.nextInt(1000);
+			}
+			shells = ShellCandidates.build(store(accounts, edges, amounts, times), graph, accounts, 0.5, 1000);
+			assertTrue(shells.size() > 0 && shells.size() < accounts, shells.size() + " candidates");
+		}
+
+		LayeredChainSearch search = new LayeredChainSearch(graph, scores, passThrough, 5, shells);
+
+		for (int hops = 1; hops < 5; hops++) {
+			double[] expected = new double[accounts];
+			Arrays.fill(expected, Double.NaN);
+			for (int start = 0; start < accounts; start++) {
+				exhaustive(graph, scores, passThrough, shells, start, 0, scores[start], hops, expected);
+			}
+			for (int v = 0; v < accounts; v++) {
+				assertEquals(expected[v], search.risk(hops, v), 1e-9, hops + " hops to " + v);
+			}
+		}
+	}
+
+	@Test
+	void hubsDoNotMultiplyWhatIsKept() {
+		// Two layers of 300 accounts fully connected through one hub: 90k paths
+		// of four hops, yet every account keeps only its best chain
+		int side = 300;
+		int hub = 2 * side;
+		List<int[]> edges = new ArrayList<>();
+		for (int i = 0; i < side; i++) {
+			edges.add(new int[]{i, hub});
+			edges.add(new int[]{hub, side + i});
+		}
+		GraphRepository graph = graph(hub + 1, edges.toArray(new int[0][]));
+		double[] scores = new double[hub + 1];
+		Arrays.fill(scores, 1);
+
+		LayeredChainSearch search = new LayeredChainSearch(graph, scores, new double[hub + 1], 5);
+
+		assertEquals((long) side * side, search.walkCount(2));
+		List<LayeredChainSearch.Chain> chains = search.topChains(3, 50);
+		assertEquals(50, chains.size());
+		for (LayeredChainSearch.Chain chain : chains) {
+			assertEquals(3, chain.accounts().length);
+			assertEquals(hub, chain.accounts()[1]);
+		}
+	}
+
+	private static void exhaustive(GraphRepository graph, double[] scores, double[] passThrough,
+								   ShellCandidates shells, int current, int hops, double risk, int target,
+								   double[] best) {
+		if (hops == target) {
+			if (Double.isNaN(best[current]) || risk > best[current]) best[current] = risk;
+			return;
+		}
+		if (hops > 0 && !shells.contains(current)) return;
+		for (int e = graph.outStart(current); e < graph.outEnd(current); e++) {
+			int next = graph.target(e);
+			double bonus = hops > 0 ? LayeredChainSearch.PASS_THROUGH_WEIGHT * passThrough[current] : 0;
+			exhaustive(graph, scores, passThrough, shells, next, hops + 1, risk + bonus + scores[next], target,
+					best);
+		}
+	}
+}
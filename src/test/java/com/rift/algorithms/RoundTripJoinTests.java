@@ -0,0 +1,84 @@
+package com.rift.algorithms;
+
+import com.rift.repository.GraphRepository;
+import com.rift.repository.TransactionStore;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RoundTripJoinTests {
+
+	private static final long HOUR = 3600;
+
+	@Test
+	void pairsEachTransferWithItsFirstAnswer() {
+		// rows: 0 A->B @0h, 1 B->A @2h, 2 B->A @1h, 3 A->B @20h, 4 B->A @60h, 5 C->C @5h
+		TransactionStore store = store(3, new int[]{0, 1, 1, 0, 1, 2}, new int[]{1, 0, 0, 1, 0, 2},
+				new long[]{0, 2 * HOUR, HOUR, 20 * HOUR, 60 * HOUR, 5 * HOUR});
+		RoundTripJoin trips = RoundTripJoin.find(GraphRepository.build(store), 24, false);
+
+		// A->B @0h is answered @1h and B->A @1h and @2h by A->B @20h; B->A @60h
+		// comes 40h after that, too late. The self transfer answers itself
+		assertEquals(Set.of(List.of(0, 2, 1), List.of(2, 3, 19), List.of(1, 3, 18), List.of(5, 5, 0)), trips(trips));
+		assertArrayEquals(new boolean[]{true, true, true}, trips.accounts(store));
+	}
+
+	@Test
+	void matchesAPairwiseScan() {
+		Random random = new Random(23);
+		int accounts = 40;
+		int size = 3000;
+		int[] senders = new int[size];
+		int[] receivers = new int[size];
+		long[] epochs = new long[size];
+		for (int row = 0; row < size; row++) {
+			senders[row] = random.nextInt(accounts);
+			receivers[row] = random.nextInt(accounts);
+			epochs[row] = random.nextInt(400) * 1800L;
+		}
+		TransactionStore store = store(accounts, senders, receivers, epochs);
+		GraphRepository graph = GraphRepository.build(store);
+
+		// For each row, the earliest reverse row after it in (time, row) order
+		Set<List<Integer>> expected = new HashSet<>();
+		for (int row = 0; row < size; row++) {
+			int answer = -1;
+			for (int other = 0; other < size; other++) {
+				if (senders[other] != receivers[row] || receivers[other] != senders[row]) continue;
+				if (epochs[other] < epochs[row] || epochs[other] == epochs[row] && other < row) continue;
+				if (answer < 0 || epochs[other] < epochs[answer] || epochs[other] == epochs[answer] && other < answer) {
+					answer = other;
+				}
+			}
+			if (answer >= 0 && (epochs[answer] - epochs[row]) / HOUR <= 24) {
+				expected.add(List.of(row, answer, (int) ((epochs[answer] - epochs[row]) / HOUR)));
+			}
+		}
+
+		RoundTripJoin sequential = RoundTripJoin.find(graph, 24, false);
+		RoundTripJoin parallel = RoundTripJoin.find(graph, 24, true);
+		assertEquals(expected, trips(sequential));
+		assertEquals(sequential.size(), parallel.size());
+		for (int i = 0; i < sequential.size(); i++) {
+			assertEquals(sequential.row(i), parallel.row(i));
+			assertEquals(sequential.answerRow(i), parallel.answerRow(i));
+		}
+	}
+
+	private static TransactionStore store(int accounts, int[] senders, int[] receivers, long[] epochs) {
+		return new TransactionStore(accounts, senders.length, new String[senders.length], senders, receivers,
+				new double[senders.length], epochs);
+	}
+
+	// (row, answer row, latency in hours) of every round trip
+	private static Set<List<Integer>> trips(RoundTripJoin trips) {
+		Set<List<Integer>> found = new HashSet<>();
+		for (int i = 0; i < trips.size(); i++) {
+			found.add(List.of(trips.row(i), trips.answerRow(i), (int) (trips.latencySeconds(i) / HOUR)));
+		}
+		assertEquals(trips.size(), found.size());
+		return found;
+	}
+}
@@ -0,0 +1,66 @@
+package com.rift.algorithms;
+
+import com.rift.repository.TransactionStore;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SmurfingDetectorTests {
+
+	private static final long HOUR = 3600;
+
+	// Senders 1-4 pay account 0 at the given hours
+	private static TransactionStore fanIn(int[] senders, long[] hours) {
+		int[] receivers = new int[senders.length];
+		long[] epochs = new long[hours.length];
+		for (int i = 0; i < hours.length; i++) {
+			epochs[i] = hours[i] * HOUR;
+		}
+		return new TransactionStore(5, senders.length, new String[senders.length], senders, receivers,
+				new double[senders.length], epochs);
+	}
+
+	@Test
+	void findsBurstsStraddlingAWindowBoundary() {
+		// A tumbling window starting at hour 0 splits the burst at 40-74 in two
+		TransactionStore store = fanIn(new int[]{4, 1, 2, 3, 4}, new long[]{0, 40, 50, 60, 74});
+		int[] counts = new int[5];
+
+		assertTrue(SmurfingDetector.hasBurst(store, 0, false, 72 * HOUR, 4, counts));
+		assertFalse(SmurfingDetector.hasBurst(store, 0, false, 30 * HOUR, 4, counts));
+		assertArrayEquals(new int[5], counts);
+	}
+
+	@Test
+	void countsDistinctCounterpartiesOnOneSide() {
+		// Five payments, but only two senders
+		TransactionStore store = fanIn(new int[]{1, 2, 1, 2, 1}, new long[]{0, 1, 2, 3, 4});
+		int[] counts = new int[5];
+
+		assertTrue(SmurfingDetector.hasBurst(store, 0, false, 72 * HOUR, 2, counts));
+		assertFalse(SmurfingDetector.hasBurst(store, 0, false, 72 * HOUR, 3, counts));
+		// Account 0 sent nothing
+		assertFalse(SmurfingDetector.hasBurst(store, 0, true, 72 * HOUR, 1, counts));
+		assertTrue(SmurfingDetector.hasBurst(store, 1, true, 72 * HOUR, 1, counts));
+		assertArrayEquals(new int[5], counts);
+	}
+
+	@Test
+	void emptyWindowHoldsOnlyTheLatestRow() {
+		// Simultaneous payments from three senders, in a window of no length
+		TransactionStore store = fanIn(new int[]{1, 2, 3}, new long[]{0, 0, 0});
+		int[] counts = new int[5];
+
+		assertTrue(SmurfingDetector.hasBurst(store, 0, false, 0, 1, counts));
+		assertFalse(SmurfingDetector.hasBurst(store, 0, false, 0, 2, counts));
+		assertArrayEquals(new int[5], counts);
+	}
+
+	@Test
+	void rejectsWindowsShorterThanAnHour() {
+		SmurfingDetector detector = new SmurfingDetector();
+		assertThrows(IllegalArgumentException.class, () -> detector.setWindowHours(0));
+		assertThrows(IllegalArgumentException.class, () -> detector.setWindowHours(-24));
+		detector.setWindowHours(1);
+	}
+}
@@ -0,0 +1,93 @@
+package com.rift.bench;
+
+import com.rift.model.Transaction;
+import com.rift.repository.AccountDictionary;
+import com.rift.service.AccountGraphBuilder;
+import com.rift.utils.ChunkedCsvParser;
+import com.rift.utils.CsvParser;
+import com.rift.utils.StreamingCsvParser;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.ByteArrayInputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.*;
+
+// Compares the commons-csv ingestion path with the streaming byte parser.
+// Run with: java -cp <test classpath> com.rift.bench.CsvIngestBenchmark [rows] [accounts]
+public class CsvIngestBenchmark {
+
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int MEASURED_ROUNDS = 5;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static double checksum;
+
+    public static void main(String[] args) throws Exception {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int accounts = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+        byte[] csv = SyntheticTransactions.csv(rows, accounts, 42);
+        MockMultipartFile file = new MockMultipartFile("file", csv);
+
+        System.out.printf("%d rows, %d accounts, %.1f MB%n", rows, accounts, csv.length / 1e6);
+        System.out.printf("%-26s %14s %16s%n", "path", "rows/sec", "bytes/row");
+
+        run("commons-csv parse", rows, () -> {
+            for (Transaction tx : CsvParser.parseTransactions(file)) {
+                checksum += tx.getAmount();
+            }
+        });
+        run("streaming parse", rows, () ->
+                StreamingCsvParser.parse(new ByteArrayInputStream(csv), new AccountDictionary(),
+                        (id, sender, receiver, amount, epochSecond) -> checksum += amount));
+        run("commons-csv + graph", rows, () -> {
+            AccountGraphBuilder builder = new AccountGraphBuilder();
+            for (Transaction tx : CsvParser.parseTransactions(file)) {
+                builder.add(tx);
+            }
+            checksum += builder.build().getAccounts().size();
+        });
+        run("streaming + graph", rows, () -> {
+            AccountGraphBuilder builder = new AccountGraphBuilder();
+            StreamingCsvParser.parse(new ByteArrayInputStream(csv), builder.getDictionary(), builder);
+            checksum += builder.build().getAccounts().size();
+        });
+
+        // Allocation here only covers the calling thread, the workers are not counted
+        run("chunked parallel + graph", rows, () -> {
+            AccountGraphBuilder builder = ChunkedCsvParser.parse(ByteBuffer.wrap(csv),
+                    AccountGraphBuilder::new, AccountGraphBuilder::getDictionary, AccountGraphBuilder::merge);
+            checksum += builder.build().getAccounts().size();
+        });
+
+        System.out.println("(checksum " + checksum + ")");
+    }
+
+    private static void run(String name, int rows, Task task) throws Exception {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            task.run();
+        }
+
+        double[] rowsPerSecond = new double[MEASURED_ROUNDS];
+        long allocated = 0;
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            System.gc();
+            long bytesBefore = THREADS.getCurrentThreadAllocatedBytes();
+            long start = System.nanoTime();
+            task.run();
+            long elapsed = System.nanoTime() - start;
+            allocated += THREADS.getCurrentThreadAllocatedBytes() - bytesBefore;
+            rowsPerSecond[i] = rows / (elapsed / 1e9);
+        }
+
+        Arrays.sort(rowsPerSecond);
+        System.out.printf("%-26s %14.0f %16.1f%n", name,
+                rowsPerSecond[MEASURED_ROUNDS / 2], (double) allocated / MEASURED_ROUNDS / rows);
+    }
+
+    private interface Task {
+        void run() throws Exception;
+    }
+}
@@ -0,0 +1,111 @@
+package com.rift.bench;
+
+import com.rift.algorithms.CycleEnumerator;
+import com.rift.repository.GraphRepository;
+import com.rift.service.AccountGraphBuilder;
+import com.rift.utils.StreamingCsvParser;
+
+import java.io.ByteArrayInputStream;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+// Compares the previous cycle search (a depth-5 DFS from every account, each
+// cycle collapsed into a sorted set of ids) with the canonical CycleEnumerator,
+// on one thread and on the common fork-join pool, on power-law graphs of
+// growing density. The last column is the time-respecting search with a 72h
+// window, and how many cycles survive it.
+// Run with: java -cp <test classpath> com.rift.bench.CycleEnumerationBenchmark [accounts]
+public class CycleEnumerationBenchmark {
+
+    private static final int WARMUP_ROUNDS = 2;
+    private static final int MEASURED_ROUNDS = 5;
+
+    private static long checksum;
+
+    public static void main(String[] args) throws Exception {
+        int accounts = args.length > 0 ? Integer.parseInt(args[0]) : 5_000;
+
+        System.out.printf("%d worker threads%n", ForkJoinPool.commonPool().getParallelism());
+        System.out.printf("%-10s %8s %10s %14s %14s %9s %13s %9s %10s %10s%n",
+                "rows", "edges", "cycles", "all-starts ms", "canonical ms", "speedup", "parallel ms", "speedup",
+                "72h ms", "72h cycles");
+        for (int rowsPerAccount : new int[]{2, 4, 8, 12}) {
+            int rows = accounts * rowsPerAccount;
+            GraphRepository graph = graph(rows, accounts);
+
+            long cycles = canonical(graph);
+            double legacy = time(() -> checksum += allStarts(graph));
+            double canonical = time(() -> checksum += canonical(graph));
+            double parallel = time(() -> checksum += CycleEnumerator.findAll(graph, 3, 5,
+                    ForkJoinPool.commonPool()).size());
+            long timedCycles = timed(graph);
+            double timed = time(() -> checksum += timed(graph));
+            System.out.printf("%-10d %8d %10d %14.1f %14.1f %8.1fx %13.1f %8.1fx %10.1f %10d%n",
+                    rows, graph.edgeCount(), cycles, legacy, canonical, legacy / canonical,
+                    parallel, legacy / parallel, timed, timedCycles);
+        }
+        System.out.println("(checksum " + checksum + ")");
+    }
+
+    private static GraphRepository graph(int rows, int accounts) throws Exception {
+        AccountGraphBuilder builder = new AccountGraphBuilder();
+        StreamingCsvParser.parse(new ByteArrayInputStream(SyntheticTransactions.csv(rows, accounts, 42)),
+                builder.getDictionary(), builder);
+        return builder.build().getGraph();
+    }
+
+    private static long canonical(GraphRepository graph) {
+        long[] count = new long[1];
+        new CycleEnumerator(graph, 3, 5).enumerate((path, length) -> count[0]++);
+        return count[0];
+    }
+
+    private static long timed(GraphRepository graph) {
+        long[] count = new long[1];
+        new CycleEnumerator(graph, 3, 5, 72 * 3600).enumerate((path, length) -> count[0]++);
+        return count[0];
+    }
+
+    private static long allStarts(GraphRepository graph) {
+        Set<Set<Integer>> cycles = new HashSet<>();
+        boolean[] visited = new boolean[graph.accountCount()];
+        int[] path = new int[5];
+        for (int start = 0; start < graph.accountCount(); start++) {
+            allStartsDFS(graph, start, start, path, 0, visited, cycles);
+        }
+        return cycles.size();
+    }
+
+    private static void allStartsDFS(GraphRepository graph, int start, int current, int[] path, int depth,
+                                     boolean[] visited, Set<Set<Integer>> cycles) {
+        path[depth] = current;
+        visited[current] = true;
+        int length = depth + 1;
+        for (int e = graph.outStart(current); e < graph.outEnd(current); e++) {
+            int next = graph.target(e);
+            if (next == start && length >= 3) {
+                Set<Integer> cycle = new TreeSet<>();
+                for (int i = 0; i < length; i++) cycle.add(path[i]);
+                cycles.add(cycle);
+            } else if (!visited[next] && length < 5) {
+                allStartsDFS(graph, start, next, path, length, visited, cycles);
+            }
+        }
+        visited[current] = false;
+    }
+
+    // Median wall time in milliseconds
+    private static double time(Runnable task) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            task.run();
+        }
+        double[] millis = new double[MEASURED_ROUNDS];
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            long start = System.nanoTime();
+            task.run();
+            millis[i] = (System.nanoTime() - start) / 1e6;
+        }
+        Arrays.sort(millis);
+        return millis[MEASURED_ROUNDS / 2];
+    }
+}
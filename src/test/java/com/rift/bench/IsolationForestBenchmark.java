@@ -0,0 +1,72 @@
+package com.rift.bench;
+
+import com.rift.ml.IsolationForest;
+import com.rift.model.DetectionResult;
+import com.rift.service.AccountGraphBuilder;
+import com.rift.utils.StreamingCsvParser;
+
+import java.io.ByteArrayInputStream;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+// Times the Isolation Forest's two phases apart: training (once per dataset,
+// on a 256 account subsample per tree, so nearly flat in the account count)
+// and scoring every account, on one thread and on the common fork-join pool.
+// Run with: java -cp <test classpath> com.rift.bench.IsolationForestBenchmark [rows per account]
+public class IsolationForestBenchmark {
+
+    private static final int WARMUP_ROUNDS = 2;
+    private static final int MEASURED_ROUNDS = 5;
+    private static final int TREES = 100;
+    private static final int SAMPLE_SIZE = 256;
+
+    private static double checksum;
+
+    public static void main(String[] args) throws Exception {
+        int rowsPerAccount = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+
+        System.out.printf("%d worker threads%n", ForkJoinPool.commonPool().getParallelism());
+        System.out.printf("%-10s %10s %10s %12s %12s %13s %14s%n",
+                "accounts", "nodes", "train ms", "score ms", "per account", "parallel ms", "per account");
+        for (int accounts : new int[]{10_000, 50_000, 200_000}) {
+            double[] features = features(accounts * rowsPerAccount, accounts);
+            int count = features.length / IsolationForest.FEATURES;
+
+            IsolationForest.Forest forest = IsolationForest.Forest.train(features, count, TREES, SAMPLE_SIZE, 1);
+            double train = time(() -> checksum += IsolationForest.Forest.train(features, count, TREES, SAMPLE_SIZE, 1)
+                    .nodeCount());
+            double score = time(() -> {
+                for (int i = 0; i < count; i++) {
+                    checksum += forest.score(features, i * IsolationForest.FEATURES);
+                }
+            });
+            double parallel = time(() -> checksum += forest.scores(features, count)[count - 1]);
+            System.out.printf("%-10d %10d %10.1f %12.1f %10.2fus %13.1f %12.2fus%n",
+                    count, forest.nodeCount(), train, score, score * 1000 / count, parallel, parallel * 1000 / count);
+        }
+        System.out.println("(checksum " + checksum + ")");
+    }
+
+    private static double[] features(int rows, int accounts) throws Exception {
+        AccountGraphBuilder builder = new AccountGraphBuilder();
+        StreamingCsvParser.parse(new ByteArrayInputStream(SyntheticTransactions.csv(rows, accounts, 42)),
+                builder.getDictionary(), builder);
+        DetectionResult result = builder.build();
+        return new IsolationForest().features(result);
+    }
+
+    // Median wall time in milliseconds
+    private static double time(Runnable task) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            task.run();
+        }
+        double[] millis = new double[MEASURED_ROUNDS];
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            long start = System.nanoTime();
+            task.run();
+            millis[i] = (System.nanoTime() - start) / 1e6;
+        }
+        Arrays.sort(millis);
+        return millis[MEASURED_ROUNDS / 2];
+    }
+}
@@ -0,0 +1,49 @@
+package com.rift.bench;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Random;
+
+// Deterministic synthetic transaction exports for the benchmarks: power-law
+// sender/receiver popularity plus a sprinkling of short cycles
+public final class SyntheticTransactions {
+
+    private static final DateTimeFormatter FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private SyntheticTransactions() {
+    }
+
+    public static byte[] csv(int rows, int accounts, long seed) {
+        Random random = new Random(seed);
+        LocalDateTime base = LocalDateTime.of(2026, 2, 1, 0, 0);
+        StringBuilder out = new StringBuilder(rows * 56);
+        out.append("transaction_id,sender_id,receiver_id,amount,timestamp\n");
+
+        int row = 0;
+        while (row < rows) {
+            LocalDateTime time = base.plusMinutes(random.nextInt(60 * 24 * 30));
+            if (random.nextDouble() < 0.03) {
+                int length = 3 + random.nextInt(3);
+                int first = random.nextInt(accounts);
+                for (int i = 0; i < length && row < rows; i++) {
+                    int from = (first + i * 7919) % accounts;
+                    int to = (first + ((i + 1) % length) * 7919) % accounts;
+                    appendRow(out, ++row, from, to, 500 + random.nextInt(450_000) / 100.0, time.plusHours(i));
+                }
+            } else {
+                int from = (int) (accounts * Math.pow(random.nextDouble(), 2));
+                int to = (int) (accounts * Math.pow(random.nextDouble(), 1.5));
+                if (from == to) continue;
+                appendRow(out, ++row, from, to, 1 + random.nextInt(300_000) / 100.0, time);
+            }
+        }
+        return out.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void appendRow(StringBuilder out, int row, int from, int to,
+                                  double amount, LocalDateTime time) {
+        out.append("TX").append(row).append(",ACC_").append(from).append(",ACC_").append(to)
+                .append(',').append(amount).append(',').append(FORMAT.format(time)).append('\n');
+    }
+}
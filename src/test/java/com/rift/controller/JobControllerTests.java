@@ -0,0 +1,214 @@
+package com.rift.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rift.bench.SyntheticTransactions;
+import com.rift.service.AnalysisJobService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class JobControllerTests {
+
+	@Autowired
+	private MockMvc mvc;
+
+	@Autowired
+	private ObjectMapper mapper;
+
+	@Autowired
+	private AnalysisJobService jobService;
+
+	@Test
+	void uploadRunsAsJobAndServesResultWhenDone() throws Exception {
+		MockMultipartFile file = new MockMultipartFile("file", "sample.csv", "text/csv",
+				SyntheticTransactions.csv(200, 100, 5));
+
+		JsonNode job = json(mvc.perform(multipart("/api/upload").file(file))
+				.andExpect(status().isAccepted())
+				.andReturn().getResponse().getContentAsString());
+		JsonNode result = awaitResult(job);
+		assertEquals(result.get("accounts").size(), result.get("summary").get("total_accounts_analyzed").asInt());
+	}
+
+	@Test
+	void streamedUploadMatchesMultipartUpload() throws Exception {
+		byte[] csv = SyntheticTransactions.csv(200, 100, 5);
+		JsonNode job = json(mvc.perform(post("/api/upload/stream").param("name", "sample.csv")
+						.contentType("text/csv").content(csv))
+				.andExpect(status().isAccepted())
+				.andReturn().getResponse().getContentAsString());
+		assertNotEquals("queued", job.get("status").asText());
+		assertEquals("sample.csv", job.get("file_name").asText());
+		JsonNode streamed = awaitResult(job);
+
+		JsonNode uploaded = awaitResult(json(mvc.perform(multipart("/api/upload")
+						.file(new MockMultipartFile("file", "sample.csv", "text/csv", csv)))
+				.andExpect(status().isAccepted())
+				.andReturn().getResponse().getContentAsString()));
+		assertEquals(uploaded.get("suspiciousAccounts"), streamed.get("suspiciousAccounts"));
+		assertEquals(uploaded.get("fraudRings"), streamed.get("fraudRings"));
+	}
+
+	@Test
+	void topAccountsLimitsTheListedAccounts() throws Exception {
+		byte[] csv = SyntheticTransactions.csv(200, 100, 5);
+		JsonNode full = awaitResult(json(mvc.perform(post("/api/upload/stream").param("name", "sample.csv")
+						.contentType("text/csv").content(csv))
+				.andExpect(status().isAccepted())
+				.andReturn().getResponse().getContentAsString()));
+		JsonNode limited = awaitResult(json(mvc.perform(post("/api/upload/stream").param("name", "sample.csv")
+						.param("top_accounts", "3").contentType("text/csv").content(csv))
+				.andExpect(status().isAccepted())
+				.andReturn().getResponse().getContentAsString()));
+
+		assertTrue(full.get("suspiciousAccounts").size() > 3);
+		assertEquals(3, limited.get("suspiciousAccounts").size());
+		for (int i = 0; i < 3; i++) {
+			assertEquals(full.get("suspiciousAccounts").get(i), limited.get("suspiciousAccounts").get(i));
+		}
+		assertEquals(full.get("summary").get("suspicious_accounts_flagged"),
+				limited.get("summary").get("suspicious_accounts_flagged"));
+
+		mvc.perform(post("/api/upload/stream").param("top_accounts", "-1").contentType("text/csv").content(csv))
+				.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	void intradayBatchAddsTheCyclesItCloses() throws Exception {
+		JsonNode job = json(mvc.perform(post("/api/upload/stream").param("name", "sample.csv")
+						.contentType("text/csv").content(SyntheticTransactions.csv(200, 100, 5)))
+				.andExpect(status().isAccepted())
+				.andReturn().getResponse().getContentAsString());
+		int ringsBefore = awaitResult(job).get("fraudRings").size();
+
+		String batch = "transaction_id,sender_id,receiver_id,amount,timestamp\n"
+				+ "B1,NEW_A,NEW_B,900.0,2024-01-02 10:00:00\n"
+				+ "B2,NEW_B,NEW_C,880.0,2024-01-02 11:00:00\n"
+				+ "B3,NEW_C,NEW_A,860.0,2024-01-02 12:00:00\n";
+		JsonNode update = json(mvc.perform(post("/api/jobs/" + job.get("job_id").asText() + "/transactions")
+						.contentType("text/csv").content(batch))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString());
+		assertEquals(3, update.get("transactions_added").asInt());
+		assertEquals(1, update.get("new_cycles").size());
+		assertEquals(3, update.get("new_cycles").get(0).size());
+		assertTrue(update.get("new_rings").size() >= 1);
+
+		JsonNode result = json(mvc.perform(get("/api/jobs/" + job.get("job_id").asText() + "/result"))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString());
+		assertEquals(ringsBefore + update.get("new_rings").size(), result.get("fraudRings").size());
+		assertTrue(result.get("accounts").has("NEW_A"));
+	}
+
+	@Test
+	void graphShowsAccountsAndPairsAddedByABatch() throws Exception {
+		JsonNode job = json(mvc.perform(post("/api/upload/stream").param("name", "sample.csv")
+						.contentType("text/csv").content(SyntheticTransactions.csv(200, 100, 5)))
+				.andExpect(status().isAccepted())
+				.andReturn().getResponse().getContentAsString());
+		JsonNode before = awaitResult(job);
+		String known = before.get("accounts").fieldNames().next();
+
+		String batch = "transaction_id,sender_id,receiver_id,amount,timestamp\n"
+				+ "G1," + known + ",GRAPH_NEW,500.0,2024-01-02 10:00:00\n"
+				+ "G2,GRAPH_NEW,GRAPH_OTHER,450.0,2024-01-02 11:00:00\n";
+		mvc.perform(post("/api/jobs/" + job.get("job_id").asText() + "/transactions")
+						.contentType("text/csv").content(batch))
+				.andExpect(status().isOk());
+
+		JsonNode graph = json(mvc.perform(get("/api/graph/data"))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString());
+		Set<String> nodes = new HashSet<>();
+		graph.get("nodes").forEach(node -> nodes.add(node.get("id").asText()));
+		Set<String> edges = new HashSet<>();
+		graph.get("edges").forEach(edge -> edges.add(edge.get("from").asText() + "->" + edge.get("to").asText()));
+		assertTrue(nodes.containsAll(List.of("GRAPH_NEW", "GRAPH_OTHER")));
+		assertTrue(edges.contains(known + "->GRAPH_NEW"));
+		assertTrue(edges.contains("GRAPH_NEW->GRAPH_OTHER"));
+	}
+
+	@Test
+	void batchThatFailsToParseLeavesTheResultAsItWas() throws Exception {
+		JsonNode job = json(mvc.perform(post("/api/upload/stream").param("name", "sample.csv")
+						.contentType("text/csv").content(SyntheticTransactions.csv(200, 100, 5)))
+				.andExpect(status().isAccepted())
+				.andReturn().getResponse().getContentAsString());
+		JsonNode before = awaitResult(job);
+
+		// The body breaks off after its first row has been read
+		byte[] batch = ("transaction_id,sender_id,receiver_id,amount,timestamp\n"
+				+ "F1,PARTIAL_A,PARTIAL_B,500.0,2024-01-02 10:00:00\n").getBytes(StandardCharsets.UTF_8);
+		InputStream failing = new SequenceInputStream(new ByteArrayInputStream(batch), new InputStream() {
+			@Override
+			public int read() throws IOException {
+				throw new IOException("connection reset");
+			}
+		});
+		assertThrows(IOException.class, () -> jobService.appendBatch(job.get("job_id").asText(), failing));
+
+		JsonNode after = json(mvc.perform(get("/api/jobs/" + job.get("job_id").asText() + "/result"))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString());
+		assertEquals(before.get("accounts"), after.get("accounts"));
+		assertEquals(before.get("summary"), after.get("summary"));
+	}
+
+	@Test
+	void unknownJobIsNotFound() throws Exception {
+		mvc.perform(get("/api/jobs/missing")).andExpect(status().isNotFound());
+		mvc.perform(get("/api/jobs/missing/result")).andExpect(status().isNotFound());
+		mvc.perform(post("/api/jobs/missing/transactions").contentType("text/csv").content("x"))
+				.andExpect(status().isNotFound());
+	}
+
+	@Test
+	void localIngestIsOffUnlessADirectoryIsConfigured() throws Exception {
+		mvc.perform(post("/api/upload/local").param("path", "/etc/passwd")).andExpect(status().isForbidden());
+	}
+
+	// Polls the job until it completes, checks its stages and returns the result
+	private JsonNode awaitResult(JsonNode job) throws Exception {
+		String jobId = job.get("job_id").asText();
+
+		long deadline = System.currentTimeMillis() + 30_000;
+		while (!job.get("status").asText().equals("completed")) {
+			assertNotEquals("failed", job.get("status").asText(), job.toString());
+			assertTrue(System.currentTimeMillis() < deadline, "job did not finish in time");
+			Thread.sleep(50);
+			job = json(mvc.perform(get("/api/jobs/" + jobId))
+					.andExpect(status().isOk())
+					.andReturn().getResponse().getContentAsString());
+		}
+		assertEquals(100, job.get("progress").asInt());
+		for (JsonNode stage : job.get("stages")) {
+			assertEquals("done", stage.get("status").asText(), stage.toString());
+		}
+
+		return json(mvc.perform(get("/api/jobs/" + jobId + "/result"))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString());
+	}
+
+	private JsonNode json(String body) throws Exception {
+		return mapper.readTree(body);
+	}
+}
@@ -0,0 +1,86 @@
+package com.rift.ml;
+
+import com.rift.bench.SyntheticTransactions;
+import com.rift.model.Account;
+import com.rift.model.DetectionResult;
+import com.rift.service.AccountGraphBuilder;
+import com.rift.utils.StreamingCsvParser;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IsolationForestTests {
+
+	@Test
+	void isolatesTheOutlierFirst() {
+		Random random = new Random(2);
+		int count = 2000;
+		double[] features = new double[count * IsolationForest.FEATURES];
+		for (int i = 0; i < features.length; i++) {
+			features[i] = 100 + random.nextGaussian() * 10;
+		}
+		// Account 0 is far out on every feature
+		for (int f = 0; f < IsolationForest.FEATURES; f++) {
+			features[f] = f % 2 == 0 ? 400 : 5;
+		}
+
+		IsolationForest.Forest forest = IsolationForest.Forest.train(features, count, 100, 256, 7);
+		double[] scores = forest.scores(features, count);
+
+		double mean = 0;
+		for (int i = 1; i < count; i++) mean += scores[i] / (count - 1);
+		assertTrue(scores[0] > 0.7, "outlier scored " + scores[0]);
+		assertTrue(mean < 0.5, "inliers scored " + mean);
+		assertEquals(forest.score(features, 5 * IsolationForest.FEATURES), scores[5], 0.0);
+	}
+
+	@Test
+	void trainsTheSameForestFromTheSameSeed() {
+		Random random = new Random(4);
+		double[] features = new double[300 * IsolationForest.FEATURES];
+		for (int i = 0; i < features.length; i++) features[i] = random.nextInt(20);
+
+		IsolationForest.Forest first = IsolationForest.Forest.train(features, 300, 50, 256, 1);
+		IsolationForest.Forest second = IsolationForest.Forest.train(features, 300, 50, 256, 1);
+		assertEquals(first.nodeCount(), second.nodeCount());
+		assertArrayEquals(first.scores(features, 300), second.scores(features, 300), 0.0);
+	}
+
+	@Test
+	void normalisesByTheMeanPathLengthOfTheSample() {
+		assertEquals(0, IsolationForest.expectedPathLength(1), 0.0);
+		assertEquals(1, IsolationForest.expectedPathLength(2), 0.0);
+		// 2 H(255) - 2 * 255 / 256
+		assertEquals(10.2448, IsolationForest.expectedPathLength(256), 1e-3);
+	}
+
+	@Test
+	void keepsEachAnalysisItsOwnForest() throws Exception {
+		DetectionResult first = analysis(1);
+		DetectionResult second = analysis(2);
+		IsolationForest scorer = new IsolationForest();
+
+		double[] scores = scorer.calculateScores(first);
+		IsolationForest.Forest forest = first.getIsolationForest();
+		assertNotNull(forest);
+		scorer.calculateScores(second);
+		assertNotSame(forest, second.getIsolationForest());
+
+		// The first analysis keeps its forest, and the parallel scores are
+		// the per-account ones
+		assertSame(forest, first.getIsolationForest());
+		for (Account account : first.getIndexedAccounts()) {
+			assertEquals(scorer.calculateScore(account, first), scores[account.getIndex()], 0.0);
+		}
+	}
+
+	private static DetectionResult analysis(long seed) throws Exception {
+		AccountGraphBuilder builder = new AccountGraphBuilder();
+		StreamingCsvParser.parse(new ByteArrayInputStream(SyntheticTransactions.csv(2000, 300, seed)),
+				builder.getDictionary(), builder);
+		return builder.build();
+	}
+}
@@ -0,0 +1,149 @@
+package com.rift.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GraphRepositoryTests {
+
+	// 0 -> 2 (twice), 0 -> 1, 1 -> 2, 2 -> 0, 3 isolated
+	private static final int[] SENDERS = {0, 0, 1, 0, 2};
+	private static final int[] RECEIVERS = {2, 1, 2, 2, 0};
+	private static final double[] AMOUNTS = {10, 5, 7, 2.5, 1};
+	private static final long[] EPOCHS = {300, 100, 200, 50, 400};
+
+	private final GraphRepository graph = GraphRepository.build(new TransactionStore(4, SENDERS.length,
+			new String[SENDERS.length], SENDERS, RECEIVERS, AMOUNTS, EPOCHS));
+
+	@Test
+	void collapsesParallelTransactionsIntoOneEdge() {
+		assertEquals(4, graph.edgeCount());
+		assertEquals(2, graph.outDegree(0));
+
+		int e = graph.edge(0, 2);
+		assertEquals(12.5, graph.amount(e), 0.0);
+		assertEquals(2, graph.transactionCount(e));
+		assertEquals(50, graph.firstTimestamp(e));
+		assertEquals(300, graph.lastTimestamp(e));
+		assertEquals(-1, graph.edge(2, 1));
+	}
+
+	@Test
+	void aggregatesAmountsPerPair() {
+		int e = graph.edge(0, 2);
+		assertEquals(2.5, graph.minAmount(e), 0.0);
+		assertEquals(10, graph.maxAmount(e), 0.0);
+		// The row at t=50 is the earliest one
+		assertEquals(2.5, graph.firstAmount(e), 0.0);
+
+		int single = graph.edge(2, 0);
+		assertEquals(1, graph.minAmount(single), 0.0);
+		assertEquals(1, graph.maxAmount(single), 0.0);
+		assertEquals(1, graph.firstAmount(single), 0.0);
+	}
+
+	@Test
+	void keepsEachEdgesTransactionsInTimeOrder() {
+		int e = graph.edge(0, 2);
+		assertEquals(2, graph.timeEnd(e) - graph.timeStart(e));
+		assertEquals(50, graph.time(graph.timeStart(e)));
+		assertEquals(3, graph.timeRow(graph.timeStart(e)));
+		assertEquals(300, graph.time(graph.timeStart(e) + 1));
+
+		assertEquals(graph.timeStart(e), graph.firstTimeAtOrAfter(e, 50));
+		assertEquals(graph.timeStart(e) + 1, graph.firstTimeAtOrAfter(e, 51));
+		assertEquals(graph.timeEnd(e), graph.firstTimeAtOrAfter(e, 301));
+	}
+
+	@Test
+	void findsEveryPairThroughTheIndex() {
+		TransactionStore store = TransactionStoreTests.randomStore(new Random(4), false);
+		GraphRepository random = GraphRepository.build(store);
+
+		int found = 0;
+		for (int from = 0; from < store.accountCount(); from++) {
+			for (int to = 0; to < store.accountCount(); to++) {
+				int e = random.edge(from, to);
+				if (e >= 0) {
+					found++;
+					assertEquals(to, random.target(e));
+					assertTrue(e >= random.outStart(from) && e < random.outEnd(from));
+				}
+			}
+		}
+		assertEquals(random.edgeCount(), found);
+	}
+
+	@Test
+	void keepsBothDirectionsSorted() {
+		assertArrayEquals(new int[]{1, 2}, targets(0));
+		assertEquals(0, graph.outDegree(3));
+		assertEquals(0, graph.inDegree(3));
+
+		assertEquals(2, graph.inDegree(2));
+		assertEquals(0, graph.source(graph.inStart(2)));
+		assertEquals(1, graph.source(graph.inStart(2) + 1));
+		assertEquals(graph.edge(1, 2), graph.inEdge(graph.inStart(2) + 1));
+	}
+
+	@Test
+	void countsNeighboursOnEitherSideOnce() {
+		assertEquals(2, graph.neighbourCount(0));
+		assertEquals(2, graph.neighbourCount(2));
+		assertEquals(0, graph.neighbourCount(3));
+	}
+
+	@Test
+	void liveGraphCountsAddedNeighboursOnce() {
+		LiveGraph live = new LiveGraph(graph);
+		// 1 -> 0 and 2 -> 1 reverse base pairs; 3 -> 0 and 3 -> 4 are new
+		// neighbours, 4 a new account
+		live.addEdge(1, 0);
+		live.addEdge(2, 1);
+		live.addEdge(3, 0);
+		live.addEdge(3, 4);
+		live.addEdge(4, 4);
+
+		assertEquals(3, live.neighbourCount(0));
+		assertEquals(2, live.neighbourCount(1));
+		assertEquals(2, live.neighbourCount(2));
+		assertEquals(2, live.neighbourCount(3));
+		assertEquals(2, live.neighbourCount(4));
+	}
+
+	@Test
+	void parallelBuildMatchesSequential() {
+		TransactionStore store = TransactionStoreTests.randomStore(new Random(9), false);
+		GraphRepository sequential = GraphRepository.build(store, false);
+		GraphRepository parallel = GraphRepository.build(store, true);
+
+		assertEquals(sequential.edgeCount(), parallel.edgeCount());
+		for (int v = 0; v < store.accountCount(); v++) {
+			assertEquals(sequential.outStart(v), parallel.outStart(v));
+			assertEquals(sequential.inStart(v), parallel.inStart(v));
+		}
+		for (int e = 0; e < sequential.edgeCount(); e++) {
+			assertEquals(sequential.target(e), parallel.target(e));
+			assertEquals(sequential.amount(e), parallel.amount(e), 0.0);
+			assertEquals(sequential.transactionCount(e), parallel.transactionCount(e));
+			assertEquals(sequential.firstTimestamp(e), parallel.firstTimestamp(e));
+			assertEquals(sequential.lastTimestamp(e), parallel.lastTimestamp(e));
+			assertEquals(sequential.source(e), parallel.source(e));
+			assertEquals(sequential.inEdge(e), parallel.inEdge(e));
+			assertEquals(sequential.timeStart(e), parallel.timeStart(e));
+		}
+		for (int p = 0; p < store.size(); p++) {
+			assertEquals(sequential.timeRow(p), parallel.timeRow(p));
+		}
+	}
+
+	private int[] targets(int account) {
+		int[] targets = new int[graph.outDegree(account)];
+		for (int e = graph.outStart(account); e < graph.outEnd(account); e++) {
+			targets[e - graph.outStart(account)] = graph.target(e);
+		}
+		return targets;
+	}
+}
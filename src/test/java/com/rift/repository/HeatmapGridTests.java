@@ -0,0 +1,74 @@
+package com.rift.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HeatmapGridTests {
+
+	@Test
+	void countsEachTransactionOnce() {
+		// Monday 1970-01-05 00:00 UTC, then 2 and 10 minutes later; the last row is a self transfer
+		long monday = 4 * 86_400L;
+		TransactionStore store = new TransactionStore(2, 3, new String[3], new int[]{0, 1, 0},
+				new int[]{1, 0, 0}, new double[]{1.25, 2.5, 4}, new long[]{monday, monday + 120, monday + 600});
+		HeatmapGrid grid = HeatmapGrid.build(store);
+
+		assertEquals(3, grid.transactionCount());
+		assertEquals(3, grid.count(1, 0));
+		assertEquals(7.75, grid.amount(1, 0), 0.0);
+		assertEquals(1, grid.rapidCount());
+	}
+
+	@Test
+	void parallelBuildMatchesSequential() {
+		TransactionStore store = TransactionStoreTests.randomStore(new Random(8), false);
+		assertSameGrid(HeatmapGrid.build(store, false), HeatmapGrid.build(store, true));
+	}
+
+	@Test
+	void addingBatchesMatchesBuildingFromScratch() {
+		Random random = new Random(12);
+		int size = 4000;
+		int[] senders = new int[size];
+		int[] receivers = new int[size];
+		double[] amounts = new double[size];
+		long[] epochSeconds = new long[size];
+		for (int row = 0; row < size; row++) {
+			senders[row] = random.nextInt(30);
+			receivers[row] = random.nextInt(30);
+			amounts[row] = random.nextInt(100_000) / 100.0;
+			// Minutes apart, so many gaps are near the 5 minute cut
+			epochSeconds[row] = 1_700_000_000L + random.nextInt(20_000) * 60L;
+		}
+
+		// Batches land before, between and after the earlier timestamps
+		int base = 1000;
+		HeatmapGrid grid = HeatmapGrid.build(store(base, senders, receivers, amounts, epochSeconds));
+		for (int from = base; from < size; from += 750) {
+			int to = Math.min(size, from + 750);
+			grid.add(Arrays.copyOfRange(epochSeconds, from, to), Arrays.copyOfRange(amounts, from, to), to - from);
+		}
+
+		assertSameGrid(HeatmapGrid.build(store(size, senders, receivers, amounts, epochSeconds)), grid);
+	}
+
+	private static TransactionStore store(int size, int[] senders, int[] receivers, double[] amounts,
+										  long[] epochSeconds) {
+		return new TransactionStore(30, size, new String[size], senders, receivers, amounts, epochSeconds);
+	}
+
+	private static void assertSameGrid(HeatmapGrid expected, HeatmapGrid actual) {
+		assertEquals(expected.transactionCount(), actual.transactionCount());
+		assertEquals(expected.rapidCount(), actual.rapidCount());
+		for (int day = 1; day <= 7; day++) {
+			for (int hour = 0; hour < 24; hour++) {
+				assertEquals(expected.count(day, hour), actual.count(day, hour));
+				assertEquals(expected.amount(day, hour), actual.amount(day, hour), 0.0);
+			}
+		}
+	}
+}
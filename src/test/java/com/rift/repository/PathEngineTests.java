@@ -0,0 +1,81 @@
+package com.rift.repository;
+
+import com.rift.repository.PathEngine.PathQuery;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.function.IntPredicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PathEngineTests {
+
+	private final GraphRepository graph = randomGraph(new Random(19), 60, 240);
+
+	@Test
+	void filtersIntermediatesLikeAFullWalkWould() {
+		// Odd accounts may not sit in the middle of a path
+		IntPredicate even = account -> account % 2 == 0;
+		List<List<Integer>> streamed = new ArrayList<>();
+		graph.paths().stream(new PathQuery("even", 2, 4, even), (path, length) -> streamed.add(list(path, length)));
+
+		List<List<Integer>> expected = new ArrayList<>();
+		for (int start = 0; start < graph.accountCount(); start++) {
+			walk(new ArrayList<>(List.of(start)), 4, expected);
+		}
+		expected.removeIf(path -> path.size() < 2
+				|| path.subList(1, path.size() - 1).stream().anyMatch(account -> account % 2 != 0));
+
+		assertFalse(streamed.isEmpty());
+		assertEquals(expected, streamed);
+	}
+
+	@Test
+	void cachesEachQueryPerGraph() {
+		PathQuery query = new PathQuery("any", 3, 3, PathQuery.ANY);
+		PathEngine.PathSet paths = graph.paths().paths(query);
+		assertSame(paths, graph.paths().paths(new PathQuery("any", 3, 3, PathQuery.ANY)));
+		assertNotSame(paths, graph.paths().paths(new PathQuery("any", 2, 3, PathQuery.ANY)));
+
+		List<List<Integer>> streamed = new ArrayList<>();
+		graph.paths().stream(query, (path, length) -> streamed.add(list(path, length)));
+		List<List<Integer>> cached = new ArrayList<>();
+		paths.forEach((path, length) -> cached.add(list(path, length)));
+
+		assertEquals(streamed, cached);
+		assertEquals(streamed.size(), paths.size());
+		assertEquals(streamed.get(0), list(paths.path(0), paths.length(0)));
+	}
+
+	// Every simple path of up to max accounts, in the engine's order
+	private void walk(List<Integer> path, int max, List<List<Integer>> paths) {
+		paths.add(new ArrayList<>(path));
+		if (path.size() == max) return;
+		int current = path.get(path.size() - 1);
+		for (int e = graph.outStart(current); e < graph.outEnd(current); e++) {
+			int next = graph.target(e);
+			if (!path.contains(next)) {
+				path.add(next);
+				walk(path, max, paths);
+				path.remove(path.size() - 1);
+			}
+		}
+	}
+
+	private static GraphRepository randomGraph(Random random, int accounts, int size) {
+		int[] senders = new int[size];
+		int[] receivers = new int[size];
+		for (int row = 0; row < size; row++) {
+			senders[row] = (int) (accounts * Math.pow(random.nextDouble(), 2));
+			receivers[row] = random.nextInt(accounts);
+		}
+		return GraphRepository.build(new TransactionStore(accounts, size, new String[size], senders, receivers,
+				new double[size], new long[size]));
+	}
+
+	private static List<Integer> list(int[] path, int length) {
+		List<Integer> list = new ArrayList<>();
+		for (int i = 0; i < length; i++) list.add(path[i]);
+		return list;
+	}
+}
@@ -0,0 +1,60 @@
+package com.rift.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RingRegistryTests {
+
+	@Test
+	void findsRingsByTheirMembersInAnyOrder() {
+		RingRegistry registry = new RingRegistry(6);
+		int ring = registry.add(RingRegistry.canonical(new int[]{4, 1, 2}));
+
+		assertEquals(ring, registry.indexOf(RingRegistry.canonical(new int[]{2, 4, 1})));
+		assertEquals(-1, registry.indexOf(RingRegistry.canonical(new int[]{1, 2})));
+		assertEquals(ring, registry.add(new int[]{1, 2, 4}));
+		assertEquals(1, registry.size());
+		assertArrayEquals(new int[]{1, 2, 4}, registry.members(ring));
+	}
+
+	@Test
+	void answersSubsetAndOverlapQueriesThroughTheAccountIndex() {
+		RingRegistry registry = new RingRegistry(8);
+		registry.add(new int[]{0, 1, 2, 3});
+		registry.add(new int[]{3, 4, 5});
+
+		assertTrue(registry.isCovered(new int[]{0, 2, 3}));
+		assertTrue(registry.isCovered(new int[]{3, 5}));
+		assertFalse(registry.isCovered(new int[]{2, 3, 4}));
+
+		assertTrue(registry.overlaps(new int[]{5, 6}));
+		assertFalse(registry.overlaps(new int[]{6, 7}));
+
+		assertArrayEquals(new int[]{0, 1}, registry.rings(3));
+		assertEquals(0, registry.ringCount(7));
+	}
+
+	@Test
+	void matchesTheSetBasedChecks() {
+		Random random = new Random(15);
+		RingRegistry registry = new RingRegistry(40);
+		List<Set<Integer>> rings = new ArrayList<>();
+
+		for (int i = 0; i < 2000; i++) {
+			int[] members = RingRegistry.canonical(random.ints(3 + random.nextInt(3), 0, 40).toArray());
+			Set<Integer> set = new HashSet<>();
+			for (int member : members) set.add(member);
+
+			assertEquals(rings.stream().anyMatch(ring -> ring.containsAll(set)), registry.isCovered(members));
+			assertEquals(rings.indexOf(set), registry.indexOf(members));
+			assertEquals(rings.stream().anyMatch(ring -> !Collections.disjoint(ring, set)),
+					registry.overlaps(members));
+			if (!rings.contains(set)) rings.add(set);
+			registry.add(members);
+		}
+		assertEquals(rings.size(), registry.size());
+	}
+}
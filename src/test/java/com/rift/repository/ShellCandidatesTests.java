@@ -0,0 +1,47 @@
+package com.rift.repository;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShellCandidatesTests {
+
+	private static final long HOUR = 3600;
+
+	@Test
+	void picksAccountsThatForwardWhatTheyReceiveQuickly() {
+		// 1 forwards nearly all of 0's money within an hour; 2 keeps most of it;
+		// 3 forwards it all but only after four days; 4 sends before receiving
+		int[][] rows = {
+				{0, 1, 1000, 0}, {1, 5, 980, 1},
+				{0, 2, 1000, 0}, {2, 5, 100, 1},
+				{0, 3, 1000, 0}, {3, 5, 1000, 96},
+				{4, 5, 500, 0}, {0, 4, 500, 1},
+		};
+		int[] senders = new int[rows.length];
+		int[] receivers = new int[rows.length];
+		double[] amounts = new double[rows.length];
+		long[] times = new long[rows.length];
+		for (int i = 0; i < rows.length; i++) {
+			senders[i] = rows[i][0];
+			receivers[i] = rows[i][1];
+			amounts[i] = rows[i][2];
+			times[i] = rows[i][3] * HOUR;
+		}
+		TransactionStore store = new TransactionStore(6, rows.length, new String[rows.length],
+				senders, receivers, amounts, times);
+
+		ShellCandidates shells = ShellCandidates.build(store, GraphRepository.build(store), 4, 0.8, 72 * HOUR);
+
+		assertTrue(shells.contains(1));
+		assertFalse(shells.contains(2));
+		assertFalse(shells.contains(3));
+		assertFalse(shells.contains(4));
+		assertFalse(shells.contains(0));
+		assertEquals(1, shells.size());
+		assertEquals(1, shells.account(0));
+
+		// 1 deals with two counterparties, one too many here
+		assertFalse(ShellCandidates.build(store, GraphRepository.build(store), 1, 0.8, 72 * HOUR).contains(1));
+	}
+}
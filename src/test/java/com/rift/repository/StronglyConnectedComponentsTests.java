@@ -0,0 +1,92 @@
+package com.rift.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static com.rift.repository.TestGraphs.graph;
+import static org.junit.jupiter.api.Assertions.*;
+
+class StronglyConnectedComponentsTests {
+
+	@Test
+	void groupsMutuallyReachableAccounts() {
+		// {0, 1, 2} is a cycle, 3 <-> 4, 2 -> 3 links them one way, 5 is a sink
+		StronglyConnectedComponents components = components(6,
+				new int[][]{{0, 1}, {1, 2}, {2, 0}, {2, 3}, {3, 4}, {4, 3}, {4, 5}});
+
+		assertEquals(3, components.count());
+		assertTrue(components.connected(0, 2));
+		assertTrue(components.connected(3, 4));
+		assertFalse(components.connected(2, 3));
+
+		int cycle = components.componentOf(1);
+		assertEquals(3, components.size(cycle));
+		assertEquals(List.of(0, 1, 2), members(components, cycle));
+		assertEquals(1, components.size(components.componentOf(5)));
+	}
+
+	@Test
+	void handlesChainsDeeperThanTheCallStack() {
+		int n = 200_000;
+		int[][] edges = new int[n][];
+		for (int v = 0; v < n; v++) {
+			edges[v] = new int[]{v, (v + 1) % n};
+		}
+
+		StronglyConnectedComponents components = components(n, edges);
+
+		assertEquals(1, components.count());
+		assertEquals(n, components.size(0));
+	}
+
+	@Test
+	void matchesPairwiseReachability() {
+		Random random = new Random(8);
+		int n = 80;
+		int[][] edges = new int[150][];
+		for (int i = 0; i < edges.length; i++) {
+			edges[i] = new int[]{random.nextInt(n), random.nextInt(n)};
+		}
+		StronglyConnectedComponents components = components(n, edges);
+		GraphRepository graph = graph(n, edges);
+
+		boolean[][] reaches = new boolean[n][];
+		for (int v = 0; v < n; v++) {
+			reaches[v] = reachable(graph, v);
+		}
+		for (int a = 0; a < n; a++) {
+			for (int b = 0; b < n; b++) {
+				assertEquals(reaches[a][b] && reaches[b][a], components.connected(a, b), a + " / " + b);
+			}
+		}
+	}
+
+	private static boolean[] reachable(GraphRepository graph, int from) {
+		boolean[] seen = new boolean[graph.accountCount()];
+		Deque<Integer> queue = new ArrayDeque<>(List.of(from));
+		seen[from] = true;
+		while (!queue.isEmpty()) {
+			int v = queue.poll();
+			for (int e = graph.outStart(v); e < graph.outEnd(v); e++) {
+				if (!seen[graph.target(e)]) {
+					seen[graph.target(e)] = true;
+					queue.add(graph.target(e));
+				}
+			}
+		}
+		return seen;
+	}
+
+	private static List<Integer> members(StronglyConnectedComponents components, int component) {
+		List<Integer> members = new ArrayList<>();
+		for (int i = components.start(component); i < components.end(component); i++) {
+			members.add(components.member(i));
+		}
+		return members;
+	}
+
+	private static StronglyConnectedComponents components(int accounts, int[][] edges) {
+		return graph(accounts, edges).components();
+	}
+}
@@ -0,0 +1,24 @@
+package com.rift.repository;
+
+// Small hand-drawn graphs for the tests: edges are {sender, receiver} pairs,
+// one transaction each
+public final class TestGraphs {
+
+	private TestGraphs() {
+	}
+
+	public static GraphRepository graph(int accounts, int[][] edges) {
+		return GraphRepository.build(store(accounts, edges, new double[edges.length], new long[edges.length]));
+	}
+
+	public static TransactionStore store(int accounts, int[][] edges, double[] amounts, long[] times) {
+		int[] senders = new int[edges.length];
+		int[] receivers = new int[edges.length];
+		for (int i = 0; i < edges.length; i++) {
+			senders[i] = edges[i][0];
+			receivers[i] = edges[i][1];
+		}
+		return new TransactionStore(accounts, edges.length, new String[edges.length], senders, receivers,
+				amounts, times);
+	}
+}
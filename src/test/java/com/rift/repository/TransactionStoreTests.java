@@ -0,0 +1,123 @@
+package com.rift.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionStoreTests {
+
+	@Test
+	void listsEachAccountsRowsInTimeOrder() {
+		// rows: 0 A->B @300, 1 B->C @100, 2 A->A @200, 3 C->A @100
+		TransactionStore store = new TransactionStore(3, 4,
+				new String[]{"T0", "T1", "T2", "T3"},
+				new int[]{0, 1, 0, 2}, new int[]{1, 2, 0, 0},
+				new double[]{1, 2, 3, 4}, new long[]{300, 100, 200, 100});
+
+		// The self transfer is listed for both of its sides
+		assertArrayEquals(new int[]{3, 2, 2, 0}, store.rows(0).toArray());
+		assertArrayEquals(new int[]{1, 0}, store.rows(1).toArray());
+		assertArrayEquals(new int[]{1, 3}, store.rows(2).toArray());
+		assertEquals(8, store.slotCount());
+		assertEquals("T2", store.transactionId(2));
+	}
+
+	@Test
+	void splitsEachAccountsRowsByDirection() {
+		// rows: 0 A->B @300, 1 B->C @100, 2 A->A @200, 3 C->A @100
+		TransactionStore store = new TransactionStore(3, 4,
+				new String[]{"T0", "T1", "T2", "T3"},
+				new int[]{0, 1, 0, 2}, new int[]{1, 2, 0, 0},
+				new double[]{1, 2, 3, 4}, new long[]{300, 100, 200, 100});
+
+		// The self transfer is in each of account 0's timelines once
+		assertArrayEquals(new int[]{2, 0}, sent(store, 0));
+		assertArrayEquals(new int[]{3, 2}, received(store, 0));
+		assertArrayEquals(new int[]{1}, sent(store, 1));
+		assertArrayEquals(new int[]{0}, received(store, 1));
+
+		assertEquals(store.sentStart(0) + 1, store.firstSentAtOrAfter(0, 201));
+		assertEquals(store.sentEnd(0), store.firstSentAtOrAfter(0, 301));
+		assertEquals(store.receivedStart(0), store.firstReceivedAtOrAfter(0, 100));
+
+		int[] byTime = new int[store.size()];
+		for (int i = 0; i < byTime.length; i++) byTime[i] = store.rowByTime(i);
+		assertArrayEquals(new int[]{1, 3, 2, 0}, byTime);
+	}
+
+	@Test
+	void timelinesMatchTheFilteredAccountRows() {
+		TransactionStore store = randomStore(new Random(6), true);
+		for (int v = 0; v < store.accountCount(); v++) {
+			int account = v;
+			assertArrayEquals(store.rows(v).filter(row -> store.sender(row) == account).distinct().toArray(),
+					sent(store, v), "account " + v);
+			assertArrayEquals(store.rows(v).filter(row -> store.receiver(row) == account).distinct().toArray(),
+					received(store, v), "account " + v);
+
+			// Rows received in [t, t + 1 day)
+			long t = 1_700_000_000L + 100 * 3600L;
+			long expected = store.rows(v)
+					.filter(row -> store.receiver(row) == account)
+					.filter(row -> store.epochSecond(row) >= t && store.epochSecond(row) < t + 86_400)
+					.distinct().count();
+			assertEquals(expected, store.firstReceivedAtOrAfter(v, t + 86_400) - store.firstReceivedAtOrAfter(v, t));
+		}
+	}
+
+	private static int[] sent(TransactionStore store, int account) {
+		return IntStream.range(store.sentStart(account), store.sentEnd(account))
+				.map(store::timelineRow).toArray();
+	}
+
+	private static int[] received(TransactionStore store, int account) {
+		return IntStream.range(store.receivedStart(account), store.receivedEnd(account))
+				.map(store::timelineRow).toArray();
+	}
+
+	@Test
+	void parallelBucketSortMatchesSequential() {
+		TransactionStore sequential = randomStore(new Random(5), false);
+		TransactionStore parallel = randomStore(new Random(5), true);
+
+		assertEquals(sequential.slotCount(), parallel.slotCount());
+		for (int v = 0; v < sequential.accountCount(); v++) {
+			assertArrayEquals(sequential.rows(v).toArray(), parallel.rows(v).toArray(), "account " + v);
+		}
+	}
+
+	// Power-law senders with coarse timestamps, so buckets are uneven and full of ties
+	static TransactionStore randomStore(Random random, boolean parallel) {
+		int accounts = 500;
+		int size = 20_000;
+		int[] senders = new int[size];
+		int[] receivers = new int[size];
+		double[] amounts = new double[size];
+		long[] epochSeconds = new long[size];
+		for (int row = 0; row < size; row++) {
+			senders[row] = (int) (accounts * Math.pow(random.nextDouble(), 3));
+			receivers[row] = random.nextInt(accounts);
+			amounts[row] = random.nextInt(100_000) / 100.0;
+			epochSeconds[row] = 1_700_000_000L + random.nextInt(500) * 3600L;
+		}
+		return new TransactionStore(accounts, size, new String[size], senders, receivers, amounts,
+				epochSeconds, parallel);
+	}
+
+	@Test
+	void decodesCalendarFieldsLikeLocalDateTime() {
+		Random random = new Random(3);
+		for (int i = 0; i < 10_000; i++) {
+			long epochSecond = random.nextLong(-5_000_000_000L, 10_000_000_000L);
+			LocalDateTime time = LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC);
+
+			assertEquals(time.getHour(), TransactionStore.hourOfDay(epochSecond));
+			assertEquals(time.getDayOfWeek().getValue(), TransactionStore.dayOfWeek(epochSecond));
+		}
+	}
+}
@@ -0,0 +1,103 @@
+package com.rift.service;
+
+import com.rift.bench.SyntheticTransactions;
+import com.rift.model.Account;
+import com.rift.model.DetectionResult;
+import com.rift.repository.GraphRepository;
+import com.rift.repository.TransactionStore;
+import com.rift.utils.ChunkedCsvParser;
+import com.rift.utils.StreamingCsvParser;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccountGraphBuilderTests {
+
+	private static final byte[] CSV = SyntheticTransactions.csv(20_000, 2_000, 11);
+
+	@Test
+	void chunkedParallelBuildMatchesSequentialBuild() throws Exception {
+		AccountGraphBuilder sequential = new AccountGraphBuilder();
+		StreamingCsvParser.parse(new ByteArrayInputStream(CSV), sequential.getDictionary(), sequential);
+
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			AccountGraphBuilder parallel = ChunkedCsvParser.parse(ByteBuffer.wrap(CSV), 4096, pool,
+					AccountGraphBuilder::new, AccountGraphBuilder::getDictionary, AccountGraphBuilder::merge);
+
+			assertSameGraph(sequential.build(), parallel.build());
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	void mappedFileBuildMatchesSequentialBuild(@TempDir Path dir) throws Exception {
+		AccountGraphBuilder sequential = new AccountGraphBuilder();
+		StreamingCsvParser.parse(new ByteArrayInputStream(CSV), sequential.getDictionary(), sequential);
+
+		Path file = Files.write(dir.resolve("transactions.csv"), CSV);
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			AccountGraphBuilder parallel = ChunkedCsvParser.parse(file, 4096, pool,
+					AccountGraphBuilder::new, AccountGraphBuilder::getDictionary, AccountGraphBuilder::merge);
+
+			assertSameGraph(sequential.build(), parallel.build());
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	private static void assertSameGraph(DetectionResult expected, DetectionResult actual) {
+		assertEquals(new ArrayList<>(expected.getAccounts().keySet()), new ArrayList<>(actual.getAccounts().keySet()));
+		for (Account e : expected.getIndexedAccounts()) {
+			Account a = actual.getAccount(e.getIndex());
+			String id = e.getAccountId();
+			assertEquals(id, a.getAccountId());
+			assertEquals(e.getTotalSent(), a.getTotalSent(), 0.0, id);
+			assertEquals(e.getTotalReceived(), a.getTotalReceived(), 0.0, id);
+			assertEquals(e.getIncomingCount(), a.getIncomingCount(), id);
+			assertEquals(e.getOutgoingCount(), a.getOutgoingCount(), id);
+			assertEquals(e.getTransactionCount(), a.getTransactionCount(), id);
+		}
+
+		TransactionStore es = expected.getTransactionStore();
+		TransactionStore as = actual.getTransactionStore();
+		assertEquals(es.size(), as.size());
+		for (int row = 0; row < es.size(); row++) {
+			assertEquals(es.transactionId(row), as.transactionId(row));
+			assertEquals(es.sender(row), as.sender(row));
+			assertEquals(es.receiver(row), as.receiver(row));
+			assertEquals(es.amount(row), as.amount(row), 0.0);
+			assertEquals(es.epochSecond(row), as.epochSecond(row));
+		}
+		for (int slot = 0; slot < es.slotCount(); slot++) {
+			assertEquals(es.row(slot), as.row(slot));
+		}
+
+		GraphRepository e = expected.getGraph();
+		GraphRepository a = actual.getGraph();
+		assertEquals(e.edgeCount(), a.edgeCount());
+		for (int v = 0; v < e.accountCount(); v++) {
+			assertEquals(e.outStart(v), a.outStart(v));
+			assertEquals(e.inStart(v), a.inStart(v));
+		}
+		for (int edge = 0; edge < e.edgeCount(); edge++) {
+			assertEquals(e.target(edge), a.target(edge));
+			assertEquals(e.source(edge), a.source(edge));
+			assertEquals(e.inEdge(edge), a.inEdge(edge));
+			assertEquals(e.amount(edge), a.amount(edge), 0.0);
+			assertEquals(e.transactionCount(edge), a.transactionCount(edge));
+			assertEquals(e.firstTimestamp(edge), a.firstTimestamp(edge));
+			assertEquals(e.lastTimestamp(edge), a.lastTimestamp(edge));
+		}
+	}
+}
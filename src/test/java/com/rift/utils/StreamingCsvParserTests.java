@@ -0,0 +1,113 @@
+package com.rift.utils;
+
+import com.rift.model.Transaction;
+import com.rift.repository.AccountDictionary;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamingCsvParserTests {
+
+	private static final String SAMPLE = String.join("\r\n",
+			"transaction_id,sender_id,receiver_id,amount,timestamp",
+			"TX1,A,B,1000,2026-02-19 10:00:00",
+			"TX2,B,C,2000.55,2026-02-19T10:05:00",
+			"",
+			"TX3,\"C\",\"A,1\",-0.1,2026-02-29 10:10:00",
+			"TX4,A,C,not-a-number,2026-02-19 10:15:00",
+			"TX5,C,B,12.5e2,2024-02-29 23:59:59",
+			"TX6,B,A,0.000001,2026-02-19 10:20:30.5",
+			"TX7,\"B\"\"x\",A,7,1999-12-31 00:00:01",
+			"TX8,A,B",
+			"TX9,A,B,3.14159265358979,2026-03-01 00:00:00");
+
+	@Test
+	void matchesCommonsCsvParsing() throws Exception {
+		List<Transaction> expected = CsvParser.parseTransactions(
+				new MockMultipartFile("file", SAMPLE.getBytes(StandardCharsets.UTF_8)));
+
+		AccountDictionary dictionary = new AccountDictionary();
+		List<String> rows = new ArrayList<>();
+		long parsed = new StreamingCsvParser(dictionary, (id, sender, receiver, amount, epochSecond) ->
+				rows.add(id + "|" + dictionary.name(sender) + "|" + dictionary.name(receiver)
+						+ "|" + amount + "|" + epochSecond))
+				.parseStream(new ByteArrayInputStream(SAMPLE.getBytes(StandardCharsets.UTF_8)), 16);
+
+		List<String> expectedRows = new ArrayList<>();
+		for (Transaction tx : expected) {
+			expectedRows.add(tx.getTransactionId() + "|" + tx.getSenderId() + "|" + tx.getReceiverId()
+					+ "|" + tx.getAmount() + "|" + tx.getTimestamp().toEpochSecond(ZoneOffset.UTC));
+		}
+		assertEquals(expectedRows, rows);
+		assertEquals(expected.size(), parsed);
+	}
+
+	@Test
+	void assignsDenseIdsInFirstSeenOrder() throws Exception {
+		String csv = "transaction_id,sender_id,receiver_id,amount,timestamp\n"
+				+ "TX1,ACC_1,ACC_2,1,2026-01-01 00:00:00\n"
+				+ "TX2,ACC_3,ACC_4,oops,2026-01-01 00:00:00\n"
+				+ "TX3,ACC_2,ACC_1,1,2026-01-01 00:00:00\n"
+				+ "TX4,ACC_2,ACC_5,1,2026-01-01 00:00:00\n";
+		AccountDictionary dictionary = new AccountDictionary();
+		List<Integer> ids = new ArrayList<>();
+		StreamingCsvParser.parse(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), dictionary,
+				(id, sender, receiver, amount, epochSecond) -> {
+					ids.add(sender);
+					ids.add(receiver);
+				});
+
+		// The malformed row must not leave its accounts behind in the dictionary
+		assertEquals(List.of(0, 1, 1, 0, 1, 2), ids);
+		assertEquals(3, dictionary.size());
+		assertEquals("ACC_5", dictionary.name(2));
+		assertEquals(1, dictionary.lookup("ACC_2"));
+		assertEquals(-1, dictionary.lookup("ACC_3"));
+	}
+
+	@Test
+	void decodesTimestampsLikeLocalDateTime() {
+		Random random = new Random(42);
+		for (int i = 0; i < 10_000; i++) {
+			LocalDateTime time = LocalDateTime.ofEpochSecond(
+					random.nextLong(-5_000_000_000L, 10_000_000_000L), 0, ZoneOffset.UTC);
+			String text = time.toLocalDate() + " " + String.format("%02d:%02d:%02d",
+					time.getHour(), time.getMinute(), time.getSecond());
+			byte[] bytes = text.getBytes(StandardCharsets.US_ASCII);
+
+			assertEquals(time.toEpochSecond(ZoneOffset.UTC),
+					StreamingCsvParser.parseTimestamp(ByteBuffer.wrap(bytes), 0, bytes.length), text);
+		}
+	}
+
+	@Test
+	void decodesAmountsLikeDoubleParseDouble() {
+		Random random = new Random(7);
+		for (int i = 0; i < 10_000; i++) {
+			String text = i % 3 == 0
+					? Long.toString(random.nextLong(1_000_000_000L))
+					: String.format("%d.%0" + (1 + i % 6) + "d", random.nextInt(1_000_000),
+							random.nextInt((int) Math.pow(10, 1 + i % 6)));
+			byte[] bytes = text.getBytes(StandardCharsets.US_ASCII);
+
+			assertEquals(Double.parseDouble(text),
+					StreamingCsvParser.parseAmount(ByteBuffer.wrap(bytes), 0, bytes.length), text);
+		}
+	}
+
+	@Test
+	void rejectsHeaderWithoutRequiredColumns() {
+		String csv = "transaction_id,sender_id,receiver_id,amount\nTX1,A,B,1\n";
+		assertThrows(IllegalArgumentException.class, () -> StreamingCsvParser.parse(
+				new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), new AccountDictionary(),
+				(id, sender, receiver, amount, epochSecond) -> { }));
+	}
+}
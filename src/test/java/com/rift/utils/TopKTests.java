@@ -0,0 +1,65 @@
+package com.rift.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TopKTests {
+
+	@Test
+	void keepsTheSameEntriesAsAStableSortAndLimit() {
+		Random random = new Random(3);
+		for (int k : new int[]{0, 1, 5, 40, 500}) {
+			// Few distinct scores, so most of the cut falls between ties
+			double[] scores = new double[300];
+			for (int i = 0; i < scores.length; i++) {
+				scores[i] = random.nextInt(12) / 2.0;
+			}
+
+			TopK top = new TopK(k);
+			for (int i = 0; i < scores.length; i++) {
+				top.offer(scores[i], i);
+			}
+
+			int[] expected = IntStream.range(0, scores.length).boxed()
+					.sorted(Comparator.comparingDouble((Integer i) -> scores[i]).reversed())
+					.limit(k)
+					.mapToInt(Integer::intValue)
+					.toArray();
+			int[] slots = top.slotsInOrder();
+			int[] actual = new int[slots.length];
+			for (int i = 0; i < slots.length; i++) {
+				actual[i] = top.id(slots[i]);
+				assertEquals(scores[actual[i]], top.score(slots[i]), 0.0);
+			}
+			assertArrayEquals(expected, actual, "k = " + k);
+		}
+	}
+
+	@Test
+	void rejectsEntriesThatCannotMakeTheCut() {
+		TopK top = new TopK(2);
+		assertTrue(top.offer(5, 0) >= 0);
+		assertTrue(top.offer(7, 1) >= 0);
+
+		assertFalse(top.accepts(5));
+		assertEquals(-1, top.offer(5, 2));
+		assertEquals(-1, top.offer(1, 3));
+
+		int slot = top.offer(6, 4);
+		assertEquals(4, top.id(slot));
+		assertEquals(2, top.size());
+		// Ordering twice leaves the heap intact
+		assertArrayEquals(top.slotsInOrder(), top.slotsInOrder());
+		assertEquals(1, top.id(top.slotsInOrder()[0]));
+	}
+
+	@Test
+	void rejectsNegativeLimits() {
+		assertThrows(IllegalArgumentException.class, () -> new TopK(-1));
+	}
+}